@@ -7,6 +7,8 @@ import com.benorim.carhov.dto.user.UserDTO;
 import com.benorim.carhov.entity.CarHovUser;
 import com.benorim.carhov.enums.RoleType;
 import com.benorim.carhov.mapper.CarHovUserMapper;
+import com.benorim.carhov.search.RideSearchCache;
+import com.benorim.carhov.search.SearchCacheStats;
 import com.benorim.carhov.service.CarHovAdminUserService;
 import com.benorim.carhov.service.CarHovUserService;
 import jakarta.validation.Valid;
@@ -33,6 +35,7 @@ public class AdminController {
 
     private final CarHovAdminUserService adminUserService;
     private final CarHovUserService userService;
+    private final RideSearchCache rideSearchCache;
 
     @GetMapping("/users/board")
     public String adminAccess() {
@@ -79,4 +82,9 @@ public class AdminController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @GetMapping("/search/cache-stats")
+    public ResponseEntity<SearchCacheStats> getSearchCacheStats() {
+        return ResponseEntity.ok(rideSearchCache.stats());
+    }
 }
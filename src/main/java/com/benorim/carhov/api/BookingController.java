@@ -4,11 +4,9 @@ import com.benorim.carhov.dto.booking.BookingDTO;
 import com.benorim.carhov.dto.booking.CreateBookingDTO;
 import com.benorim.carhov.dto.booking.UpdateBookingDTO;
 import com.benorim.carhov.entity.Booking;
-import com.benorim.carhov.entity.RideSchedule;
 import com.benorim.carhov.enums.DayOfWeek;
 import com.benorim.carhov.exception.DataOwnershipException;
 import com.benorim.carhov.mapper.BookingMapper;
-import com.benorim.carhov.repository.RideScheduleRepository;
 import com.benorim.carhov.service.BookingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -22,12 +20,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 /**
  * REST controller for booking operations
@@ -39,7 +36,6 @@ import java.util.Optional;
 public class BookingController {
 
     private final BookingService bookingService;
-    private final RideScheduleRepository rideScheduleRepository;
 
     /**
      * Create a new booking
@@ -315,29 +311,22 @@ public class BookingController {
     @GetMapping("/ride/{rideScheduleId}/availability")
     public ResponseEntity<Map<DayOfWeek, Integer>> getRideAvailability(@PathVariable Long rideScheduleId) {
         log.info("Received request to get availability for ride schedule ID: {}", rideScheduleId);
-        
-        // Get the ride schedule to check available seats and days
-        Optional<RideSchedule> rideScheduleOpt = rideScheduleRepository.findById(rideScheduleId);
-        
-        if (rideScheduleOpt.isEmpty()) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-        
-        RideSchedule rideSchedule = rideScheduleOpt.get();
-        
-        if (!rideSchedule.isAvailable()) {
-            return new ResponseEntity<>(Map.of(), HttpStatus.OK);
-        }
-        
-        // Calculate availability for each day
-        Map<DayOfWeek, Integer> availability = new HashMap<>();
-        
-        for (DayOfWeek day : rideSchedule.getDayList()) {
-            int bookedSeats = bookingService.getTotalSeatsBookedForDay(rideScheduleId, day);
-            int availableSeats = Math.max(0, rideSchedule.getAvailableSeats() - bookedSeats);
-            availability.put(day, availableSeats);
-        }
-        
-        return new ResponseEntity<>(availability, HttpStatus.OK);
+
+        return bookingService.getAvailability(rideScheduleId)
+                .map(availability -> new ResponseEntity<>(availability, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Get availability information for each day of several ride schedules, e.g. for a page of search results
+     *
+     * @param rideScheduleIds The IDs of the ride schedules
+     * @return Map of ride schedule IDs to maps of days to available seats; unknown IDs are left out
+     */
+    @GetMapping("/rides/availability")
+    public ResponseEntity<Map<Long, Map<DayOfWeek, Integer>>> getRidesAvailability(@RequestParam List<Long> rideScheduleIds) {
+        log.info("Received request to get availability for {} ride schedules", rideScheduleIds.size());
+
+        return new ResponseEntity<>(bookingService.getAvailability(rideScheduleIds), HttpStatus.OK);
     }
 }
\ No newline at end of file
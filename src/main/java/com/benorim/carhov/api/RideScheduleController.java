@@ -1,16 +1,22 @@
 package com.benorim.carhov.api;
 
+import com.benorim.carhov.dto.rideSchedule.BatchSearchRideScheduleDTO;
 import com.benorim.carhov.dto.rideSchedule.CreateRideScheduleDTO;
 import com.benorim.carhov.dto.rideSchedule.RideScheduleDTO;
 import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchResultDTO;
+import com.benorim.carhov.dto.rideSchedule.RideSchedulePage;
 import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
 import com.benorim.carhov.dto.rideSchedule.UpdateRideScheduleDTO;
 import com.benorim.carhov.entity.RideSchedule;
 import com.benorim.carhov.mapper.RideScheduleMapper;
+import com.benorim.carhov.search.RideSearchPage;
 import com.benorim.carhov.service.RideScheduleService;
+import com.benorim.carhov.util.NdjsonWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -20,8 +26,12 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -30,7 +40,13 @@ import java.util.List;
 @Slf4j
 public class RideScheduleController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // Streamed ride schedules are flushed to the client every this many lines
+    private static final int STREAM_FLUSH_SIZE = 500;
+
     private final RideScheduleService rideScheduleService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<RideScheduleDTO> createRideSchedule(@Validated @RequestBody CreateRideScheduleDTO createRideScheduleDTO) {
@@ -48,12 +64,37 @@ public class RideScheduleController {
     }
 
     @GetMapping
-    public ResponseEntity<List<RideScheduleDTO>> getAllRideSchedules() {
-        log.info("Received request to get all ride schedules");
-        List<RideScheduleDTO> rideSchedules = rideScheduleService.findAllRideSchedules().stream()
-                .map(RideScheduleMapper::toDTO)
-                .toList();
-        return new ResponseEntity<>(rideSchedules, HttpStatus.OK);
+    public ResponseEntity<List<RideScheduleDTO>> getAllRideSchedules(@RequestParam(defaultValue = "50") int limit,
+                                                                     @RequestParam(required = false) String cursor) {
+        log.info("Received request to get ride schedules, limit: {}", limit);
+        RideSchedulePage page = rideScheduleService.findRideSchedulePage(limit, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.results());
+    }
+
+    @GetMapping(produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamAllRideSchedules() {
+        log.info("Received request to stream all ride schedules");
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream, STREAM_FLUSH_SIZE);
+            try {
+                rideScheduleService.exportRideSchedules(row -> {
+                    try {
+                        writer.write(RideScheduleMapper.toDTO(row));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // A failed write ends the export and its read-only transaction
+                throw e.getCause();
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     @GetMapping("/user/{userId}")
@@ -87,7 +128,39 @@ public class RideScheduleController {
     @PostMapping("/search")
     public ResponseEntity<List<RideScheduleSearchResultDTO>> searchRideSchedules(@Validated @RequestBody SearchRideScheduleDTO searchCriteria) {
         log.info("Received request to search for ride schedules: {}", searchCriteria);
-        List<RideScheduleSearchResultDTO> searchResults = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
-        return new ResponseEntity<>(searchResults, HttpStatus.OK);
+        RideSearchPage searchPage = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (searchPage.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, searchPage.nextCursor());
+        }
+        return response.body(searchPage.results());
+    }
+
+    @PostMapping(value = "/search", produces = NdjsonWriter.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamSearchRideSchedules(@Validated @RequestBody SearchRideScheduleDTO searchCriteria) {
+        log.info("Received request to stream a search for ride schedules: {}", searchCriteria);
+        // Unlike the listing, the page is built in full before the first line is written: it is bounded by the
+        // limit, may come from the search cache, and its next cursor has to be known for the header. Only the
+        // NDJSON format is shared with the listing
+        RideSearchPage searchPage = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
+        StreamingResponseBody body = outputStream -> {
+            NdjsonWriter writer = new NdjsonWriter(objectMapper, outputStream);
+            for (RideScheduleSearchResultDTO result : searchPage.results()) {
+                writer.write(result);
+            }
+            writer.flush();
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (searchPage.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, searchPage.nextCursor());
+        }
+        return response.body(body);
+    }
+
+    @PostMapping("/search/batch")
+    public ResponseEntity<List<RideSearchPage>> searchRideSchedulesBatch(@Validated @RequestBody BatchSearchRideScheduleDTO batchSearch) {
+        log.info("Received request to run a batch of {} ride schedule searches", batchSearch.getSearches().size());
+        List<RideSearchPage> searchPages = rideScheduleService.searchRideSchedulesWithDetails(batchSearch.getSearches());
+        return new ResponseEntity<>(searchPages, HttpStatus.OK);
     }
 }
\ No newline at end of file
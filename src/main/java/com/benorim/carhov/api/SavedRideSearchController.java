@@ -0,0 +1,76 @@
+package com.benorim.carhov.api;
+
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchResultDTO;
+import com.benorim.carhov.dto.savedSearch.CreateSavedRideSearchDTO;
+import com.benorim.carhov.dto.savedSearch.SavedRideSearchDTO;
+import com.benorim.carhov.entity.SavedRideSearch;
+import com.benorim.carhov.mapper.SavedRideSearchMapper;
+import com.benorim.carhov.service.SavedRideSearchService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * REST controller for saved ride searches. New and updated ride schedules are matched against saved searches,
+ * so passengers can read their matches instead of repeating the search.
+ */
+@RestController
+@RequestMapping("/api/saved-searches")
+@RequiredArgsConstructor
+@Slf4j
+public class SavedRideSearchController {
+
+    private final SavedRideSearchService savedRideSearchService;
+
+    @PostMapping
+    public ResponseEntity<SavedRideSearchDTO> createSavedRideSearch(@Validated @RequestBody CreateSavedRideSearchDTO createSavedRideSearchDTO) {
+        log.info("Received request to create saved ride search: {}", createSavedRideSearchDTO);
+        SavedRideSearch savedRideSearch = savedRideSearchService.createSavedRideSearch(createSavedRideSearchDTO);
+        return new ResponseEntity<>(SavedRideSearchMapper.toDTO(savedRideSearch), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/{savedRideSearchId}")
+    public ResponseEntity<SavedRideSearchDTO> getSavedRideSearch(@PathVariable Long savedRideSearchId) {
+        log.info("Received request to get saved ride search with ID: {}", savedRideSearchId);
+        return savedRideSearchService.findSavedRideSearchById(savedRideSearchId)
+                .map(savedRideSearch -> new ResponseEntity<>(SavedRideSearchMapper.toDTO(savedRideSearch), HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @GetMapping("/user/{userId}")
+    public ResponseEntity<List<SavedRideSearchDTO>> getSavedRideSearchesByUserId(@PathVariable Long userId) {
+        log.info("Received request to get saved ride searches for user with ID: {}", userId);
+        List<SavedRideSearchDTO> savedRideSearches = savedRideSearchService.findSavedRideSearchesByUserId(userId).stream()
+                .map(SavedRideSearchMapper::toDTO)
+                .toList();
+        return new ResponseEntity<>(savedRideSearches, HttpStatus.OK);
+    }
+
+    @GetMapping("/{savedRideSearchId}/matches")
+    public ResponseEntity<List<RideScheduleSearchResultDTO>> getMatches(@PathVariable Long savedRideSearchId) {
+        log.info("Received request to get matches of saved ride search with ID: {}", savedRideSearchId);
+        return savedRideSearchService.findMatches(savedRideSearchId)
+                .map(matches -> new ResponseEntity<>(matches.stream().map(SavedRideSearchMapper::toSearchResultDTO).toList(), HttpStatus.OK))
+                .orElse(new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @DeleteMapping("/{savedRideSearchId}")
+    public ResponseEntity<Void> deleteSavedRideSearch(@PathVariable Long savedRideSearchId) {
+        log.info("Received request to delete saved ride search with ID: {}", savedRideSearchId);
+        if (savedRideSearchService.deleteSavedRideSearch(savedRideSearchId)) {
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+}
@@ -0,0 +1,46 @@
+package com.benorim.carhov.aspect;
+
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries methods annotated with {@link RetryOnOptimisticLock} when a versioned entity they wrote was changed by
+ * someone else in the meantime. Waits a random time up to an exponentially growing bound between attempts, so
+ * the callers that collided do not collide again.
+ * <p>
+ * Ordered before the transaction interceptor, so every attempt runs in a transaction of its own.
+ */
+@Aspect
+@Component
+@Slf4j
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class OptimisticLockRetryAspect {
+
+    @Around("@annotation(retryOnOptimisticLock)")
+    public Object retry(ProceedingJoinPoint joinPoint, RetryOnOptimisticLock retryOnOptimisticLock) throws Throwable {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException | OptimisticLockException e) {
+                if (attempt >= retryOnOptimisticLock.maxAttempts()) {
+                    log.warn("Giving up on {} after {} attempts with concurrent changes",
+                            joinPoint.getSignature().toShortString(), attempt);
+                    throw e;
+                }
+                long bound = Math.min(retryOnOptimisticLock.backoffMs() << Math.min(attempt - 1, 20), retryOnOptimisticLock.maxBackoffMs());
+                log.info("Concurrent change in {}, retrying attempt {} of {}",
+                        joinPoint.getSignature().toShortString(), attempt + 1, retryOnOptimisticLock.maxAttempts());
+                Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+            }
+        }
+    }
+}
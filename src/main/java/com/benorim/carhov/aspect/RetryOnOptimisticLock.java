@@ -0,0 +1,31 @@
+package com.benorim.carhov.aspect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the method again when it fails because an entity it wrote was changed concurrently (see
+ * {@link OptimisticLockRetryAspect}). Each attempt runs in a new transaction, so the method reads the current
+ * state again. Only for methods that can safely be repeated from the start.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnOptimisticLock {
+
+    /**
+     * @return Number of attempts, including the first
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * @return Longest wait before the first retry in milliseconds; doubles for each further retry
+     */
+    long backoffMs() default 50;
+
+    /**
+     * @return Cap of the wait between attempts in milliseconds
+     */
+    long maxBackoffMs() default 500;
+}
@@ -5,6 +5,7 @@ import com.benorim.carhov.entity.Role;
 import com.benorim.carhov.enums.RoleType;
 import com.benorim.carhov.repository.CarHovUserRepository;
 import com.benorim.carhov.repository.RoleRepository;
+import com.benorim.carhov.service.RideSearchViewService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -23,6 +24,7 @@ public class DataInitializer {
     private final RoleRepository roleRepository;
     private final CarHovUserRepository carHovUserRepository;
     private final PasswordEncoder encoder;
+    private final RideSearchViewService rideSearchViewService;
 
     @Bean
     public CommandLineRunner initData() {
@@ -32,6 +34,11 @@ public class DataInitializer {
             createRoleIfNotExists(RoleType.ROLE_ADMIN.name());
             createRoleIfNotExists(RoleType.ROLE_SUPER_ADMIN.name());
             createSuperAdminUser();
+            // Fills the search read model when it is added to a database that already holds rides, or brings it
+            // up to date when rows fell behind their rides
+            if (rideSearchViewService.needsRebuild()) {
+                rideSearchViewService.rebuild();
+            }
             log.info("Data initialization completed.");
         };
     }
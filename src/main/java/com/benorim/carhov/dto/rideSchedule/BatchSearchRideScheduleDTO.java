@@ -0,0 +1,16 @@
+package com.benorim.carhov.dto.rideSchedule;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchSearchRideScheduleDTO {
+
+    @NotEmpty(message = "At least one search is required")
+    @Size(max = 20, message = "A batch must not contain more than 20 searches")
+    private List<@Valid SearchRideScheduleDTO> searches;
+}
@@ -0,0 +1,18 @@
+package com.benorim.carhov.dto.rideSchedule;
+
+import java.time.LocalTime;
+
+/**
+ * The columns of an available ride schedule needed by the in-memory search index, read with a constructor
+ * expression so that loading the index does not load the ride schedule entities.
+ */
+public record RideScheduleIndexRow(
+        Long id,
+        double startLatitude,
+        double startLongitude,
+        double endLatitude,
+        double endLongitude,
+        int daysMask,
+        LocalTime departureTime,
+        int availableSeats) {
+}
@@ -0,0 +1,12 @@
+package com.benorim.carhov.dto.rideSchedule;
+
+import java.util.List;
+
+/**
+ * One page of ride schedules in ID order.
+ *
+ * @param results The ride schedules on this page
+ * @param nextCursor Cursor for the next page, or null if this is the last page
+ */
+public record RideSchedulePage(List<RideScheduleDTO> results, String nextCursor) {
+}
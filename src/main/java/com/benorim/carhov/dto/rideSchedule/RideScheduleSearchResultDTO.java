@@ -6,6 +6,7 @@ import lombok.Data;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class RideScheduleSearchResultDTO {
@@ -23,6 +24,7 @@ public class RideScheduleSearchResultDTO {
     private Boolean available;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Map<DayOfWeek, Integer> remainingSeats; // Seats left on each day the ride runs, after bookings
     
     // Search result specific fields
     private Double startPointDistanceInMiles;
@@ -0,0 +1,25 @@
+package com.benorim.carhov.dto.rideSchedule;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * The columns of a ride schedule needed for a search result, read with a constructor expression so that
+ * search does not load the eager user, role and vehicle associations of every row.
+ */
+public record RideScheduleSearchRow(
+        Long id,
+        Long userId,
+        String userDisplayName,
+        Long vehicleId,
+        double startLatitude,
+        double startLongitude,
+        double endLatitude,
+        double endLongitude,
+        int daysMask,
+        LocalTime departureTime,
+        int availableSeats,
+        boolean available,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
@@ -1,9 +1,14 @@
 package com.benorim.carhov.dto.rideSchedule;
 
+import com.benorim.carhov.enums.DayOfWeek;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
+import java.time.LocalTime;
+import java.util.List;
+
 @Data
 public class SearchRideScheduleDTO {
     
@@ -22,4 +27,16 @@ public class SearchRideScheduleDTO {
     @NotNull(message = "Search radius in miles is required")
     @Positive(message = "Search radius must be positive")
     private Double radiusInMiles = 5.0; // Default 5 miles radius
+    
+    @Positive(message = "Limit must be positive")
+    @Max(value = 500, message = "Limit must not exceed 500")
+    private Integer limit = 50; // Default page size
+    
+    private String cursor; // Returned in the X-Next-Cursor header of the previous page
+
+    private List<DayOfWeek> days; // Only rides running on all of these days; any day when empty
+
+    private LocalTime departureAfter; // Earliest departure time, inclusive; wraps past midnight when after departureBefore
+
+    private LocalTime departureBefore; // Latest departure time, inclusive
 }
\ No newline at end of file
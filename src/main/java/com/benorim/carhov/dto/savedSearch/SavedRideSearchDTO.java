@@ -0,0 +1,17 @@
+package com.benorim.carhov.dto.savedSearch;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class SavedRideSearchDTO {
+    private Long id;
+    private Long userId;
+    private Double startLatitude;
+    private Double startLongitude;
+    private Double endLatitude;
+    private Double endLongitude;
+    private Double radiusInMiles;
+    private LocalDateTime createdAt;
+}
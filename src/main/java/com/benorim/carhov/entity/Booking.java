@@ -1,6 +1,8 @@
 package com.benorim.carhov.entity;
 
 import com.benorim.carhov.enums.BookingStatus;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.util.DayOfWeekMask;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -8,8 +10,11 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,11 +22,14 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_booking_ride_schedule_status", columnList = "ride_schedule_id, status"))
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder @ToString
 public class Booking {
     @Id
@@ -40,8 +48,10 @@ public class Booking {
     @Column(nullable = false)
     private int seatsBooked;
     
+    // Days booked, one bit per day (see DayOfWeekMask), so the seats of a day are summed with a bitwise AND.
+    // Databases that stored the days as a string are converted by db/upgrade/booking_booked_days_mask.sql
     @Column(nullable = false)
-    private String bookedDays;
+    private int bookedDaysMask;
     
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -58,4 +68,19 @@ public class Booking {
     @Setter(AccessLevel.NONE)
     @UpdateTimestamp
     private LocalDateTime updatedAt;
+
+    // Incremented on every update, so e.g. a rider cancelling while the driver accepts cannot both succeed
+    @Version
+    @Setter(AccessLevel.NONE)
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
+    public List<DayOfWeek> getBookedDayList() {
+        return DayOfWeekMask.toList(bookedDaysMask);
+    }
+
+    public void setBookedDayList(List<DayOfWeek> bookedDayList) {
+        this.bookedDaysMask = DayOfWeekMask.of(bookedDayList);
+    }
 }
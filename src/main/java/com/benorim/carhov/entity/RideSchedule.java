@@ -1,16 +1,15 @@
 package com.benorim.carhov.entity;
 
 import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.util.DayOfWeekMask;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.EnumType;
-import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
-import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -18,14 +17,13 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Entity
 @Getter @Setter @AllArgsConstructor @NoArgsConstructor @ToString @Builder
@@ -51,12 +49,10 @@ public class RideSchedule {
     @Column(nullable = false)
     private double endLongitude;
 
-    @Enumerated(EnumType.STRING)
-    @Transient // Do not persist this field; it's derived from `daysOfWeek`.
-    private List<DayOfWeek> dayList;
-
+    // Days the ride runs on, one bit per day (see DayOfWeekMask), so day filters are a bitwise AND.
+    // Databases that stored the days as a string are converted by db/upgrade/ride_schedule_days_mask.sql
     @Column(nullable = false)
-    private String daysOfWeek;
+    private int daysMask;
 
     private LocalTime departureTime;
 
@@ -77,19 +73,23 @@ public class RideSchedule {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
+    // Incremented on every update, so concurrent updates of the same ride fail instead of overwriting each other.
+    // Defaults to 0 so the column can be added to a table that already holds rides
+    @Version
+    @Setter(AccessLevel.NONE)
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long version;
+
     public List<DayOfWeek> getDayList() {
-        if (daysOfWeek == null || daysOfWeek.isEmpty()) {
-            return List.of();
-        }
-        return Arrays.stream(daysOfWeek.split(","))
-                .map(DayOfWeek::valueOf)
-                .collect(Collectors.toList());
+        return DayOfWeekMask.toList(daysMask);
     }
 
     public void setDayList(List<DayOfWeek> dayList) {
-        this.dayList = dayList;
-        this.daysOfWeek = dayList.stream()
-                .map(DayOfWeek::name)
-                .collect(Collectors.joining(","));
+        this.daysMask = DayOfWeekMask.of(dayList);
+    }
+
+    public boolean runsOn(DayOfWeek day) {
+        return DayOfWeekMask.contains(daysMask, day);
     }
 }
@@ -0,0 +1,143 @@
+package com.benorim.carhov.entity;
+
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.util.DayOfWeekMask;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Denormalized read model of a ride schedule holding exactly what a search result shows, including the driver
+ * name and the seats still free on each day. Kept up to date by {@code RideSearchViewService} whenever a ride
+ * schedule, its bookings or its driver change, so searches read one table without joins or entity hydration.
+ * Narrow searches are looked up by start cell; searches too wide to list their cells use the start and end point
+ * indexes for their bounding boxes.
+ */
+@Entity
+@Table(name = "ride_search_view", indexes = {
+        @Index(name = "idx_ride_search_view_start_cell", columnList = "startCell"),
+        @Index(name = "idx_ride_search_view_start_point", columnList = "startLatitude, startLongitude"),
+        @Index(name = "idx_ride_search_view_end_point", columnList = "endLatitude, endLongitude"),
+        @Index(name = "idx_ride_search_view_user", columnList = "userId")
+})
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor @ToString @Builder
+public class RideSearchView {
+    // Same as the ID of the ride schedule
+    @Id
+    @Column(nullable = false)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    private String userDisplayName;
+
+    private Long vehicleId;
+
+    @Column(nullable = false)
+    private double startLatitude;
+
+    @Column(nullable = false)
+    private double startLongitude;
+
+    @Column(nullable = false)
+    private double endLatitude;
+
+    @Column(nullable = false)
+    private double endLongitude;
+
+    // Grid cell of the start point (see GeoGrid), so nearby rides can be looked up by cell equality
+    @Column(nullable = false)
+    private long startCell;
+
+    @Column(nullable = false)
+    private int daysMask;
+
+    private LocalTime departureTime;
+
+    @Column(nullable = false)
+    private int availableSeats;
+
+    @Column(nullable = false)
+    private boolean available;
+
+    // Seats left on each day after pending and accepted bookings. Bookings add and subtract their seats in place,
+    // so a count goes below zero while a ride has fewer seats than it has booked; getRemainingSeats reads it as zero
+    @Column(nullable = false)
+    private int remainingSeatsMonday;
+
+    @Column(nullable = false)
+    private int remainingSeatsTuesday;
+
+    @Column(nullable = false)
+    private int remainingSeatsWednesday;
+
+    @Column(nullable = false)
+    private int remainingSeatsThursday;
+
+    @Column(nullable = false)
+    private int remainingSeatsFriday;
+
+    @Column(nullable = false)
+    private int remainingSeatsSaturday;
+
+    @Column(nullable = false)
+    private int remainingSeatsSunday;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * @return Seats left on the day, zero if the day is overbooked
+     */
+    public int getRemainingSeats(DayOfWeek day) {
+        return Math.max(getStoredRemainingSeats(day), 0);
+    }
+
+    private int getStoredRemainingSeats(DayOfWeek day) {
+        return switch (day) {
+            case MONDAY -> remainingSeatsMonday;
+            case TUESDAY -> remainingSeatsTuesday;
+            case WEDNESDAY -> remainingSeatsWednesday;
+            case THURSDAY -> remainingSeatsThursday;
+            case FRIDAY -> remainingSeatsFriday;
+            case SATURDAY -> remainingSeatsSaturday;
+            case SUNDAY -> remainingSeatsSunday;
+        };
+    }
+
+    /**
+     * @return Seats left on each day the ride runs
+     */
+    public Map<DayOfWeek, Integer> getRemainingSeatsByDay() {
+        Map<DayOfWeek, Integer> remainingSeats = new EnumMap<>(DayOfWeek.class);
+        DayOfWeekMask.toList(daysMask).forEach(day -> remainingSeats.put(day, getRemainingSeats(day)));
+        return remainingSeats;
+    }
+
+    public void setRemainingSeats(DayOfWeek day, int remainingSeats) {
+        switch (day) {
+            case MONDAY -> remainingSeatsMonday = remainingSeats;
+            case TUESDAY -> remainingSeatsTuesday = remainingSeats;
+            case WEDNESDAY -> remainingSeatsWednesday = remainingSeats;
+            case THURSDAY -> remainingSeatsThursday = remainingSeats;
+            case FRIDAY -> remainingSeatsFriday = remainingSeats;
+            case SATURDAY -> remainingSeatsSaturday = remainingSeats;
+            case SUNDAY -> remainingSeatsSunday = remainingSeats;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.benorim.carhov.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A ride search a passenger wants to keep running. New and updated ride schedules are matched against it.
+ */
+@Entity
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor @ToString @Builder
+public class SavedRideSearch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(nullable = false)
+    private CarHovUser user;
+
+    @Column(nullable = false)
+    private double startLatitude;
+
+    @Column(nullable = false)
+    private double startLongitude;
+
+    @Column(nullable = false)
+    private double endLatitude;
+
+    @Column(nullable = false)
+    private double endLongitude;
+
+    @Column(nullable = false)
+    private double radiusInMiles;
+
+    @Setter(AccessLevel.NONE)
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
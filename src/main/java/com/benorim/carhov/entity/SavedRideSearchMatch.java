@@ -0,0 +1,54 @@
+package com.benorim.carhov.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A ride schedule that matched a saved search when it was created or updated.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_saved_ride_search_match",
+        columnNames = {"saved_ride_search_id", "ride_schedule_id"}))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor @ToString @Builder
+public class SavedRideSearchMatch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(nullable = false)
+    private SavedRideSearch savedRideSearch;
+
+    @ManyToOne
+    @JoinColumn(nullable = false)
+    private RideSchedule rideSchedule;
+
+    @Column(nullable = false)
+    private double startDistanceInMiles;
+
+    @Column(nullable = false)
+    private double endDistanceInMiles;
+
+    @Setter(AccessLevel.NONE)
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime matchedAt;
+}
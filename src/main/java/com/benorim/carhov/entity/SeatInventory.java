@@ -0,0 +1,48 @@
+package com.benorim.carhov.entity;
+
+import com.benorim.carhov.enums.DayOfWeek;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Seats still free on one day of a ride schedule. Bookings take seats with a conditional update of this row
+ * rather than summing the bookings of the day, so two bookers can never both take the last seat.
+ * A row is created by the first booking of the day, from the bookings that already exist.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_seat_inventory_ride_schedule_day",
+        columnNames = {"ride_schedule_id", "day_of_week"}))
+@Getter @Setter @AllArgsConstructor @NoArgsConstructor @ToString @Builder
+public class SeatInventory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(nullable = false)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(nullable = false)
+    private RideSchedule rideSchedule;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DayOfWeek dayOfWeek;
+
+    // Negative when the seats of the ride were reduced below the seats already booked
+    @Column(nullable = false)
+    private int remainingSeats;
+}
@@ -4,5 +4,12 @@ public enum BookingStatus {
     PENDING,
     ACCEPTED,
     REJECTED,
-    CANCELLED
+    CANCELLED;
+
+    /**
+     * @return true if a booking in this status takes its seats from the ride
+     */
+    public boolean holdsSeats() {
+        return this == PENDING || this == ACCEPTED;
+    }
 }
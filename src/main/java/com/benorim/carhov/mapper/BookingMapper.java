@@ -6,9 +6,7 @@ import com.benorim.carhov.entity.RideSchedule;
 import com.benorim.carhov.enums.DayOfWeek;
 
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Mapper for converting between Booking entity and BookingDTO
@@ -42,9 +40,6 @@ public class BookingMapper {
                 ? rideSchedule.getDepartureTime().format(TIME_FORMATTER) 
                 : "";
         
-        // Convert bookedDays string to enum list
-        List<DayOfWeek> bookedDays = convertStringToDayList(booking.getBookedDays());
-        
         // Get available days from the ride schedule
         List<DayOfWeek> availableDays = rideSchedule.getDayList();
         
@@ -53,7 +48,7 @@ public class BookingMapper {
                 .rideScheduleId(booking.getRideSchedule().getId())
                 .userId(booking.getCarHovUser().getId())
                 .seatsBooked(booking.getSeatsBooked())
-                .bookedDays(bookedDays)
+                .bookedDays(booking.getBookedDayList())
                 .status(booking.getStatus())
                 .statusUpdateDate(booking.getStatusUpdateDate())
                 .createdAt(booking.getCreatedAt())
@@ -65,34 +60,4 @@ public class BookingMapper {
                 .endLocation(endLocation)
                 .build();
     }
-    
-    /**
-     * Convert a list of DayOfWeek enums to a comma-separated string
-     *
-     * @param days List of DayOfWeek enums
-     * @return Comma-separated string of day names
-     */
-    public static String convertDayListToString(List<DayOfWeek> days) {
-        if (days == null || days.isEmpty()) {
-            return "";
-        }
-        return days.stream()
-                .map(DayOfWeek::name)
-                .collect(Collectors.joining(","));
-    }
-    
-    /**
-     * Convert a comma-separated string of day names to a list of DayOfWeek enums
-     *
-     * @param daysString Comma-separated string of day names
-     * @return List of DayOfWeek enums
-     */
-    public static List<DayOfWeek> convertStringToDayList(String daysString) {
-        if (daysString == null || daysString.isEmpty()) {
-            return List.of();
-        }
-        return Arrays.stream(daysString.split(","))
-                .map(DayOfWeek::valueOf)
-                .collect(Collectors.toList());
-    }
 }
\ No newline at end of file
@@ -3,13 +3,19 @@ package com.benorim.carhov.mapper;
 import com.benorim.carhov.dto.rideSchedule.CreateRideScheduleDTO;
 import com.benorim.carhov.dto.rideSchedule.RideScheduleDTO;
 import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchResultDTO;
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchRow;
 import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
 import com.benorim.carhov.dto.rideSchedule.UpdateRideScheduleDTO;
 import com.benorim.carhov.entity.CarHovUser;
 import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.RideSearchView;
 import com.benorim.carhov.entity.Vehicle;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.util.DayOfWeekMask;
 import com.benorim.carhov.util.GeoUtils;
 
+import java.util.List;
+
 public class RideScheduleMapper {
 
     public static RideSchedule toEntity(CreateRideScheduleDTO dto, CarHovUser user, Vehicle vehicle) {
@@ -81,6 +87,33 @@ public class RideScheduleMapper {
         return rideScheduleDTO;
     }
 
+    /**
+     * Convert a search row to a RideScheduleDTO, without the user or vehicle entities.
+     *
+     * @param row The columns of the ride schedule
+     * @return RideScheduleDTO
+     */
+    public static RideScheduleDTO toDTO(RideScheduleSearchRow row) {
+        RideScheduleDTO rideScheduleDTO = new RideScheduleDTO();
+
+        rideScheduleDTO.setId(row.id());
+        rideScheduleDTO.setUserId(row.userId());
+        rideScheduleDTO.setVehicleId(row.vehicleId());
+        rideScheduleDTO.setUserDisplayName(row.userDisplayName());
+        rideScheduleDTO.setStartLatitude(row.startLatitude());
+        rideScheduleDTO.setStartLongitude(row.startLongitude());
+        rideScheduleDTO.setEndLatitude(row.endLatitude());
+        rideScheduleDTO.setEndLongitude(row.endLongitude());
+        rideScheduleDTO.setDayList(DayOfWeekMask.toList(row.daysMask()));
+        rideScheduleDTO.setDepartureTime(row.departureTime());
+        rideScheduleDTO.setAvailableSeats(row.availableSeats());
+        rideScheduleDTO.setAvailable(row.available());
+        rideScheduleDTO.setCreatedAt(row.createdAt());
+        rideScheduleDTO.setUpdatedAt(row.updatedAt());
+
+        return rideScheduleDTO;
+    }
+
     /**
      * Convert a RideSchedule to a RideScheduleSearchResultDTO including distance information
      *
@@ -89,6 +122,28 @@ public class RideScheduleMapper {
      * @return RideScheduleSearchResultDTO with distance information
      */
     public static RideScheduleSearchResultDTO toSearchResultDTO(RideSchedule rideSchedule, SearchRideScheduleDTO searchCriteria) {
+        double startPointDistance = GeoUtils.calculateDistanceInMiles(
+                searchCriteria.getStartLatitude(), searchCriteria.getStartLongitude(),
+                rideSchedule.getStartLatitude(), rideSchedule.getStartLongitude()
+        );
+        
+        double endPointDistance = GeoUtils.calculateDistanceInMiles(
+                searchCriteria.getEndLatitude(), searchCriteria.getEndLongitude(),
+                rideSchedule.getEndLatitude(), rideSchedule.getEndLongitude()
+        );
+        
+        return toSearchResultDTO(rideSchedule, startPointDistance, endPointDistance);
+    }
+
+    /**
+     * Convert a RideSchedule to a RideScheduleSearchResultDTO using distances already computed during the search
+     *
+     * @param rideSchedule The ride schedule entity
+     * @param startPointDistance Distance in miles between the search start point and the ride start point
+     * @param endPointDistance Distance in miles between the search end point and the ride end point
+     * @return RideScheduleSearchResultDTO with distance information
+     */
+    public static RideScheduleSearchResultDTO toSearchResultDTO(RideSchedule rideSchedule, double startPointDistance, double endPointDistance) {
         RideScheduleSearchResultDTO rideScheduleSearchResultDTO = new RideScheduleSearchResultDTO();
 
         rideScheduleSearchResultDTO.setId(rideSchedule.getId());
@@ -106,21 +161,48 @@ public class RideScheduleMapper {
         rideScheduleSearchResultDTO.setCreatedAt(rideSchedule.getCreatedAt());
         rideScheduleSearchResultDTO.setUpdatedAt(rideSchedule.getUpdatedAt());
         
-        // Calculate and set distance information
-        double startPointDistance = GeoUtils.calculateDistanceInMiles(
-                searchCriteria.getStartLatitude(), searchCriteria.getStartLongitude(),
-                rideSchedule.getStartLatitude(), rideSchedule.getStartLongitude()
-        );
-        
-        double endPointDistance = GeoUtils.calculateDistanceInMiles(
-                searchCriteria.getEndLatitude(), searchCriteria.getEndLongitude(),
-                rideSchedule.getEndLatitude(), rideSchedule.getEndLongitude()
-        );
-        
         rideScheduleSearchResultDTO.setStartPointDistanceInMiles(startPointDistance);
         rideScheduleSearchResultDTO.setEndPointDistanceInMiles(endPointDistance);
         rideScheduleSearchResultDTO.setTotalDistanceInMiles(startPointDistance + endPointDistance);
         
         return rideScheduleSearchResultDTO;
     }
-}
\ No newline at end of file
+
+    /**
+     * Convert a ride from the search read model to a RideScheduleSearchResultDTO using distances already
+     * computed during the search. Unlike the entity overload this needs no user or vehicle entities, and the
+     * seats left on each day the ride runs are included.
+     *
+     * @param view The search read model of the ride schedule
+     * @param startPointDistance Distance in miles between the search start point and the ride start point
+     * @param endPointDistance Distance in miles between the search end point and the ride end point
+     * @return RideScheduleSearchResultDTO with distance information
+     */
+    public static RideScheduleSearchResultDTO toSearchResultDTO(RideSearchView view, double startPointDistance, double endPointDistance) {
+        RideScheduleSearchResultDTO rideScheduleSearchResultDTO = new RideScheduleSearchResultDTO();
+
+        rideScheduleSearchResultDTO.setId(view.getId());
+        rideScheduleSearchResultDTO.setUserId(view.getUserId());
+        rideScheduleSearchResultDTO.setVehicleId(view.getVehicleId());
+        rideScheduleSearchResultDTO.setUserDisplayName(view.getUserDisplayName());
+        rideScheduleSearchResultDTO.setStartLatitude(view.getStartLatitude());
+        rideScheduleSearchResultDTO.setStartLongitude(view.getStartLongitude());
+        rideScheduleSearchResultDTO.setEndLatitude(view.getEndLatitude());
+        rideScheduleSearchResultDTO.setEndLongitude(view.getEndLongitude());
+        List<DayOfWeek> dayList = DayOfWeekMask.toList(view.getDaysMask());
+        rideScheduleSearchResultDTO.setDayList(dayList);
+        rideScheduleSearchResultDTO.setDepartureTime(view.getDepartureTime());
+        rideScheduleSearchResultDTO.setAvailableSeats(view.getAvailableSeats());
+        rideScheduleSearchResultDTO.setAvailable(view.isAvailable());
+        rideScheduleSearchResultDTO.setCreatedAt(view.getCreatedAt());
+        rideScheduleSearchResultDTO.setUpdatedAt(view.getUpdatedAt());
+
+        rideScheduleSearchResultDTO.setRemainingSeats(view.getRemainingSeatsByDay());
+
+        rideScheduleSearchResultDTO.setStartPointDistanceInMiles(startPointDistance);
+        rideScheduleSearchResultDTO.setEndPointDistanceInMiles(endPointDistance);
+        rideScheduleSearchResultDTO.setTotalDistanceInMiles(startPointDistance + endPointDistance);
+
+        return rideScheduleSearchResultDTO;
+    }
+}
@@ -0,0 +1,50 @@
+package com.benorim.carhov.mapper;
+
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchResultDTO;
+import com.benorim.carhov.dto.savedSearch.CreateSavedRideSearchDTO;
+import com.benorim.carhov.dto.savedSearch.SavedRideSearchDTO;
+import com.benorim.carhov.entity.CarHovUser;
+import com.benorim.carhov.entity.SavedRideSearch;
+import com.benorim.carhov.entity.SavedRideSearchMatch;
+
+public class SavedRideSearchMapper {
+
+    public static SavedRideSearch toEntity(CreateSavedRideSearchDTO dto, CarHovUser user) {
+        SavedRideSearch savedRideSearch = new SavedRideSearch();
+
+        savedRideSearch.setUser(user);
+        savedRideSearch.setStartLatitude(dto.getStartLatitude());
+        savedRideSearch.setStartLongitude(dto.getStartLongitude());
+        savedRideSearch.setEndLatitude(dto.getEndLatitude());
+        savedRideSearch.setEndLongitude(dto.getEndLongitude());
+        savedRideSearch.setRadiusInMiles(dto.getRadiusInMiles());
+
+        return savedRideSearch;
+    }
+
+    public static SavedRideSearchDTO toDTO(SavedRideSearch savedRideSearch) {
+        SavedRideSearchDTO savedRideSearchDTO = new SavedRideSearchDTO();
+
+        savedRideSearchDTO.setId(savedRideSearch.getId());
+        savedRideSearchDTO.setUserId(savedRideSearch.getUser().getId());
+        savedRideSearchDTO.setStartLatitude(savedRideSearch.getStartLatitude());
+        savedRideSearchDTO.setStartLongitude(savedRideSearch.getStartLongitude());
+        savedRideSearchDTO.setEndLatitude(savedRideSearch.getEndLatitude());
+        savedRideSearchDTO.setEndLongitude(savedRideSearch.getEndLongitude());
+        savedRideSearchDTO.setRadiusInMiles(savedRideSearch.getRadiusInMiles());
+        savedRideSearchDTO.setCreatedAt(savedRideSearch.getCreatedAt());
+
+        return savedRideSearchDTO;
+    }
+
+    /**
+     * Convert a saved search match to a search result, using the distances recorded when the ride matched
+     *
+     * @param match The saved search match
+     * @return RideScheduleSearchResultDTO with distance information
+     */
+    public static RideScheduleSearchResultDTO toSearchResultDTO(SavedRideSearchMatch match) {
+        return RideScheduleMapper.toSearchResultDTO(match.getRideSchedule(),
+                match.getStartDistanceInMiles(), match.getEndDistanceInMiles());
+    }
+}
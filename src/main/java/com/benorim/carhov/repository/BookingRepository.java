@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -25,6 +26,24 @@ public interface BookingRepository extends ListCrudRepository<Booking, Long> {
      * @return List of bookings with the given status for the given ride schedule
      */
     List<Booking> findByRideScheduleIdAndStatus(Long rideScheduleId, BookingStatus status);
+
+    /**
+     * Find bookings by ride schedule ID with any of several statuses
+     *
+     * @param rideScheduleId ID of the ride schedule
+     * @param statuses Statuses of the bookings
+     * @return List of bookings with one of the given statuses for the given ride schedule
+     */
+    List<Booking> findByRideScheduleIdAndStatusIn(Long rideScheduleId, Collection<BookingStatus> statuses);
+
+    /**
+     * Find bookings of several ride schedules with any of several statuses
+     *
+     * @param rideScheduleIds IDs of the ride schedules
+     * @param statuses Statuses of the bookings
+     * @return List of bookings with one of the given statuses for the given ride schedules
+     */
+    List<Booking> findByRideScheduleIdInAndStatusIn(Collection<Long> rideScheduleIds, Collection<BookingStatus> statuses);
     
     /**
      * Find bookings by user ID and status
@@ -41,16 +60,17 @@ public interface BookingRepository extends ListCrudRepository<Booking, Long> {
      * @param rideScheduleId ID of the ride schedule
      * @return Total number of seats booked
      */
-    @Query("SELECT SUM(b.seatsBooked) FROM Booking b WHERE b.rideSchedule.id = :rideScheduleId AND (b.status = 'ACCEPTED' OR b.status = 'PENDING')")
+    @Query("SELECT SUM(b.seatsBooked) FROM Booking b WHERE b.rideSchedule.id = :rideScheduleId AND b.status IN ('ACCEPTED', 'PENDING')")
     Integer sumSeatsBookedByRideScheduleId(Long rideScheduleId);
     
     /**
      * Sum the total number of seats booked for a specific ride schedule on a specific day
      * 
      * @param rideScheduleId ID of the ride schedule
-     * @param day The day of the week (as a string)
+     * @param dayBit The bit of the day of the week, see {@link com.benorim.carhov.util.DayOfWeekMask#bit}
      * @return Total number of seats booked for that day
      */
-    @Query("SELECT SUM(b.seatsBooked) FROM Booking b WHERE b.rideSchedule.id = :rideScheduleId AND b.bookedDays LIKE CONCAT('%', :day, '%') AND (b.status = 'ACCEPTED' OR b.status = 'PENDING')")
-    Integer sumSeatsBookedByRideScheduleIdAndDay(Long rideScheduleId, String day);
+    @Query("SELECT SUM(b.seatsBooked) FROM Booking b WHERE b.rideSchedule.id = :rideScheduleId AND b.status IN ('ACCEPTED', 'PENDING') " +
+            "AND bitand(b.bookedDaysMask, :dayBit) <> 0")
+    Integer sumSeatsBookedByRideScheduleIdAndDay(Long rideScheduleId, int dayBit);
 }
@@ -1,13 +1,33 @@
 package com.benorim.carhov.repository;
 
+import com.benorim.carhov.dto.rideSchedule.RideScheduleIndexRow;
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchRow;
 import com.benorim.carhov.entity.RideSchedule;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface RideScheduleRepository extends ListCrudRepository<RideSchedule, Long> {
+
+    String SEARCH_ROW_SELECT = "SELECT new com.benorim.carhov.dto.rideSchedule.RideScheduleSearchRow(" +
+            "r.id, u.id, u.displayName, v.id, r.startLatitude, r.startLongitude, r.endLatitude, r.endLongitude, " +
+            "r.daysMask, r.departureTime, r.availableSeats, r.available, r.createdAt, r.updatedAt) " +
+            "FROM RideSchedule r JOIN r.user u LEFT JOIN r.vehicle v ";
+
+    String INDEX_ROW_SELECT = "SELECT new com.benorim.carhov.dto.rideSchedule.RideScheduleIndexRow(" +
+            "r.id, r.startLatitude, r.startLongitude, r.endLatitude, r.endLongitude, r.daysMask, r.departureTime, r.availableSeats) " +
+            "FROM RideSchedule r ";
     
     /**
      * Find ride schedules by user ID
@@ -17,8 +37,87 @@ public interface RideScheduleRepository extends ListCrudRepository<RideSchedule,
     List<RideSchedule> findByUserId(Long userId);
     
     /**
-     * Find all ride schedules that are available
-     * @return List of available ride schedules
+     * Save a ride schedule and write it to the database right away, so a concurrent change is detected by the
+     * version check at this point rather than at commit
+     * @param rideSchedule The ride schedule to save
+     * @return The saved ride schedule
+     */
+    <S extends RideSchedule> S saveAndFlush(S rideSchedule);
+
+    /**
+     * Find a ride schedule and lock its row until the end of the transaction. Unlike a JPA pessimistic write lock
+     * (FOR UPDATE), the lock does not block bookings being inserted for the ride, which hold seat inventory rows
+     * and only need the key of the ride row to stay
+     * @param id The ID of the ride schedule
+     * @return The ride schedule, if found
+     */
+    @Query(value = "SELECT * FROM ride_schedule WHERE id = :id FOR NO KEY UPDATE", nativeQuery = true)
+    Optional<RideSchedule> findByIdForUpdate(Long id);
+
+    /**
+     * Lock the row of a ride schedule like {@link #findByIdForUpdate} and read its seats from the locked row,
+     * rather than from a ride schedule the persistence context loaded before the lock
+     * @param id The ID of the ride schedule
+     * @return The seats of the ride schedule, if found
+     */
+    @Query(value = "SELECT available_seats FROM ride_schedule WHERE id = :id FOR NO KEY UPDATE", nativeQuery = true)
+    Optional<Integer> lockAvailableSeats(Long id);
+
+
+    /**
+     * Read the searchable fields of all available ride schedules, without loading the entities, to build the search index
+     * @return Searchable fields of the available ride schedules
+     */
+    @Query(INDEX_ROW_SELECT + "WHERE r.available = true")
+    List<RideScheduleIndexRow> findAvailableCoordinates();
+
+    /**
+     * Read the result columns of ride schedules in ID order, starting after a given ID, for keyset iteration
+     * @param afterId Only ride schedules with a greater ID are read
+     * @param limit Maximum number of rows to read
+     * @return Result columns of the ride schedules
+     */
+    @Query(SEARCH_ROW_SELECT + "WHERE r.id > :afterId ORDER BY r.id")
+    List<RideScheduleSearchRow> findSearchRowsByIdGreaterThan(Long afterId, Limit limit);
+
+    /**
+     * Find ride schedules with their drivers and vehicles in ID order, starting after a given ID, for keyset iteration
+     * @param afterId Only ride schedules with a greater ID are read
+     * @param limit Maximum number of ride schedules to read
+     * @return The ride schedules
+     */
+    @Query("SELECT r FROM RideSchedule r JOIN FETCH r.user LEFT JOIN FETCH r.vehicle WHERE r.id > :afterId ORDER BY r.id")
+    List<RideSchedule> findWithUserByIdGreaterThan(Long afterId, Limit limit);
+
+    /**
+     * Read the result columns of every ride schedule in ID order through a server-side cursor, for full exports.
+     * The stream must be consumed and closed inside a transaction; rows are fetched from the database in batches.
+     * @return Result columns of all ride schedules
+     */
+    @Query(SEARCH_ROW_SELECT + "ORDER BY r.id")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<RideScheduleSearchRow> streamAllSearchRows();
+
+    /**
+     * Read the searchable fields of available ride schedules updated after a point in time, to replay changes
+     * made since a saved index snapshot
+     * @param since Only rows updated after this are read
+     * @return Searchable fields of the updated available ride schedules
+     */
+    @Query(INDEX_ROW_SELECT + "WHERE r.available = true AND r.updatedAt > :since")
+    List<RideScheduleIndexRow> findAvailableCoordinatesUpdatedAfter(LocalDateTime since);
+
+    /**
+     * Read the searchable fields of the given available ride schedules
+     * @param ids IDs of the ride schedules
+     * @return Searchable fields of those ride schedules that are available
+     */
+    @Query(INDEX_ROW_SELECT + "WHERE r.available = true AND r.id IN :ids")
+    List<RideScheduleIndexRow> findAvailableCoordinatesByIdIn(Collection<Long> ids);
+
+    /**
+     * @return IDs of all available ride schedules
      */
-    List<RideSchedule> findByAvailableTrue();
+    @Query("SELECT r.id FROM RideSchedule r WHERE r.available = true")
+    List<Long> findAvailableIds();
 }
@@ -0,0 +1,123 @@
+package com.benorim.carhov.repository;
+
+import com.benorim.carhov.entity.RideSearchView;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RideSearchViewRepository extends ListCrudRepository<RideSearchView, Long> {
+
+    String AVAILABLE_WITHIN_BOUNDING_BOXES = "v.available = true " +
+            "AND v.startLatitude BETWEEN :minStartLatitude AND :maxStartLatitude " +
+            "AND v.startLongitude BETWEEN :minStartLongitude AND :maxStartLongitude " +
+            "AND v.endLatitude BETWEEN :minEndLatitude AND :maxEndLatitude " +
+            "AND v.endLongitude BETWEEN :minEndLongitude AND :maxEndLongitude " +
+            "AND bitand(v.daysMask, :daysMask) = :daysMask " +
+            "AND (:anyDepartureTime = true " +
+            "OR (:wrapsMidnight = false AND v.departureTime BETWEEN :departureFrom AND :departureTo) " +
+            "OR (:wrapsMidnight = true AND (v.departureTime >= :departureFrom OR v.departureTime <= :departureTo)))";
+
+    /**
+     * Find the read model of a ride schedule and lock its row until the end of the transaction
+     * @param id The ID of the ride schedule
+     * @return The read model, if written yet
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM RideSearchView v WHERE v.id = :id")
+    Optional<RideSearchView> findByIdForUpdate(Long id);
+
+    /**
+     * Find the read model of several ride schedules and lock their rows, in ID order, until the end of the transaction
+     * @param ids IDs of the ride schedules
+     * @return The read models written yet
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM RideSearchView v WHERE v.id IN :ids ORDER BY v.id")
+    List<RideSearchView> findByIdInForUpdate(Collection<Long> ids);
+
+    /**
+     * Add seats to the seats left on each day of a days mask, in place, so concurrent bookings of the ride do not
+     * overwrite each other's change
+     * @param id The ID of the ride schedule
+     * @param daysMask The days to change
+     * @param seats Seats to add, negative to take them
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RideSearchView v SET " +
+            "v.remainingSeatsMonday = v.remainingSeatsMonday + CASE WHEN bitand(:daysMask, 1) <> 0 THEN :seats ELSE 0 END, " +
+            "v.remainingSeatsTuesday = v.remainingSeatsTuesday + CASE WHEN bitand(:daysMask, 2) <> 0 THEN :seats ELSE 0 END, " +
+            "v.remainingSeatsWednesday = v.remainingSeatsWednesday + CASE WHEN bitand(:daysMask, 4) <> 0 THEN :seats ELSE 0 END, " +
+            "v.remainingSeatsThursday = v.remainingSeatsThursday + CASE WHEN bitand(:daysMask, 8) <> 0 THEN :seats ELSE 0 END, " +
+            "v.remainingSeatsFriday = v.remainingSeatsFriday + CASE WHEN bitand(:daysMask, 16) <> 0 THEN :seats ELSE 0 END, " +
+            "v.remainingSeatsSaturday = v.remainingSeatsSaturday + CASE WHEN bitand(:daysMask, 32) <> 0 THEN :seats ELSE 0 END, " +
+            "v.remainingSeatsSunday = v.remainingSeatsSunday + CASE WHEN bitand(:daysMask, 64) <> 0 THEN :seats ELSE 0 END " +
+            "WHERE v.id = :id")
+    void addRemainingSeats(Long id, int daysMask, int seats);
+
+    /**
+     * Count the ride schedules that have no read model, or one written before the ride schedule last changed
+     * @return Number of ride schedules whose read model is missing or out of date
+     */
+    @Query("SELECT COUNT(r) FROM RideSchedule r WHERE NOT EXISTS (SELECT v.id FROM RideSearchView v WHERE v.id = r.id " +
+            "AND v.availableSeats = r.availableSeats AND v.daysMask = r.daysMask AND v.available = r.available " +
+            "AND (v.updatedAt = r.updatedAt OR (v.updatedAt IS NULL AND r.updatedAt IS NULL)))")
+    long countRideSchedulesWithoutCurrentView();
+
+    /**
+     * Delete the read model of ride schedules that no longer exist
+     * @return Number of rows deleted
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RideSearchView v WHERE NOT EXISTS (SELECT r.id FROM RideSchedule r WHERE r.id = v.id)")
+    int deleteWithoutRideSchedule();
+
+    /**
+     * Find available rides whose start point lies in one box and whose end point lies in another,
+     * that run on every day of a days mask and that depart inside a time window.
+     * Used as a coarse prefilter for radius searches; callers still need an exact distance check.
+     *
+     * @param anyDepartureTime true to ignore the departure window
+     * @param wrapsMidnight true if the window runs from {@code departureFrom} past midnight to {@code departureTo}
+     * @return Available rides inside both boxes
+     */
+    @Query("SELECT v FROM RideSearchView v WHERE " + AVAILABLE_WITHIN_BOUNDING_BOXES)
+    List<RideSearchView> findAvailableWithinBoundingBoxes(
+            double minStartLatitude, double maxStartLatitude, double minStartLongitude, double maxStartLongitude,
+            double minEndLatitude, double maxEndLatitude, double minEndLongitude, double maxEndLongitude, int daysMask,
+            boolean anyDepartureTime, boolean wrapsMidnight, LocalTime departureFrom, LocalTime departureTo);
+
+    /**
+     * Same as {@link #findAvailableWithinBoundingBoxes}, for searches small enough to list the grid cells their
+     * start circle covers, so the lookup can use the start cell index.
+     *
+     * @param startCells Grid cells covering the start circle of the search
+     * @return Available rides starting in one of the cells and inside both boxes
+     */
+    @Query("SELECT v FROM RideSearchView v WHERE v.startCell IN :startCells AND " + AVAILABLE_WITHIN_BOUNDING_BOXES)
+    List<RideSearchView> findAvailableInStartCellsWithinBoundingBoxes(Collection<Long> startCells,
+            double minStartLatitude, double maxStartLatitude, double minStartLongitude, double maxStartLongitude,
+            double minEndLatitude, double maxEndLatitude, double minEndLongitude, double maxEndLongitude, int daysMask,
+            boolean anyDepartureTime, boolean wrapsMidnight, LocalTime departureFrom, LocalTime departureTo);
+
+    /**
+     * Copy a new display name of a driver to all of their rides
+     * @param userId The ID of the driver
+     * @param userDisplayName The new display name
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RideSearchView v SET v.userDisplayName = :userDisplayName WHERE v.userId = :userId")
+    void updateUserDisplayName(Long userId, String userDisplayName);
+}
@@ -0,0 +1,39 @@
+package com.benorim.carhov.repository;
+
+import com.benorim.carhov.entity.SavedRideSearchMatch;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface SavedRideSearchMatchRepository extends ListCrudRepository<SavedRideSearchMatch, Long> {
+
+    /**
+     * Find the matches of a saved search, newest first
+     * @param savedRideSearchId The ID of the saved search
+     * @return List of ride schedules that matched the saved search
+     */
+    List<SavedRideSearchMatch> findBySavedRideSearchIdOrderByMatchedAtDesc(Long savedRideSearchId);
+
+    /**
+     * Find the matches recorded for a ride schedule
+     * @param rideScheduleId The ID of the ride schedule
+     * @return The matches of the ride schedule with their saved searches
+     */
+    @Query("SELECT m FROM SavedRideSearchMatch m JOIN FETCH m.savedRideSearch WHERE m.rideSchedule.id = :rideScheduleId")
+    List<SavedRideSearchMatch> findByRideScheduleId(Long rideScheduleId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SavedRideSearchMatch m WHERE m.rideSchedule.id = :rideScheduleId")
+    void deleteByRideScheduleId(Long rideScheduleId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SavedRideSearchMatch m WHERE m.savedRideSearch.id = :savedRideSearchId")
+    void deleteBySavedRideSearchId(Long savedRideSearchId);
+}
@@ -0,0 +1,18 @@
+package com.benorim.carhov.repository;
+
+import com.benorim.carhov.entity.SavedRideSearch;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SavedRideSearchRepository extends ListCrudRepository<SavedRideSearch, Long> {
+
+    /**
+     * Find saved searches by user ID
+     * @param userId The ID of the user who saved the searches
+     * @return List of searches saved by the user
+     */
+    List<SavedRideSearch> findByUserId(Long userId);
+}
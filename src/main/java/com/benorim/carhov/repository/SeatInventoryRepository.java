@@ -0,0 +1,61 @@
+package com.benorim.carhov.repository;
+
+import com.benorim.carhov.entity.SeatInventory;
+import com.benorim.carhov.enums.DayOfWeek;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface SeatInventoryRepository extends ListCrudRepository<SeatInventory, Long> {
+
+    /**
+     * @param rideScheduleId The ID of the ride schedule
+     * @return The days of the ride schedule that have an inventory
+     */
+    @Query("SELECT s.dayOfWeek FROM SeatInventory s WHERE s.rideSchedule.id = :rideScheduleId")
+    List<DayOfWeek> findDaysOfWeekByRideScheduleId(Long rideScheduleId);
+
+    /**
+     * Take seats on a day if enough are left
+     * @param rideScheduleId The ID of the ride schedule
+     * @param dayOfWeek The day to book
+     * @param seats Number of seats to take
+     * @return 1 if the seats were taken, 0 if too few are left or the day has no inventory yet
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SeatInventory s SET s.remainingSeats = s.remainingSeats - :seats WHERE s.rideSchedule.id = :rideScheduleId AND s.dayOfWeek = :dayOfWeek AND s.remainingSeats >= :seats")
+    int reserveSeats(Long rideScheduleId, DayOfWeek dayOfWeek, int seats);
+
+    /**
+     * Give seats back on a day
+     * @param rideScheduleId The ID of the ride schedule
+     * @param dayOfWeek The booked day
+     * @param seats Number of seats to give back
+     * @return 1 if the seats were given back, 0 if the day has no inventory yet
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SeatInventory s SET s.remainingSeats = s.remainingSeats + :seats WHERE s.rideSchedule.id = :rideScheduleId AND s.dayOfWeek = :dayOfWeek")
+    int releaseSeats(Long rideScheduleId, DayOfWeek dayOfWeek, int seats);
+
+    /**
+     * Shift the seats left on every day of a ride schedule, after the number of seats of the ride changed
+     * @param rideScheduleId The ID of the ride schedule
+     * @param seats Number of seats added, negative if seats were removed
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE SeatInventory s SET s.remainingSeats = s.remainingSeats + :seats WHERE s.rideSchedule.id = :rideScheduleId")
+    void adjustRemainingSeats(Long rideScheduleId, int seats);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SeatInventory s WHERE s.rideSchedule.id = :rideScheduleId")
+    void deleteByRideScheduleId(Long rideScheduleId);
+}
@@ -0,0 +1,260 @@
+package com.benorim.carhov.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Immutable struct-of-arrays snapshot of the indexed rides, searched by a linear scan over primitive arrays.
+ * <p>
+ * Rows are stored in fixed-size chunks. Readers take the current chunk array without locking and scan it;
+ * a writer copies only the chunk it changes and publishes a new chunk array, so a scan always sees a consistent
+ * snapshot. Without any spatial pruning a query touches every row, but the columns are contiguous and the
+ * bounding-box test allocates nothing, so the scan is bound by memory bandwidth rather than object traversal.
+ */
+public class ColumnarRideIndex implements RideSpatialIndex {
+
+    static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final int chunkSize;
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    // Writer-only state: where each ride is stored
+    private final Map<Long, Integer> chunkById = new HashMap<>();
+    private int size;
+
+    public ColumnarRideIndex() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    ColumnarRideIndex(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public synchronized void load(Collection<IndexedRide> rides) {
+        chunkById.clear();
+        List<Chunk> loaded = new ArrayList<>();
+        Chunk chunk = null;
+        for (IndexedRide ride : rides) {
+            if (chunk == null || chunk.size == chunkSize) {
+                chunk = new Chunk(chunkSize);
+                loaded.add(chunk);
+            }
+            chunk.append(ride);
+            chunkById.put(ride.id(), loaded.size() - 1);
+        }
+        size = rides.size();
+        chunks = loaded.toArray(Chunk[]::new);
+    }
+
+    @Override
+    public synchronized void insert(IndexedRide ride) {
+        Chunk[] current = chunks;
+        int index = current.length - 1;
+        Chunk[] next;
+        if (index >= 0 && current[index].size < chunkSize) {
+            next = current.clone();
+            next[index] = current[index].copy();
+        } else {
+            next = Arrays.copyOf(current, current.length + 1);
+            index = current.length;
+            next[index] = new Chunk(chunkSize);
+        }
+        next[index].append(ride);
+        chunkById.put(ride.id(), index);
+        size++;
+        chunks = next;
+    }
+
+    @Override
+    public synchronized void remove(IndexedRide ride) {
+        Integer index = chunkById.remove(ride.id());
+        if (index == null) {
+            return;
+        }
+        Chunk[] next = chunks.clone();
+        Chunk chunk = next[index].copy();
+        chunk.remove(ride.id());
+        next[index] = chunk;
+        size--;
+        chunks = next;
+
+        // Removals leave chunks partly empty; repack once more than half of the capacity is unused
+        if (next.length > 1 && size < (next.length - 1) * chunkSize / 2) {
+            load(snapshot());
+        }
+    }
+
+    @Override
+    public void forEachCandidate(RideQuery query, Consumer<IndexedRide> consumer) {
+        scan(query, (chunk, i) -> consumer.accept(chunk.ride(i)));
+    }
+
+    @Override
+    public void collectCandidates(RideQuery query, RideCandidates candidates) {
+        scan(query, into(candidates));
+    }
+
+    @Override
+    public void collectCandidates(List<RideQuery> queries, List<RideCandidates> candidates) {
+        List<RowConsumer> consumers = candidates.stream().map(ColumnarRideIndex::into).toList();
+        // Chunk by chunk, so each block of columns is read from memory once and stays in cache for every query
+        for (Chunk chunk : chunks) {
+            for (int q = 0; q < queries.size(); q++) {
+                scan(chunk, queries.get(q), consumers.get(q));
+            }
+        }
+    }
+
+    private void scan(RideQuery query, RowConsumer consumer) {
+        for (Chunk chunk : chunks) {
+            scan(chunk, query, consumer);
+        }
+    }
+
+    private static void scan(Chunk chunk, RideQuery query, RowConsumer consumer) {
+        // Box bounds are held in locals so the inner loop only reads the coordinate columns
+        double minStartLatitude = query.startBox().minLatitude();
+        double maxStartLatitude = query.startBox().maxLatitude();
+        double minStartLongitude = query.startBox().minLongitude();
+        double maxStartLongitude = query.startBox().maxLongitude();
+        double minEndLatitude = query.endBox().minLatitude();
+        double maxEndLatitude = query.endBox().maxLatitude();
+        double minEndLongitude = query.endBox().minLongitude();
+        double maxEndLongitude = query.endBox().maxLongitude();
+
+        double[] startLatitudes = chunk.startLatitudes;
+        double[] startLongitudes = chunk.startLongitudes;
+        double[] endLatitudes = chunk.endLatitudes;
+        double[] endLongitudes = chunk.endLongitudes;
+        for (int i = 0; i < chunk.size; i++) {
+            double startLatitude = startLatitudes[i];
+            if (startLatitude < minStartLatitude || startLatitude > maxStartLatitude) {
+                continue;
+            }
+            double startLongitude = startLongitudes[i];
+            double endLatitude = endLatitudes[i];
+            double endLongitude = endLongitudes[i];
+            if (startLongitude >= minStartLongitude && startLongitude <= maxStartLongitude
+                    && endLatitude >= minEndLatitude && endLatitude <= maxEndLatitude
+                    && endLongitude >= minEndLongitude && endLongitude <= maxEndLongitude) {
+                consumer.accept(chunk, i);
+            }
+        }
+    }
+
+    private static RowConsumer into(RideCandidates candidates) {
+        return (chunk, i) -> candidates.add(chunk.ids[i], chunk.startLatitudes[i], chunk.startLongitudes[i],
+                chunk.endLatitudes[i], chunk.endLongitudes[i], chunk.cosStartLatitudes[i], chunk.cosEndLatitudes[i],
+                chunk.daysMasks[i], chunk.departureMinutes[i]);
+    }
+
+    int chunkCount() {
+        return chunks.length;
+    }
+
+    private List<IndexedRide> snapshot() {
+        List<IndexedRide> rides = new ArrayList<>(size);
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                rides.add(chunk.ride(i));
+            }
+        }
+        return rides;
+    }
+
+    @FunctionalInterface
+    private interface RowConsumer {
+        void accept(Chunk chunk, int row);
+    }
+
+    /**
+     * A block of rows. Mutated only by the writer before it is published.
+     */
+    private static final class Chunk {
+        private final long[] ids;
+        private final double[] startLatitudes;
+        private final double[] startLongitudes;
+        private final double[] endLatitudes;
+        private final double[] endLongitudes;
+        private final double[] cosStartLatitudes;
+        private final double[] cosEndLatitudes;
+        private final int[] daysMasks;
+        private final int[] departureMinutes;
+        private final int[] availableSeats;
+        private int size;
+
+        private Chunk(int capacity) {
+            ids = new long[capacity];
+            startLatitudes = new double[capacity];
+            startLongitudes = new double[capacity];
+            endLatitudes = new double[capacity];
+            endLongitudes = new double[capacity];
+            cosStartLatitudes = new double[capacity];
+            cosEndLatitudes = new double[capacity];
+            daysMasks = new int[capacity];
+            departureMinutes = new int[capacity];
+            availableSeats = new int[capacity];
+        }
+
+        private Chunk copy() {
+            Chunk copy = new Chunk(ids.length);
+            System.arraycopy(ids, 0, copy.ids, 0, size);
+            System.arraycopy(startLatitudes, 0, copy.startLatitudes, 0, size);
+            System.arraycopy(startLongitudes, 0, copy.startLongitudes, 0, size);
+            System.arraycopy(endLatitudes, 0, copy.endLatitudes, 0, size);
+            System.arraycopy(endLongitudes, 0, copy.endLongitudes, 0, size);
+            System.arraycopy(cosStartLatitudes, 0, copy.cosStartLatitudes, 0, size);
+            System.arraycopy(cosEndLatitudes, 0, copy.cosEndLatitudes, 0, size);
+            System.arraycopy(daysMasks, 0, copy.daysMasks, 0, size);
+            System.arraycopy(departureMinutes, 0, copy.departureMinutes, 0, size);
+            System.arraycopy(availableSeats, 0, copy.availableSeats, 0, size);
+            copy.size = size;
+            return copy;
+        }
+
+        private void append(IndexedRide ride) {
+            set(size++, ride);
+        }
+
+        /**
+         * Remove a row by moving the last row into its place.
+         */
+        private void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    set(i, ride(size - 1));
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        private void set(int i, IndexedRide ride) {
+            ids[i] = ride.id();
+            startLatitudes[i] = ride.startLatitude();
+            startLongitudes[i] = ride.startLongitude();
+            endLatitudes[i] = ride.endLatitude();
+            endLongitudes[i] = ride.endLongitude();
+            cosStartLatitudes[i] = ride.cosStartLatitude();
+            cosEndLatitudes[i] = ride.cosEndLatitude();
+            daysMasks[i] = ride.daysMask();
+            departureMinutes[i] = ride.departureMinute();
+            availableSeats[i] = ride.availableSeats();
+        }
+
+        private IndexedRide ride(int i) {
+            return new IndexedRide(ids[i], startLatitudes[i], startLongitudes[i], endLatitudes[i], endLongitudes[i],
+                    daysMasks[i], departureMinutes[i], availableSeats[i], cosStartLatitudes[i], cosEndLatitudes[i]);
+        }
+
+    }
+}
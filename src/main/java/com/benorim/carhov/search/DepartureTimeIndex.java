@@ -0,0 +1,175 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.util.DayOfWeekMask;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Secondary index of rides by (day of week, departure time bucket). A ride is listed under every day it runs on,
+ * in the bucket of its departure minute; rides without a departure time are not indexed and never match a
+ * departure window.
+ * <p>
+ * Answers the time part of a query, so a narrow window such as "leave 7:30-8:15 on weekdays" visits only the
+ * few buckets of one day instead of every ride near the search points. Candidates still carry coordinates,
+ * so callers apply the spatial check to them.
+ */
+public class DepartureTimeIndex {
+
+    static final int BUCKET_MINUTES = 15;
+    private static final int BUCKETS_PER_DAY = 24 * 60 / BUCKET_MINUTES;
+    private static final int DAYS = DayOfWeek.values().length;
+
+    private final List<Map<Long, IndexedRide>> cells = new ArrayList<>(DAYS * BUCKETS_PER_DAY);
+
+    public DepartureTimeIndex() {
+        for (int i = 0; i < DAYS * BUCKETS_PER_DAY; i++) {
+            cells.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Replace the contents of the index.
+     *
+     * @param rides Rides to index
+     */
+    public void load(Collection<IndexedRide> rides) {
+        cells.forEach(Map::clear);
+        rides.forEach(this::insert);
+    }
+
+    public void insert(IndexedRide ride) {
+        if (ride.departureMinute() == IndexedRide.NO_DEPARTURE_TIME) {
+            return;
+        }
+        for (DayOfWeek day : DayOfWeekMask.toList(ride.daysMask())) {
+            cells.get(cell(day.ordinal(), bucket(ride.departureMinute()))).put(ride.id(), ride);
+        }
+    }
+
+    /**
+     * Remove a ride. The ride must carry the same days and departure time it was inserted with.
+     *
+     * @param ride The previously inserted ride
+     */
+    public void remove(IndexedRide ride) {
+        if (ride.departureMinute() == IndexedRide.NO_DEPARTURE_TIME) {
+            return;
+        }
+        for (DayOfWeek day : DayOfWeekMask.toList(ride.daysMask())) {
+            cells.get(cell(day.ordinal(), bucket(ride.departureMinute()))).remove(ride.id());
+        }
+    }
+
+    /**
+     * Count the rides {@link #forEachCandidate} would visit for a query, without visiting them.
+     *
+     * @param query A ride query with a departure window
+     * @return Number of indexed rides in the buckets of the window
+     */
+    public int countCandidates(RideQuery query) {
+        int day = drivingDay(query);
+        if (day >= 0) {
+            return count(day, query);
+        }
+        int count = 0;
+        for (int d = 0; d < DAYS; d++) {
+            count += count(d, query);
+        }
+        return count;
+    }
+
+    /**
+     * Visit every ride that runs on all query days and departs inside the query window, each exactly once.
+     * The coordinates of the rides are not checked.
+     *
+     * @param query A ride query with a departure window
+     * @param consumer Receives candidate rides
+     */
+    public void forEachCandidate(RideQuery query, Consumer<IndexedRide> consumer) {
+        int day = drivingDay(query);
+        if (day >= 0) {
+            forEachInWindow(day, query, ride -> {
+                if (DayOfWeekMask.containsAll(ride.daysMask(), query.daysMask())) {
+                    consumer.accept(ride);
+                }
+            });
+            return;
+        }
+        for (int d = 0; d < DAYS; d++) {
+            int visitedDay = d;
+            // A ride is listed under each of its days, so it is only reported from its first one
+            forEachInWindow(d, query, ride -> {
+                if (Integer.numberOfTrailingZeros(ride.daysMask()) == visitedDay) {
+                    consumer.accept(ride);
+                }
+            });
+        }
+    }
+
+    /**
+     * A matching ride runs on every query day, so it is enough to walk the required day with the fewest rides
+     * in the window.
+     *
+     * @return The day to walk, or -1 when the query requires no days and every day must be walked
+     */
+    private int drivingDay(RideQuery query) {
+        int drivingDay = -1;
+        int fewest = Integer.MAX_VALUE;
+        for (int day = 0; day < DAYS; day++) {
+            if ((query.daysMask() & (1 << day)) != 0) {
+                int count = count(day, query);
+                if (count < fewest) {
+                    fewest = count;
+                    drivingDay = day;
+                }
+            }
+        }
+        return drivingDay;
+    }
+
+    private int count(int day, RideQuery query) {
+        int count = 0;
+        for (int bucket : windowBuckets(query)) {
+            count += cells.get(cell(day, bucket)).size();
+        }
+        return count;
+    }
+
+    private void forEachInWindow(int day, RideQuery query, Consumer<IndexedRide> consumer) {
+        for (int bucket : windowBuckets(query)) {
+            for (IndexedRide ride : cells.get(cell(day, bucket)).values()) {
+                if (query.departsInWindow(ride.departureMinute())) {
+                    consumer.accept(ride);
+                }
+            }
+        }
+    }
+
+    private static int[] windowBuckets(RideQuery query) {
+        int first = bucket(query.departureFrom());
+        int last = bucket(query.departureTo());
+        // A window that wraps past midnight runs to the last bucket of the day and on from the first
+        int count = query.departureFrom() <= query.departureTo()
+                ? last - first + 1
+                : Math.min(BUCKETS_PER_DAY - first + last + 1, BUCKETS_PER_DAY);
+        int[] buckets = new int[count];
+        for (int i = 0; i < count; i++) {
+            buckets[i] = (first + i) % BUCKETS_PER_DAY;
+        }
+        return buckets;
+    }
+
+    private static int bucket(int minuteOfDay) {
+        return minuteOfDay / BUCKET_MINUTES;
+    }
+
+    private static int cell(int day, int bucket) {
+        return day * BUCKETS_PER_DAY + bucket;
+    }
+}
@@ -0,0 +1,98 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.util.GeoUtils;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Fixed-size latitude/longitude grid. Every point maps to exactly one cell and a search
+ * circle maps to the set of cells its bounding box overlaps.
+ */
+public class GeoGrid {
+
+    private final double cellSizeDegrees;
+    private final int rows;
+    private final int columns;
+
+    public GeoGrid(double cellSizeDegrees) {
+        if (cellSizeDegrees <= 0 || cellSizeDegrees > 90) {
+            throw new IllegalArgumentException("Cell size must be between 0 and 90 degrees");
+        }
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.rows = (int) Math.ceil(180 / cellSizeDegrees);
+        this.columns = (int) Math.ceil(360 / cellSizeDegrees);
+    }
+
+    /**
+     * Get the cell containing a point.
+     *
+     * @param latitude Latitude in degrees
+     * @param longitude Longitude in degrees
+     * @return Key of the cell containing the point
+     */
+    public long cellOf(double latitude, double longitude) {
+        return key(row(latitude), column(longitude));
+    }
+
+    /**
+     * Visit every cell that intersects the bounding box of a search circle.
+     *
+     * @param latitude Latitude of the circle center in degrees
+     * @param longitude Longitude of the circle center in degrees
+     * @param radiusInMiles The radius in miles
+     * @param consumer Receives the key of each intersecting cell exactly once
+     */
+    public void forEachCellInRadius(double latitude, double longitude, double radiusInMiles, LongConsumer consumer) {
+        CellRange range = cellRange(latitude, longitude, radiusInMiles);
+        for (int row = range.minRow(); row <= range.maxRow(); row++) {
+            for (int i = 0; i < range.columnCount(); i++) {
+                consumer.accept(key(row, Math.floorMod(range.firstColumn() + i, columns)));
+            }
+        }
+    }
+
+    /**
+     * Count the cells {@link #forEachCellInRadius} would visit, without visiting them.
+     *
+     * @param latitude Latitude of the circle center in degrees
+     * @param longitude Longitude of the circle center in degrees
+     * @param radiusInMiles The radius in miles
+     * @return Number of cells that intersect the bounding box of the circle
+     */
+    public long countCellsInRadius(double latitude, double longitude, double radiusInMiles) {
+        CellRange range = cellRange(latitude, longitude, radiusInMiles);
+        return (long) (range.maxRow() - range.minRow() + 1) * range.columnCount();
+    }
+
+    private CellRange cellRange(double latitude, double longitude, double radiusInMiles) {
+        double latitudeDelta = GeoUtils.latitudeDeltaDegrees(radiusInMiles);
+        double longitudeDelta = GeoUtils.longitudeDeltaDegrees(latitude, radiusInMiles);
+
+        int minRow = row(latitude - latitudeDelta);
+        int maxRow = row(latitude + latitudeDelta);
+
+        if (longitudeDelta >= 180) {
+            return new CellRange(minRow, maxRow, 0, columns);
+        }
+        // The band may wrap around the antimeridian, so columns are walked modulo the grid width
+        int firstColumn = (int) Math.floor((longitude - longitudeDelta + 180) / cellSizeDegrees);
+        int lastColumn = (int) Math.floor((longitude + longitudeDelta + 180) / cellSizeDegrees);
+        return new CellRange(minRow, maxRow, firstColumn, Math.min(lastColumn - firstColumn + 1, columns));
+    }
+
+    private int row(double latitude) {
+        double clamped = Math.max(-90, Math.min(90, latitude));
+        return Math.min((int) Math.floor((clamped + 90) / cellSizeDegrees), rows - 1);
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSizeDegrees), columns);
+    }
+
+    private long key(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private record CellRange(int minRow, int maxRow, int firstColumn, int columnCount) {
+    }
+}
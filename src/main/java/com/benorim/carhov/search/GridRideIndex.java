@@ -0,0 +1,53 @@
+package com.benorim.carhov.search;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Rides bucketed by the fixed grid cell of their start point. Queries visit the cells around the search start point.
+ */
+public class GridRideIndex implements RideSpatialIndex {
+
+    private final GeoGrid grid;
+    private final Map<Long, Map<Long, IndexedRide>> cells = new ConcurrentHashMap<>();
+
+    public GridRideIndex(double cellSizeDegrees) {
+        this.grid = new GeoGrid(cellSizeDegrees);
+    }
+
+    @Override
+    public void load(Collection<IndexedRide> rides) {
+        cells.clear();
+        rides.forEach(this::insert);
+    }
+
+    @Override
+    public void insert(IndexedRide ride) {
+        cells.computeIfAbsent(grid.cellOf(ride.startLatitude(), ride.startLongitude()), cell -> new ConcurrentHashMap<>())
+                .put(ride.id(), ride);
+    }
+
+    @Override
+    public void remove(IndexedRide ride) {
+        long cell = grid.cellOf(ride.startLatitude(), ride.startLongitude());
+        Map<Long, IndexedRide> rides = cells.get(cell);
+        if (rides != null) {
+            rides.remove(ride.id());
+            if (rides.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    @Override
+    public void forEachCandidate(RideQuery query, Consumer<IndexedRide> consumer) {
+        grid.forEachCellInRadius(query.startLatitude(), query.startLongitude(), query.radiusInMiles(), cell -> {
+            Map<Long, IndexedRide> rides = cells.get(cell);
+            if (rides != null) {
+                rides.values().forEach(consumer);
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.dto.rideSchedule.RideScheduleIndexRow;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.util.DayOfWeekMask;
+
+import java.time.LocalTime;
+
+/**
+ * Immutable copy of the fields of an available ride schedule needed to answer a search.
+ * The cosines of both latitudes are computed once here rather than on every distance check.
+ *
+ * @param daysMask Days the ride runs, see {@link DayOfWeekMask}
+ * @param departureMinute Minute of the day the ride departs, or {@link #NO_DEPARTURE_TIME}
+ */
+public record IndexedRide(long id, double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+                          int daysMask, int departureMinute, int availableSeats,
+                          double cosStartLatitude, double cosEndLatitude) {
+
+    public static final int NO_DEPARTURE_TIME = -1;
+
+    public IndexedRide(long id, double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+                       int daysMask, int departureMinute, int availableSeats) {
+        this(id, startLatitude, startLongitude, endLatitude, endLongitude, daysMask, departureMinute, availableSeats,
+                Math.cos(Math.toRadians(startLatitude)), Math.cos(Math.toRadians(endLatitude)));
+    }
+
+    public IndexedRide(long id, double startLatitude, double startLongitude, double endLatitude, double endLongitude) {
+        this(id, startLatitude, startLongitude, endLatitude, endLongitude, DayOfWeekMask.NONE, NO_DEPARTURE_TIME, 0);
+    }
+
+    private IndexedRide(Long id, double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+                        int daysMask, LocalTime departureTime, int availableSeats) {
+        this(id, startLatitude, startLongitude, endLatitude, endLongitude,
+                daysMask, departureMinute(departureTime), availableSeats);
+    }
+
+    public static IndexedRide from(RideSchedule rideSchedule) {
+        return new IndexedRide(
+                rideSchedule.getId(),
+                rideSchedule.getStartLatitude(),
+                rideSchedule.getStartLongitude(),
+                rideSchedule.getEndLatitude(),
+                rideSchedule.getEndLongitude(),
+                rideSchedule.getDaysMask(),
+                rideSchedule.getDepartureTime(),
+                rideSchedule.getAvailableSeats()
+        );
+    }
+
+    public static IndexedRide from(RideScheduleIndexRow row) {
+        return new IndexedRide(
+                row.id(),
+                row.startLatitude(),
+                row.startLongitude(),
+                row.endLatitude(),
+                row.endLongitude(),
+                row.daysMask(),
+                row.departureTime(),
+                row.availableSeats()
+        );
+    }
+
+    private static int departureMinute(LocalTime departureTime) {
+        return departureTime == null ? NO_DEPARTURE_TIME : departureTime.getHour() * 60 + departureTime.getMinute();
+    }
+}
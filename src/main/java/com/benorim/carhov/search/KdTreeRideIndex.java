@@ -0,0 +1,182 @@
+package com.benorim.carhov.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Bucketed KD-tree over the four coordinates (startLat, startLon, endLat, endLon) of a ride.
+ * A query prunes on the start and end bounding boxes at the same time, so rides that leave a busy area
+ * towards a different destination are skipped without being visited.
+ */
+public class KdTreeRideIndex implements RideSpatialIndex {
+
+    static final int LEAF_CAPACITY = 32;
+    private static final int DIMENSIONS = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Leaf(new ArrayList<>());
+
+    @Override
+    public void load(Collection<IndexedRide> rides) {
+        lock.writeLock().lock();
+        try {
+            root = build(new ArrayList<>(rides));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void insert(IndexedRide ride) {
+        lock.writeLock().lock();
+        try {
+            root = insert(root, ride);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(IndexedRide ride) {
+        lock.writeLock().lock();
+        try {
+            Node node = root;
+            while (node instanceof Branch branch) {
+                node = coordinate(ride, branch.dimension) < branch.split ? branch.left : branch.right;
+            }
+            ((Leaf) node).rides.removeIf(existing -> existing.id() == ride.id());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachCandidate(RideQuery query, Consumer<IndexedRide> consumer) {
+        double[] min = {query.startBox().minLatitude(), query.startBox().minLongitude(),
+                query.endBox().minLatitude(), query.endBox().minLongitude()};
+        double[] max = {query.startBox().maxLatitude(), query.startBox().maxLongitude(),
+                query.endBox().maxLatitude(), query.endBox().maxLongitude()};
+
+        lock.readLock().lock();
+        try {
+            search(root, min, max, query, consumer);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void search(Node node, double[] min, double[] max, RideQuery query, Consumer<IndexedRide> consumer) {
+        if (node instanceof Branch branch) {
+            if (min[branch.dimension] < branch.split) {
+                search(branch.left, min, max, query, consumer);
+            }
+            if (max[branch.dimension] >= branch.split) {
+                search(branch.right, min, max, query, consumer);
+            }
+            return;
+        }
+        for (IndexedRide ride : ((Leaf) node).rides) {
+            if (query.boxesContain(ride)) {
+                consumer.accept(ride);
+            }
+        }
+    }
+
+    private Node insert(Node node, IndexedRide ride) {
+        if (node instanceof Branch branch) {
+            if (coordinate(ride, branch.dimension) < branch.split) {
+                branch.left = insert(branch.left, ride);
+            } else {
+                branch.right = insert(branch.right, ride);
+            }
+            return branch;
+        }
+        Leaf leaf = (Leaf) node;
+        leaf.rides.add(ride);
+        return leaf.rides.size() > LEAF_CAPACITY ? build(leaf.rides) : leaf;
+    }
+
+    /**
+     * Build a balanced subtree by splitting on the dimension with the widest spread until leaves are small enough.
+     * Rides with identical coordinates cannot be separated and stay together in an oversized leaf.
+     */
+    private Node build(List<IndexedRide> rides) {
+        if (rides.size() <= LEAF_CAPACITY) {
+            return new Leaf(rides);
+        }
+        int dimension = widestDimension(rides);
+        if (dimension < 0) {
+            return new Leaf(rides);
+        }
+
+        rides.sort(Comparator.comparingDouble(ride -> coordinate(ride, dimension)));
+        int middle = rides.size() / 2;
+        double split = coordinate(rides.get(middle), dimension);
+        // Move the split past duplicates of the minimum so both halves are non-empty
+        while (middle > 0 && coordinate(rides.get(middle - 1), dimension) == split) {
+            middle--;
+        }
+        if (middle == 0) {
+            while (coordinate(rides.get(middle), dimension) == split) {
+                middle++;
+            }
+            split = coordinate(rides.get(middle), dimension);
+        }
+
+        Branch branch = new Branch(dimension, split);
+        branch.left = build(new ArrayList<>(rides.subList(0, middle)));
+        branch.right = build(new ArrayList<>(rides.subList(middle, rides.size())));
+        return branch;
+    }
+
+    private static int widestDimension(List<IndexedRide> rides) {
+        int widest = -1;
+        double widestSpread = 0;
+        for (int dimension = 0; dimension < DIMENSIONS; dimension++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (IndexedRide ride : rides) {
+                double value = coordinate(ride, dimension);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > widestSpread) {
+                widestSpread = max - min;
+                widest = dimension;
+            }
+        }
+        return widest;
+    }
+
+    private static double coordinate(IndexedRide ride, int dimension) {
+        return switch (dimension) {
+            case 0 -> ride.startLatitude();
+            case 1 -> ride.startLongitude();
+            case 2 -> ride.endLatitude();
+            default -> ride.endLongitude();
+        };
+    }
+
+    private sealed interface Node permits Branch, Leaf {
+    }
+
+    private static final class Branch implements Node {
+        private final int dimension;
+        private final double split;
+        private Node left;
+        private Node right;
+
+        private Branch(int dimension, double split) {
+            this.dimension = dimension;
+            this.split = split;
+        }
+    }
+
+    private record Leaf(List<IndexedRide> rides) implements Node {
+    }
+}
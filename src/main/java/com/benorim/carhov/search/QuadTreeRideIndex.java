@@ -0,0 +1,265 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.util.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Adaptive quadtree over the start points of rides. A node splits into four quadrants once it holds more than
+ * the node capacity, so dense downtown areas end up in small cells while sparse areas stay in a few large ones.
+ * Every node also keeps the bounding box of the end points below it, so a query skips subtrees whose rides all
+ * head somewhere else.
+ * <p>
+ * Nodes are immutable. A change copies the path from the root to the changed leaf and publishes the new root,
+ * so queries read a consistent tree without locking while a single writer applies changes.
+ */
+public class QuadTreeRideIndex implements RideSpatialIndex {
+
+    // Rides sharing a start point cannot be separated; below this depth they stay together in an oversized leaf
+    static final int MAX_DEPTH = 24;
+
+    private static final Region WORLD = new Region(-90, 90, -180, 180);
+    private static final Leaf EMPTY = new Leaf(new IndexedRide[0]);
+
+    private final int nodeCapacity;
+    private volatile Node root = EMPTY;
+
+    /**
+     * @param nodeCapacity Number of rides a node may hold before it is split
+     */
+    public QuadTreeRideIndex(int nodeCapacity) {
+        if (nodeCapacity <= 0) {
+            throw new IllegalArgumentException("Node capacity must be positive");
+        }
+        this.nodeCapacity = nodeCapacity;
+    }
+
+    @Override
+    public void load(Collection<IndexedRide> rides) {
+        root = build(rides.toArray(IndexedRide[]::new), WORLD, 0);
+    }
+
+    @Override
+    public void insert(IndexedRide ride) {
+        root = insert(root, WORLD, 0, ride);
+    }
+
+    @Override
+    public void remove(IndexedRide ride) {
+        root = remove(root, WORLD, ride);
+    }
+
+    @Override
+    public void forEachCandidate(RideQuery query, Consumer<IndexedRide> consumer) {
+        search(root, WORLD, query, consumer);
+    }
+
+    /**
+     * @return Number of rides in the index
+     */
+    public int size() {
+        return root.size();
+    }
+
+    private static void search(Node node, Region region, RideQuery query, Consumer<IndexedRide> consumer) {
+        if (node.size() == 0 || !region.intersects(query.startBox()) || !intersects(node.endBox(), query.endBox())) {
+            return;
+        }
+        if (node instanceof Branch branch) {
+            for (int quadrant = 0; quadrant < 4; quadrant++) {
+                search(branch.children[quadrant], region.quadrant(quadrant), query, consumer);
+            }
+            return;
+        }
+        for (IndexedRide ride : ((Leaf) node).rides) {
+            if (query.boxesContain(ride)) {
+                consumer.accept(ride);
+            }
+        }
+    }
+
+    private Node build(IndexedRide[] rides, Region region, int depth) {
+        if (rides.length <= nodeCapacity || depth >= MAX_DEPTH) {
+            return rides.length == 0 ? EMPTY : new Leaf(rides);
+        }
+        List<List<IndexedRide>> quadrants = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (IndexedRide ride : rides) {
+            quadrants.get(region.quadrantOf(ride)).add(ride);
+        }
+        Node[] children = new Node[4];
+        for (int quadrant = 0; quadrant < 4; quadrant++) {
+            children[quadrant] = build(quadrants.get(quadrant).toArray(IndexedRide[]::new), region.quadrant(quadrant), depth + 1);
+        }
+        return new Branch(children);
+    }
+
+    private Node insert(Node node, Region region, int depth, IndexedRide ride) {
+        if (node instanceof Branch branch) {
+            int quadrant = region.quadrantOf(ride);
+            Node[] children = branch.children.clone();
+            children[quadrant] = insert(children[quadrant], region.quadrant(quadrant), depth + 1, ride);
+            return new Branch(children);
+        }
+        IndexedRide[] rides = ((Leaf) node).rides;
+        IndexedRide[] grown = Arrays.copyOf(rides, rides.length + 1);
+        grown[rides.length] = ride;
+        return build(grown, region, depth);
+    }
+
+    private Node remove(Node node, Region region, IndexedRide ride) {
+        if (node instanceof Branch branch) {
+            int quadrant = region.quadrantOf(ride);
+            Node child = remove(branch.children[quadrant], region.quadrant(quadrant), ride);
+            if (child == branch.children[quadrant]) {
+                return node;
+            }
+            Node[] children = branch.children.clone();
+            children[quadrant] = child;
+            Branch shrunk = new Branch(children);
+            // Merge quadrants back into one leaf once they fit
+            return shrunk.size() <= nodeCapacity ? collapse(shrunk) : shrunk;
+        }
+        IndexedRide[] rides = ((Leaf) node).rides;
+        for (int i = 0; i < rides.length; i++) {
+            if (rides[i].id() == ride.id()) {
+                if (rides.length == 1) {
+                    return EMPTY;
+                }
+                IndexedRide[] shrunk = new IndexedRide[rides.length - 1];
+                System.arraycopy(rides, 0, shrunk, 0, i);
+                System.arraycopy(rides, i + 1, shrunk, i, rides.length - i - 1);
+                return new Leaf(shrunk);
+            }
+        }
+        return node;
+    }
+
+    private static Leaf collapse(Branch branch) {
+        List<IndexedRide> rides = new ArrayList<>(branch.size());
+        collect(branch, rides);
+        return rides.isEmpty() ? EMPTY : new Leaf(rides.toArray(IndexedRide[]::new));
+    }
+
+    private static void collect(Node node, List<IndexedRide> rides) {
+        if (node instanceof Branch branch) {
+            for (Node child : branch.children) {
+                collect(child, rides);
+            }
+        } else {
+            rides.addAll(Arrays.asList(((Leaf) node).rides));
+        }
+    }
+
+    private static boolean intersects(GeoUtils.BoundingBox a, GeoUtils.BoundingBox b) {
+        return a.minLatitude() <= b.maxLatitude() && a.maxLatitude() >= b.minLatitude()
+                && a.minLongitude() <= b.maxLongitude() && a.maxLongitude() >= b.minLongitude();
+    }
+
+    private sealed interface Node permits Branch, Leaf {
+
+        int size();
+
+        // Bounding box of the end points of all rides below the node
+        GeoUtils.BoundingBox endBox();
+    }
+
+    private static final class Branch implements Node {
+        // Indexed by Region#quadrantOf
+        private final Node[] children;
+        private final int size;
+        private final GeoUtils.BoundingBox endBox;
+
+        private Branch(Node[] children) {
+            this.children = children;
+            int size = 0;
+            double minLatitude = Double.POSITIVE_INFINITY;
+            double maxLatitude = Double.NEGATIVE_INFINITY;
+            double minLongitude = Double.POSITIVE_INFINITY;
+            double maxLongitude = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                if (child.size() > 0) {
+                    size += child.size();
+                    minLatitude = Math.min(minLatitude, child.endBox().minLatitude());
+                    maxLatitude = Math.max(maxLatitude, child.endBox().maxLatitude());
+                    minLongitude = Math.min(minLongitude, child.endBox().minLongitude());
+                    maxLongitude = Math.max(maxLongitude, child.endBox().maxLongitude());
+                }
+            }
+            this.size = size;
+            this.endBox = new GeoUtils.BoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public GeoUtils.BoundingBox endBox() {
+            return endBox;
+        }
+    }
+
+    private static final class Leaf implements Node {
+        private final IndexedRide[] rides;
+        private final GeoUtils.BoundingBox endBox;
+
+        private Leaf(IndexedRide[] rides) {
+            this.rides = rides;
+            double minLatitude = Double.POSITIVE_INFINITY;
+            double maxLatitude = Double.NEGATIVE_INFINITY;
+            double minLongitude = Double.POSITIVE_INFINITY;
+            double maxLongitude = Double.NEGATIVE_INFINITY;
+            for (IndexedRide ride : rides) {
+                minLatitude = Math.min(minLatitude, ride.endLatitude());
+                maxLatitude = Math.max(maxLatitude, ride.endLatitude());
+                minLongitude = Math.min(minLongitude, ride.endLongitude());
+                maxLongitude = Math.max(maxLongitude, ride.endLongitude());
+            }
+            this.endBox = new GeoUtils.BoundingBox(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        }
+
+        @Override
+        public int size() {
+            return rides.length;
+        }
+
+        @Override
+        public GeoUtils.BoundingBox endBox() {
+            return endBox;
+        }
+    }
+
+    /**
+     * Rectangle of start points covered by a node, halved on both axes for each level.
+     */
+    private record Region(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+
+        int quadrantOf(IndexedRide ride) {
+            return (ride.startLatitude() >= midLatitude() ? 2 : 0) + (ride.startLongitude() >= midLongitude() ? 1 : 0);
+        }
+
+        Region quadrant(int quadrant) {
+            return new Region(
+                    quadrant >= 2 ? midLatitude() : minLatitude, quadrant >= 2 ? maxLatitude : midLatitude(),
+                    quadrant % 2 == 1 ? midLongitude() : minLongitude, quadrant % 2 == 1 ? maxLongitude : midLongitude());
+        }
+
+        boolean intersects(GeoUtils.BoundingBox box) {
+            return box.minLatitude() <= maxLatitude && box.maxLatitude() >= minLatitude
+                    && box.minLongitude() <= maxLongitude && box.maxLongitude() >= minLongitude;
+        }
+
+        private double midLatitude() {
+            return (minLatitude + maxLatitude) / 2;
+        }
+
+        private double midLongitude() {
+            return (minLongitude + maxLongitude) / 2;
+        }
+    }
+}
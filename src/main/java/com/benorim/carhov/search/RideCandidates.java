@@ -0,0 +1,115 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.util.DayOfWeekMask;
+import com.benorim.carhov.util.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable struct-of-arrays buffer of candidate rides, so distance refinement runs over primitive arrays
+ * instead of a list of objects.
+ */
+class RideCandidates {
+
+    private long[] ids;
+    private double[] startLatitudes;
+    private double[] startLongitudes;
+    private double[] endLatitudes;
+    private double[] endLongitudes;
+    private double[] cosStartLatitudes;
+    private double[] cosEndLatitudes;
+    private int[] daysMasks;
+    private int[] departureMinutes;
+    private int size;
+
+    RideCandidates(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        ids = new long[capacity];
+        startLatitudes = new double[capacity];
+        startLongitudes = new double[capacity];
+        endLatitudes = new double[capacity];
+        endLongitudes = new double[capacity];
+        cosStartLatitudes = new double[capacity];
+        cosEndLatitudes = new double[capacity];
+        daysMasks = new int[capacity];
+        departureMinutes = new int[capacity];
+    }
+
+    void add(IndexedRide ride) {
+        add(ride.id(), ride.startLatitude(), ride.startLongitude(), ride.endLatitude(), ride.endLongitude(),
+                ride.cosStartLatitude(), ride.cosEndLatitude(), ride.daysMask(), ride.departureMinute());
+    }
+
+    void add(long id, double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+             double cosStartLatitude, double cosEndLatitude, int daysMask, int departureMinute) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            startLatitudes = Arrays.copyOf(startLatitudes, capacity);
+            startLongitudes = Arrays.copyOf(startLongitudes, capacity);
+            endLatitudes = Arrays.copyOf(endLatitudes, capacity);
+            endLongitudes = Arrays.copyOf(endLongitudes, capacity);
+            cosStartLatitudes = Arrays.copyOf(cosStartLatitudes, capacity);
+            cosEndLatitudes = Arrays.copyOf(cosEndLatitudes, capacity);
+            daysMasks = Arrays.copyOf(daysMasks, capacity);
+            departureMinutes = Arrays.copyOf(departureMinutes, capacity);
+        }
+        ids[size] = id;
+        startLatitudes[size] = startLatitude;
+        startLongitudes[size] = startLongitude;
+        endLatitudes[size] = endLatitude;
+        endLongitudes[size] = endLongitude;
+        cosStartLatitudes[size] = cosStartLatitude;
+        cosEndLatitudes[size] = cosEndLatitude;
+        daysMasks[size] = daysMask;
+        departureMinutes[size] = departureMinute;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Keep the candidates on the query days, inside the departure window and within the query radius at both ends, then compute their exact distances.
+     * Membership is settled by the tiered radius filters, so exact Haversine distances are only computed
+     * for rides that are returned. The buffer is compacted in place and should not be reused afterwards.
+     *
+     * @param query The ride query
+     * @return Matching rides with their distances
+     */
+    List<RideMatch> refine(RideQuery query) {
+        GeoUtils.RadiusFilter startFilter = query.startFilter();
+        GeoUtils.RadiusFilter endFilter = query.endFilter();
+        int requiredDays = query.daysMask();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (DayOfWeekMask.containsAll(daysMasks[i], requiredDays) && query.departsInWindow(departureMinutes[i])
+                    && startFilter.contains(startLatitudes[i], startLongitudes[i], cosStartLatitudes[i])
+                    && endFilter.contains(endLatitudes[i], endLongitudes[i], cosEndLatitudes[i])) {
+                ids[kept] = ids[i];
+                startLatitudes[kept] = startLatitudes[i];
+                startLongitudes[kept] = startLongitudes[i];
+                endLatitudes[kept] = endLatitudes[i];
+                endLongitudes[kept] = endLongitudes[i];
+                kept++;
+            }
+        }
+        size = kept;
+
+        double[] startDistances = new double[kept];
+        double[] endDistances = new double[kept];
+        GeoUtils.calculateDistancesInMiles(query.startLatitude(), query.startLongitude(),
+                startLatitudes, startLongitudes, kept, startDistances);
+        GeoUtils.calculateDistancesInMiles(query.endLatitude(), query.endLongitude(),
+                endLatitudes, endLongitudes, kept, endDistances);
+
+        List<RideMatch> matches = new ArrayList<>(kept);
+        for (int i = 0; i < kept; i++) {
+            matches.add(new RideMatch(ids[i], startDistances[i], endDistances[i]));
+        }
+        return matches;
+    }
+}
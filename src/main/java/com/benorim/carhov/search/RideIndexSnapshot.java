@@ -0,0 +1,102 @@
+package com.benorim.carhov.search;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Contents of the ride search index saved to a file, so a restart can map the file instead of reading every
+ * available ride from the database. The file is a fixed-size header followed by fixed-width rows and is read
+ * and written through {@link FileChannel#map}, without copying through stream buffers.
+ *
+ * @param takenAt When the snapshot was taken; rides updated after it must be replayed from the database
+ * @param rides The indexed rides
+ */
+public record RideIndexSnapshot(Instant takenAt, List<IndexedRide> rides) {
+
+    private static final int MAGIC = 0x43485249; // "CHRI"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = Integer.BYTES * 2 + Long.BYTES + Integer.BYTES;
+    private static final int ROW_BYTES = Long.BYTES + Double.BYTES * 4 + Integer.BYTES * 3;
+
+    /**
+     * Write a snapshot. The file is written next to the target and then moved over it, so a crash while writing
+     * leaves the previous snapshot in place.
+     *
+     * @param path The snapshot file
+     * @param rides The indexed rides
+     * @param takenAt When the rides were read
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path path, Collection<IndexedRide> rides, Instant takenAt) throws IOException {
+        long size = HEADER_BYTES + (long) ROW_BYTES * rides.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too many rides for a single snapshot file: " + rides.size());
+        }
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(takenAt.toEpochMilli())
+                        .putInt(rides.size());
+                for (IndexedRide ride : rides) {
+                    buffer.putLong(ride.id())
+                            .putDouble(ride.startLatitude())
+                            .putDouble(ride.startLongitude())
+                            .putDouble(ride.endLatitude())
+                            .putDouble(ride.endLongitude())
+                            .putInt(ride.daysMask())
+                            .putInt(ride.departureMinute())
+                            .putInt(ride.availableSeats());
+                }
+                buffer.force();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @param path The snapshot file
+     * @return The snapshot
+     * @throws IOException if the file cannot be read or was not written by {@link #write}
+     */
+    public static RideIndexSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid ride index snapshot size: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported ride index snapshot format");
+            }
+            Instant takenAt = Instant.ofEpochMilli(buffer.getLong());
+            int count = buffer.getInt();
+            if (count < 0 || size != HEADER_BYTES + (long) ROW_BYTES * count) {
+                throw new IOException("Truncated ride index snapshot");
+            }
+
+            List<IndexedRide> rides = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rides.add(new IndexedRide(buffer.getLong(),
+                        buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble(),
+                        buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+            return new RideIndexSnapshot(takenAt, rides);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.benorim.carhov.search;
+
+import java.util.Comparator;
+
+/**
+ * A ride that matched a search, with the distances between the ride and the search points.
+ */
+public record RideMatch(long id, double startDistanceInMiles, double endDistanceInMiles) {
+
+    /**
+     * Search result order: closest total distance first, ties broken by ID so that pages are stable.
+     */
+    public static final Comparator<RideMatch> RANKING = Comparator.comparingDouble(RideMatch::totalDistanceInMiles)
+            .thenComparingLong(RideMatch::id);
+
+    public double totalDistanceInMiles() {
+        return startDistanceInMiles + endDistanceInMiles;
+    }
+}
@@ -0,0 +1,122 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
+import com.benorim.carhov.util.DayOfWeekMask;
+import com.benorim.carhov.util.GeoUtils;
+
+import java.time.LocalTime;
+
+/**
+ * A paired-radius ride query: the ride must start within the radius of one point and end within the radius of another.
+ * The bounding boxes of both circles are precomputed so spatial indexes can prune without any trigonometry.
+ *
+ * @param daysMask Days the ride must all run on, see {@link DayOfWeekMask}; {@link DayOfWeekMask#NONE} for any day
+ * @param departureFrom First minute of the day of the departure window, or {@link IndexedRide#NO_DEPARTURE_TIME}
+ *                      for any departure time
+ * @param departureTo Last minute of the day of the departure window, inclusive. A window ending before it starts
+ *                    wraps past midnight
+ */
+public record RideQuery(double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+                        double radiusInMiles, int daysMask, int departureFrom, int departureTo,
+                        GeoUtils.BoundingBox startBox, GeoUtils.BoundingBox endBox,
+                        GeoUtils.RadiusFilter startFilter, GeoUtils.RadiusFilter endFilter) {
+
+    static final int LAST_MINUTE_OF_DAY = 24 * 60 - 1;
+
+    public static RideQuery of(double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+                               double radiusInMiles) {
+        return of(startLatitude, startLongitude, endLatitude, endLongitude, radiusInMiles, DayOfWeekMask.NONE);
+    }
+
+    public static RideQuery of(double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+                               double radiusInMiles, int daysMask) {
+        return of(startLatitude, startLongitude, endLatitude, endLongitude, radiusInMiles, daysMask,
+                IndexedRide.NO_DEPARTURE_TIME, IndexedRide.NO_DEPARTURE_TIME);
+    }
+
+    public static RideQuery of(double startLatitude, double startLongitude, double endLatitude, double endLongitude,
+                               double radiusInMiles, int daysMask, int departureFrom, int departureTo) {
+        return new RideQuery(startLatitude, startLongitude, endLatitude, endLongitude, radiusInMiles, daysMask,
+                departureFrom, departureTo,
+                GeoUtils.boundingBox(startLatitude, startLongitude, radiusInMiles),
+                GeoUtils.boundingBox(endLatitude, endLongitude, radiusInMiles),
+                GeoUtils.radiusFilter(startLatitude, startLongitude, radiusInMiles),
+                GeoUtils.radiusFilter(endLatitude, endLongitude, radiusInMiles));
+    }
+
+    public static RideQuery from(SearchRideScheduleDTO searchCriteria) {
+        return of(searchCriteria.getStartLatitude(), searchCriteria.getStartLongitude(),
+                searchCriteria.getEndLatitude(), searchCriteria.getEndLongitude(),
+                searchCriteria.getRadiusInMiles(), DayOfWeekMask.of(searchCriteria.getDays()),
+                departureFrom(searchCriteria), departureTo(searchCriteria));
+    }
+
+    /**
+     * A window with only an end bound is open from the start of the day.
+     *
+     * @return First minute of the departure window of the search, or {@link IndexedRide#NO_DEPARTURE_TIME}
+     */
+    public static int departureFrom(SearchRideScheduleDTO searchCriteria) {
+        LocalTime after = searchCriteria.getDepartureAfter();
+        if (after == null) {
+            return searchCriteria.getDepartureBefore() == null ? IndexedRide.NO_DEPARTURE_TIME : 0;
+        }
+        return minuteOfDay(after);
+    }
+
+    /**
+     * A window with only a start bound is open to the end of the day.
+     *
+     * @return Last minute of the departure window of the search, or {@link IndexedRide#NO_DEPARTURE_TIME}
+     */
+    public static int departureTo(SearchRideScheduleDTO searchCriteria) {
+        LocalTime before = searchCriteria.getDepartureBefore();
+        if (before == null) {
+            return searchCriteria.getDepartureAfter() == null ? IndexedRide.NO_DEPARTURE_TIME : LAST_MINUTE_OF_DAY;
+        }
+        return minuteOfDay(before);
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    public boolean hasDepartureWindow() {
+        return departureFrom != IndexedRide.NO_DEPARTURE_TIME;
+    }
+
+    /**
+     * @param departureMinute Minute of the day the ride departs, or {@link IndexedRide#NO_DEPARTURE_TIME}
+     * @return true if the query has no departure window, or the ride departs inside it
+     */
+    public boolean departsInWindow(int departureMinute) {
+        if (!hasDepartureWindow()) {
+            return true;
+        }
+        if (departureMinute == IndexedRide.NO_DEPARTURE_TIME) {
+            return false;
+        }
+        return departureFrom <= departureTo
+                ? departureMinute >= departureFrom && departureMinute <= departureTo
+                : departureMinute >= departureFrom || departureMinute <= departureTo;
+    }
+
+    /**
+     * @return true if both points of the ride fall inside the bounding boxes of the query
+     */
+    public boolean boxesContain(IndexedRide ride) {
+        return startBox.contains(ride.startLatitude(), ride.startLongitude())
+                && endBox.contains(ride.endLatitude(), ride.endLongitude());
+    }
+
+    /**
+     * @return true if the ride runs on the query days inside the departure window, and both of its points are
+     * within the query radius
+     */
+    public boolean matches(IndexedRide ride) {
+        return DayOfWeekMask.containsAll(ride.daysMask(), daysMask)
+                && departsInWindow(ride.departureMinute())
+                && startFilter.contains(ride.startLatitude(), ride.startLongitude(), ride.cosStartLatitude())
+                && endFilter.contains(ride.endLatitude(), ride.endLongitude(), ride.cosEndLatitude());
+    }
+}
@@ -0,0 +1,86 @@
+package com.benorim.carhov.search;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reverse spatial index of ride queries: given a ride, find the stored queries it matches.
+ * Each query is registered under the grid cells covered by its start circle, so a ride only checks the queries
+ * in the cell of its start point. Queries covering more than {@code maxCellsPerQuery} cells are kept in a separate
+ * list that every ride checks. Not thread-safe; callers synchronize.
+ *
+ * @param <K> Key of a stored query
+ */
+public class RideQueryIndex<K> {
+
+    private final GeoGrid grid;
+    private final long maxCellsPerQuery;
+
+    private final Map<K, RideQuery> queries = new HashMap<>();
+    private final Map<Long, Set<K>> keysByCell = new HashMap<>();
+    private final Set<K> wideKeys = new HashSet<>();
+
+    public RideQueryIndex(double cellSizeDegrees, long maxCellsPerQuery) {
+        this.grid = new GeoGrid(cellSizeDegrees);
+        this.maxCellsPerQuery = maxCellsPerQuery;
+    }
+
+    /**
+     * Add a query, replacing any query stored under the same key.
+     */
+    public void add(K key, RideQuery query) {
+        remove(key);
+        queries.put(key, query);
+        if (grid.countCellsInRadius(query.startLatitude(), query.startLongitude(), query.radiusInMiles()) > maxCellsPerQuery) {
+            wideKeys.add(key);
+        } else {
+            grid.forEachCellInRadius(query.startLatitude(), query.startLongitude(), query.radiusInMiles(),
+                    cell -> keysByCell.computeIfAbsent(cell, c -> new HashSet<>()).add(key));
+        }
+    }
+
+    public void remove(K key) {
+        RideQuery query = queries.remove(key);
+        if (query == null || wideKeys.remove(key)) {
+            return;
+        }
+        grid.forEachCellInRadius(query.startLatitude(), query.startLongitude(), query.radiusInMiles(), cell -> {
+            Set<K> keys = keysByCell.get(cell);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByCell.remove(cell);
+            }
+        });
+    }
+
+    /**
+     * Visit the key of every stored query that the ride matches, each exactly once.
+     *
+     * @param ride The ride
+     * @param consumer Receives the keys of matching queries
+     */
+    public void forEachMatch(IndexedRide ride, Consumer<K> consumer) {
+        for (K key : keysByCell.getOrDefault(grid.cellOf(ride.startLatitude(), ride.startLongitude()), Set.of())) {
+            if (queries.get(key).matches(ride)) {
+                consumer.accept(key);
+            }
+        }
+        for (K key : wideKeys) {
+            if (queries.get(key).matches(ride)) {
+                consumer.accept(key);
+            }
+        }
+    }
+
+    public int size() {
+        return queries.size();
+    }
+
+    public void clear() {
+        queries.clear();
+        keysByCell.clear();
+        wideKeys.clear();
+    }
+}
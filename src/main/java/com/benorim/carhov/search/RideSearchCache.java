@@ -0,0 +1,276 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
+import com.benorim.carhov.util.DayOfWeekMask;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU cache of ride search pages with a time-to-live.
+ * <p>
+ * Search coordinates are snapped to a grid of {@code quantum-degrees} before searching, so riders searching the same
+ * commute from a few meters apart share one entry. Each entry is registered under the coarse grid cells covered by
+ * its start circle; when a ride is created, updated or deleted only the entries in the cells of its old and new
+ * start points are checked, and only those whose search actually matches the ride are dropped.
+ * <p>
+ * Identical concurrent misses are coalesced into one search, also when caching is disabled.
+ */
+@Component
+@Slf4j
+public class RideSearchCache {
+
+    // Entries whose start circle covers more cells than this are checked on every mutation instead
+    private static final long MAX_CELLS_PER_ENTRY = 1024;
+    private static final double INVALIDATION_CELL_SIZE_DEGREES = 0.5;
+
+    @Value("${app.search.cache.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.search.cache.max-entries:10000}")
+    private int maxEntries = 10000;
+
+    @Value("${app.search.cache.ttl-ms:60000}")
+    private long ttlMs = 60000;
+
+    @Value("${app.search.cache.quantum-degrees:0.001}")
+    private double quantumDegrees = 0.001;
+
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final RideQueryIndex<Key> queryIndex = new RideQueryIndex<>(INVALIDATION_CELL_SIZE_DEGREES, MAX_CELLS_PER_ENTRY);
+    // Bumped on every invalidation so a page computed concurrently with a ride change is not cached
+    private volatile long mutationVersion;
+    private final SingleFlight<Flight, RideSearchPage> singleFlight = new SingleFlight<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public RideSearchCache() {
+        this(System::currentTimeMillis);
+    }
+
+    RideSearchCache(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void init() {
+        if (maxEntries <= 0 || ttlMs <= 0 || quantumDegrees <= 0) {
+            throw new IllegalStateException("Search cache max-entries, ttl-ms and quantum-degrees must be positive");
+        }
+    }
+
+    /**
+     * Get a cached search page, or compute and cache it. The search coordinates are snapped before
+     * {@code search} is called, so the returned distances are relative to the snapped points.
+     *
+     * @param searchCriteria The search criteria
+     * @param search Computes the page for the snapped criteria on a cache miss
+     * @return The search page
+     */
+    public RideSearchPage get(SearchRideScheduleDTO searchCriteria, Function<SearchRideScheduleDTO, RideSearchPage> search) {
+        if (!enabled) {
+            return singleFlight.execute(new Flight(searchCriteria, mutationVersion), () -> search.apply(searchCriteria));
+        }
+        Key key = Key.of(searchCriteria, quantumDegrees);
+        long version;
+        synchronized (this) {
+            RideSearchPage cached = lookup(key);
+            if (cached != null) {
+                return cached;
+            }
+            version = mutationVersion;
+        }
+
+        SearchRideScheduleDTO snapped = key.toCriteria(searchCriteria, quantumDegrees);
+        // A search that started before the last ride change must not be shared with one that started after it
+        RideSearchPage page = singleFlight.execute(new Flight(key, version), () -> search.apply(snapped));
+
+        synchronized (this) {
+            if (version == mutationVersion) {
+                put(key, new Entry(page, RideQuery.from(snapped), clock.getAsLong() + ttlMs));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Get several search pages, serving what is cached and computing all misses together in one call.
+     * Batch misses are not coalesced with concurrent searches.
+     *
+     * @param searches The search criteria
+     * @param search Computes the pages for the snapped criteria of the misses, in the same order
+     * @return The search pages, in the order of {@code searches}
+     */
+    public List<RideSearchPage> getAll(List<SearchRideScheduleDTO> searches,
+                                       Function<List<SearchRideScheduleDTO>, List<RideSearchPage>> search) {
+        if (!enabled) {
+            return search.apply(searches);
+        }
+        RideSearchPage[] pages = new RideSearchPage[searches.size()];
+        List<Integer> missed = new ArrayList<>();
+        List<Key> missedKeys = new ArrayList<>();
+        long version;
+        synchronized (this) {
+            for (int i = 0; i < searches.size(); i++) {
+                Key key = Key.of(searches.get(i), quantumDegrees);
+                pages[i] = lookup(key);
+                if (pages[i] == null) {
+                    missed.add(i);
+                    missedKeys.add(key);
+                }
+            }
+            version = mutationVersion;
+        }
+        if (missed.isEmpty()) {
+            return List.of(pages);
+        }
+
+        List<SearchRideScheduleDTO> snapped = new ArrayList<>(missed.size());
+        for (int i = 0; i < missed.size(); i++) {
+            snapped.add(missedKeys.get(i).toCriteria(searches.get(missed.get(i)), quantumDegrees));
+        }
+        List<RideSearchPage> computed = search.apply(snapped);
+
+        synchronized (this) {
+            for (int i = 0; i < missed.size(); i++) {
+                pages[missed.get(i)] = computed.get(i);
+                if (version == mutationVersion) {
+                    put(missedKeys.get(i), new Entry(computed.get(i), RideQuery.from(snapped.get(i)), clock.getAsLong() + ttlMs));
+                }
+            }
+        }
+        return List.of(pages);
+    }
+
+    /**
+     * Drop every cached search whose results contain, or could now contain, a ride at any of the given positions.
+     * Pass both the old and new position of a moved ride.
+     *
+     * @param positions Positions of the changed ride
+     */
+    public synchronized void invalidate(List<IndexedRide> positions) {
+        mutationVersion++;
+        if (entries.isEmpty()) {
+            return;
+        }
+        Set<Key> affected = new HashSet<>();
+        for (IndexedRide position : positions) {
+            queryIndex.forEachMatch(position, affected::add);
+        }
+        affected.forEach(this::removeEntry);
+        invalidations += affected.size();
+    }
+
+    public synchronized void clear() {
+        mutationVersion++;
+        entries.clear();
+        queryIndex.clear();
+    }
+
+    /**
+     * @return Cache counters since startup, for sizing the cache
+     */
+    public synchronized SearchCacheStats stats() {
+        return new SearchCacheStats(entries.size(), maxEntries, hits, misses, evictions, expirations, invalidations,
+                singleFlight.coalesced());
+    }
+
+    /**
+     * @return The cached page, or null on a miss; counts the hit or miss
+     */
+    private RideSearchPage lookup(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAt() > clock.getAsLong()) {
+                hits++;
+                return entry.page();
+            }
+            removeEntry(key);
+            expirations++;
+        }
+        misses++;
+        return null;
+    }
+
+    private void put(Key key, Entry entry) {
+        entries.put(key, entry);
+        queryIndex.add(key, entry.query());
+
+        // The map is in access order, so the first entries are the least recently used
+        Iterator<Key> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            Key eldestKey = eldest.next();
+            eldest.remove();
+            queryIndex.remove(eldestKey);
+            evictions++;
+        }
+    }
+
+    private void removeEntry(Key key) {
+        if (entries.remove(key) != null) {
+            queryIndex.remove(key);
+        }
+    }
+
+    private record Entry(RideSearchPage page, RideQuery query, long expiresAt) {
+    }
+
+    private record Flight(Object key, long mutationVersion) {
+    }
+
+    /**
+     * Snapped search criteria. Coordinates are stored as multiples of the quantum.
+     */
+    private record Key(long startLatitude, long startLongitude, long endLatitude, long endLongitude,
+                       double radiusInMiles, int daysMask, int departureFrom, int departureTo,
+                       Integer limit, String cursor) {
+
+        static Key of(SearchRideScheduleDTO searchCriteria, double quantumDegrees) {
+            return new Key(
+                    Math.round(searchCriteria.getStartLatitude() / quantumDegrees),
+                    Math.round(searchCriteria.getStartLongitude() / quantumDegrees),
+                    Math.round(searchCriteria.getEndLatitude() / quantumDegrees),
+                    Math.round(searchCriteria.getEndLongitude() / quantumDegrees),
+                    searchCriteria.getRadiusInMiles(),
+                    DayOfWeekMask.of(searchCriteria.getDays()),
+                    RideQuery.departureFrom(searchCriteria),
+                    RideQuery.departureTo(searchCriteria),
+                    searchCriteria.getLimit(),
+                    searchCriteria.getCursor());
+        }
+
+        SearchRideScheduleDTO toCriteria(SearchRideScheduleDTO searchCriteria, double quantumDegrees) {
+            SearchRideScheduleDTO snapped = new SearchRideScheduleDTO();
+            snapped.setStartLatitude(startLatitude * quantumDegrees);
+            snapped.setStartLongitude(startLongitude * quantumDegrees);
+            snapped.setEndLatitude(endLatitude * quantumDegrees);
+            snapped.setEndLongitude(endLongitude * quantumDegrees);
+            snapped.setRadiusInMiles(radiusInMiles);
+            snapped.setDays(DayOfWeekMask.toList(daysMask));
+            if (departureFrom != IndexedRide.NO_DEPARTURE_TIME) {
+                snapped.setDepartureAfter(LocalTime.MIN.plusMinutes(departureFrom));
+                snapped.setDepartureBefore(LocalTime.MIN.plusMinutes(departureTo));
+            }
+            snapped.setLimit(searchCriteria.getLimit());
+            snapped.setCursor(searchCriteria.getCursor());
+            return snapped;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * In-memory spatial index of available ride schedules. The index is loaded from the database once the application
+ * has started, before it serves searches, and then kept up to date by {@code RideScheduleService}.
+ * <p>
+ * When {@code app.search.index.snapshot-path} is set, the index is saved to that file on shutdown and the next
+ * start maps the file and replays only the rides changed since, instead of reading every available ride.
+ * Only the snapshot is off-heap: the live index is kept on the heap, because the spatial indexes are trees and
+ * grids of ride objects that change with every ride update, which a mapped file could only hold by serializing
+ * every change. The snapshot is copied into the heap index once, at start.
+ * <p>
+ * With more than one {@code app.search.index.shards}, wide searches rank each shard on a dedicated
+ * {@link ForkJoinPool} and merge the per-shard top matches, leaving the request threads free for other work.
+ * <p>
+ * Rides are also kept in a {@link DepartureTimeIndex}. Searches whose departure window holds only a small share
+ * of the rides are answered from that index and checked against the search area, instead of walking the
+ * spatial index and discarding the rides that leave at other times.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RideSearchIndex {
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${app.search.index.type:kd-tree}")
+    private String indexType;
+
+    @Value("${app.search.index.cell-size-degrees:0.1}")
+    private double cellSizeDegrees;
+
+    @Value("${app.search.index.quadtree.node-capacity:64}")
+    private int quadTreeNodeCapacity = 64;
+
+    @Value("${app.search.index.snapshot-path:}")
+    private String snapshotPath;
+
+    @Value("${app.search.index.shards:1}")
+    private int shardCount = 1;
+
+    @Value("${app.search.index.parallel.threads:0}")
+    private int parallelThreads = 0;
+
+    @Value("${app.search.index.parallel.min-radius-miles:25}")
+    private double parallelMinRadiusMiles = 25;
+
+    // Rides updated shortly before a snapshot are replayed too, in case clocks of the instances differ
+    private static final Duration SNAPSHOT_REPLAY_MARGIN = Duration.ofMinutes(1);
+
+    // Largest share of the indexed rides a departure window may hold to be answered from the departure index
+    private static final double DEPARTURE_INDEX_MAX_SHARE = 0.05;
+
+    private final RideScheduleRepository rideScheduleRepository;
+
+    private final Map<Long, IndexedRide> rides = new ConcurrentHashMap<>();
+    private final DepartureTimeIndex departureIndex = new DepartureTimeIndex();
+    private RideSpatialIndex spatialIndex;
+    private ForkJoinPool searchPool;
+    private volatile boolean loaded;
+
+    @PostConstruct
+    void init() {
+        Supplier<RideSpatialIndex> indexFactory = switch (indexType.toLowerCase()) {
+            case "grid" -> () -> new GridRideIndex(cellSizeDegrees);
+            case "kd-tree" -> KdTreeRideIndex::new;
+            case "columnar" -> ColumnarRideIndex::new;
+            case "quadtree" -> () -> new QuadTreeRideIndex(quadTreeNodeCapacity);
+            default -> throw new IllegalStateException("Unknown search index type: " + indexType);
+        };
+        if (shardCount > 1) {
+            spatialIndex = new ShardedRideIndex(shardCount, cellSizeDegrees, indexFactory);
+            int threads = parallelThreads > 0 ? parallelThreads : Runtime.getRuntime().availableProcessors();
+            searchPool = new ForkJoinPool(threads);
+        } else {
+            spatialIndex = indexFactory.get();
+        }
+    }
+
+    /**
+     * Load the index as soon as the application is ready, so the first search does not pay for reading the rides
+     * or replaying the snapshot. A failed load is retried by the first search.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ensureLoaded();
+        } catch (RuntimeException e) {
+            log.warn("Failed to load the search index on startup; it will be loaded by the first search", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        saveSnapshot();
+        if (searchPool != null) {
+            searchPool.shutdown();
+        }
+    }
+
+    /**
+     * Save the index to the snapshot file, if one is configured and the index was loaded.
+     */
+    public synchronized void saveSnapshot() {
+        if (snapshotPath == null || snapshotPath.isBlank() || !loaded) {
+            return;
+        }
+        try {
+            RideIndexSnapshot.write(Path.of(snapshotPath), rides.values(), Instant.now());
+            log.info("Saved {} indexed ride schedules to {}", rides.size(), snapshotPath);
+        } catch (IOException e) {
+            log.warn("Failed to save the search index snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * Find rides whose start and end points are both within the search radius.
+     *
+     * @param searchCriteria The search criteria containing start/end coordinates and search radius
+     * @return Matching rides with their exact start and end distances
+     */
+    public List<RideMatch> findMatches(SearchRideScheduleDTO searchCriteria) {
+        ensureLoaded();
+        RideQuery query = RideQuery.from(searchCriteria);
+        return collectCandidates(query).refine(query);
+    }
+
+    /**
+     * Find the best ranked rides whose start and end points are both within the search radius.
+     * Searches with a radius of at least {@code app.search.index.parallel.min-radius-miles} are ranked on every
+     * shard in parallel; each shard keeps its own top {@code k} and the shard results are merged. Searches answered
+     * from the departure index are not split, since they only visit a small share of the rides.
+     *
+     * @param searchCriteria The search criteria containing start/end coordinates and search radius
+     * @param k Maximum number of rides to return
+     * @param after Only rides ranked after this cursor are returned, or null to start from the best match
+     * @return Up to {@code k} matching rides in ranking order
+     */
+    public List<RideMatch> findTopMatches(SearchRideScheduleDTO searchCriteria, int k, SearchCursor after) {
+        ensureLoaded();
+        RideQuery query = RideQuery.from(searchCriteria);
+        if (!(spatialIndex instanceof ShardedRideIndex sharded) || query.radiusInMiles() < parallelMinRadiusMiles
+                || byDepartureTime(query)) {
+            return topMatches(collectCandidates(query), query, k, after).toSortedList();
+        }
+
+        List<Callable<TopKRideMatches>> tasks = new ArrayList<>(sharded.shardCount());
+        for (int i = 0; i < sharded.shardCount(); i++) {
+            RideSpatialIndex shard = sharded.shard(i);
+            tasks.add(() -> {
+                RideCandidates candidates = new RideCandidates(64);
+                shard.collectCandidates(query, candidates);
+                return topMatches(candidates, query, k, after);
+            });
+        }
+        TopKRideMatches merged = new TopKRideMatches(k, after);
+        for (Future<TopKRideMatches> shardMatches : searchPool.invokeAll(tasks)) {
+            merged.offerAll(join(shardMatches));
+        }
+        return merged.toSortedList();
+    }
+
+    /**
+     * Find the best ranked rides for several searches at once. The candidates of all searches are collected
+     * together, so scan-based indexes read their rides only once for the whole batch.
+     *
+     * @param searches The search criteria
+     * @param topMatches Collects the ranked matches of the search at the same position
+     */
+    public void findTopMatches(List<SearchRideScheduleDTO> searches, List<TopKRideMatches> topMatches) {
+        ensureLoaded();
+        List<RideQuery> queries = searches.stream().map(RideQuery::from).toList();
+        List<RideCandidates> candidates = queries.stream().map(query -> new RideCandidates(64)).toList();
+        List<RideQuery> spatialQueries = new ArrayList<>(queries.size());
+        List<RideCandidates> spatialCandidates = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            if (byDepartureTime(queries.get(i))) {
+                collectByDepartureTime(queries.get(i), candidates.get(i));
+            } else {
+                spatialQueries.add(queries.get(i));
+                spatialCandidates.add(candidates.get(i));
+            }
+        }
+        spatialIndex.collectCandidates(spatialQueries, spatialCandidates);
+        for (int i = 0; i < queries.size(); i++) {
+            candidates.get(i).refine(queries.get(i)).forEach(topMatches.get(i)::offer);
+        }
+    }
+
+    /**
+     * Add, move or drop a ride schedule after it has been saved. Unavailable rides are removed from the index.
+     *
+     * @param rideSchedule The saved ride schedule
+     */
+    public synchronized void upsert(RideSchedule rideSchedule) {
+        if (!loaded) {
+            // The initial load will read the saved state from the database
+            return;
+        }
+        removeEntry(rideSchedule.getId());
+        if (rideSchedule.isAvailable()) {
+            IndexedRide ride = IndexedRide.from(rideSchedule);
+            rides.put(ride.id(), ride);
+            spatialIndex.insert(ride);
+            departureIndex.insert(ride);
+        }
+    }
+
+    /**
+     * Remove a ride schedule from the index.
+     *
+     * @param rideScheduleId The ID of the removed ride schedule
+     */
+    public synchronized void remove(Long rideScheduleId) {
+        if (loaded) {
+            removeEntry(rideScheduleId);
+        }
+    }
+
+    /**
+     * @return Number of rides currently in the index
+     */
+    public int size() {
+        return rides.size();
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                List<IndexedRide> availableRides = loadAvailableRides();
+                availableRides.forEach(ride -> rides.put(ride.id(), ride));
+                spatialIndex.load(availableRides);
+                departureIndex.load(availableRides);
+                loaded = true;
+                log.info("Loaded {} available ride schedules into the {} search index", availableRides.size(), indexType);
+            }
+        }
+    }
+
+    private static TopKRideMatches topMatches(RideCandidates candidates, RideQuery query, int k, SearchCursor after) {
+        TopKRideMatches topMatches = new TopKRideMatches(k, after);
+        candidates.refine(query).forEach(topMatches::offer);
+        return topMatches;
+    }
+
+    private RideCandidates collectCandidates(RideQuery query) {
+        RideCandidates candidates = new RideCandidates(64);
+        if (byDepartureTime(query)) {
+            collectByDepartureTime(query, candidates);
+        } else {
+            spatialIndex.collectCandidates(query, candidates);
+        }
+        return candidates;
+    }
+
+    /**
+     * @return true if the query is better answered from the departure index than from the spatial index
+     */
+    private boolean byDepartureTime(RideQuery query) {
+        return query.hasDepartureWindow()
+                && departureIndex.countCandidates(query) <= rides.size() * DEPARTURE_INDEX_MAX_SHARE;
+    }
+
+    private void collectByDepartureTime(RideQuery query, RideCandidates candidates) {
+        departureIndex.forEachCandidate(query, ride -> {
+            if (query.boxesContain(ride)) {
+                candidates.add(ride);
+            }
+        });
+    }
+
+    private static TopKRideMatches join(Future<TopKRideMatches> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching ride schedules", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Ride schedule search failed", e.getCause());
+        }
+    }
+
+    private List<IndexedRide> loadAvailableRides() {
+        if (snapshotPath != null && !snapshotPath.isBlank() && Files.exists(Path.of(snapshotPath))) {
+            try {
+                return replay(RideIndexSnapshot.read(Path.of(snapshotPath)));
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable search index snapshot {}", snapshotPath, e);
+            }
+        }
+        return rideScheduleRepository.findAvailableCoordinates().stream().map(IndexedRide::from).toList();
+    }
+
+    /**
+     * Bring a snapshot up to date: drop rides that were deleted or became unavailable, and read the rides
+     * updated since the snapshot, or missing from it, from the database.
+     */
+    private List<IndexedRide> replay(RideIndexSnapshot snapshot) {
+        Map<Long, IndexedRide> current = new HashMap<>();
+        snapshot.rides().forEach(ride -> current.put(ride.id(), ride));
+
+        Set<Long> availableIds = new HashSet<>(rideScheduleRepository.findAvailableIds());
+        current.keySet().retainAll(availableIds);
+
+        LocalDateTime since = LocalDateTime.ofInstant(snapshot.takenAt().minus(SNAPSHOT_REPLAY_MARGIN), ZoneId.systemDefault());
+        List<IndexedRide> updated = rideScheduleRepository.findAvailableCoordinatesUpdatedAfter(since).stream().map(IndexedRide::from).toList();
+        updated.forEach(ride -> current.put(ride.id(), ride));
+
+        Set<Long> missingIds = new HashSet<>(availableIds);
+        missingIds.removeAll(current.keySet());
+        if (!missingIds.isEmpty()) {
+            rideScheduleRepository.findAvailableCoordinatesByIdIn(missingIds).stream()
+                    .map(IndexedRide::from)
+                    .forEach(ride -> current.put(ride.id(), ride));
+        }
+
+        log.info("Loaded search index snapshot taken at {} with {} rides; replayed {} updated and {} missing rides",
+                snapshot.takenAt(), snapshot.rides().size(), updated.size(), missingIds.size());
+        return List.copyOf(current.values());
+    }
+
+    private void removeEntry(Long rideScheduleId) {
+        IndexedRide existing = rides.remove(rideScheduleId);
+        if (existing != null) {
+            spatialIndex.remove(existing);
+            departureIndex.remove(existing);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchResultDTO;
+
+import java.util.List;
+
+/**
+ * One page of ride search results.
+ *
+ * @param results The results on this page, closest first
+ * @param nextCursor Cursor for the next page, or null if this is the last page
+ */
+public record RideSearchPage(List<RideScheduleSearchResultDTO> results, String nextCursor) {
+}
@@ -0,0 +1,61 @@
+package com.benorim.carhov.search;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Spatial structure over indexed rides. Implementations must allow concurrent queries while a single writer
+ * applies changes; callers serialize writes.
+ */
+public interface RideSpatialIndex {
+
+    /**
+     * Replace the contents of the index.
+     *
+     * @param rides Rides to index
+     */
+    void load(Collection<IndexedRide> rides);
+
+    void insert(IndexedRide ride);
+
+    /**
+     * Remove a ride. The ride must carry the same coordinates it was inserted with.
+     *
+     * @param ride The previously inserted ride
+     */
+    void remove(IndexedRide ride);
+
+    /**
+     * Visit rides that may match a query. Every ride inside both bounding boxes of the query is visited;
+     * rides outside them may be visited too, so callers still apply the exact distance check.
+     *
+     * @param query The ride query
+     * @param consumer Receives candidate rides
+     */
+    void forEachCandidate(RideQuery query, Consumer<IndexedRide> consumer);
+
+    /**
+     * Add the candidates of a query to a buffer. Implementations that store rides in columns override this
+     * to copy primitive values without creating a ride object per candidate.
+     *
+     * @param query The ride query
+     * @param candidates Receives candidate rides
+     */
+    default void collectCandidates(RideQuery query, RideCandidates candidates) {
+        forEachCandidate(query, candidates::add);
+    }
+
+    /**
+     * Add the candidates of several queries to one buffer each. Scan-based implementations override this to
+     * evaluate all queries in a single pass over their rides.
+     *
+     * @param queries The ride queries
+     * @param candidates Receives the candidates of the query at the same position
+     */
+    default void collectCandidates(List<RideQuery> queries, List<RideCandidates> candidates) {
+        for (int i = 0; i < queries.size(); i++) {
+            collectCandidates(queries.get(i), candidates.get(i));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.entity.SavedRideSearch;
+import com.benorim.carhov.repository.SavedRideSearchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory index of saved searches, used the other way round from {@link RideSearchIndex}: given a ride,
+ * find the saved searches it matches. Loaded from the database on first use and then kept up to date by
+ * {@code SavedRideSearchService}.
+ * <p>
+ * Like the ride search index, it is kept by one application instance: a saved search created through another
+ * instance is not matched against the rides written through this one until it restarts. Run a single instance,
+ * or route saved search and ride writes to the same one.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class SavedRideSearchIndex {
+
+    private static final double CELL_SIZE_DEGREES = 0.1;
+    private static final long MAX_CELLS_PER_SEARCH = 4096;
+
+    private final SavedRideSearchRepository savedRideSearchRepository;
+
+    private final RideQueryIndex<Long> queryIndex = new RideQueryIndex<>(CELL_SIZE_DEGREES, MAX_CELLS_PER_SEARCH);
+    private boolean loaded;
+
+    /**
+     * Find the saved searches whose start and end circles contain the start and end points of a ride.
+     *
+     * @param ride The ride
+     * @return IDs of the matching saved searches
+     */
+    public synchronized List<Long> findMatchingSearchIds(IndexedRide ride) {
+        ensureLoaded();
+        List<Long> savedRideSearchIds = new ArrayList<>();
+        queryIndex.forEachMatch(ride, savedRideSearchIds::add);
+        return savedRideSearchIds;
+    }
+
+    public synchronized void add(SavedRideSearch savedRideSearch) {
+        if (loaded) {
+            queryIndex.add(savedRideSearch.getId(), toQuery(savedRideSearch));
+        }
+    }
+
+    public synchronized void remove(Long savedRideSearchId) {
+        if (loaded) {
+            queryIndex.remove(savedRideSearchId);
+        }
+    }
+
+    public synchronized int size() {
+        return queryIndex.size();
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            savedRideSearchRepository.findAll()
+                    .forEach(savedRideSearch -> queryIndex.add(savedRideSearch.getId(), toQuery(savedRideSearch)));
+            loaded = true;
+            log.info("Loaded {} saved ride searches into the saved search index", queryIndex.size());
+        }
+    }
+
+    /**
+     * @return The query a ride must match to match the saved search
+     */
+    public static RideQuery toQuery(SavedRideSearch savedRideSearch) {
+        return RideQuery.of(savedRideSearch.getStartLatitude(), savedRideSearch.getStartLongitude(),
+                savedRideSearch.getEndLatitude(), savedRideSearch.getEndLongitude(), savedRideSearch.getRadiusInMiles());
+    }
+}
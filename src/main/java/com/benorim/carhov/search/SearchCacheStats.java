@@ -0,0 +1,22 @@
+package com.benorim.carhov.search;
+
+/**
+ * Counters of the ride search cache since startup.
+ *
+ * @param size Number of cached search pages
+ * @param maxSize Maximum number of cached search pages
+ * @param hits Searches answered from the cache
+ * @param misses Searches that had to be computed
+ * @param evictions Entries dropped to stay within the maximum size
+ * @param expirations Entries dropped because their time-to-live had passed
+ * @param invalidations Entries dropped because a matching ride was created, updated or deleted
+ * @param coalesced Searches that waited for an identical search already in flight instead of running their own
+ */
+public record SearchCacheStats(int size, int maxSize, long hits, long misses, long evictions, long expirations,
+                               long invalidations, long coalesced) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,56 @@
+package com.benorim.carhov.search;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Position of the last result of a search page in {@link RideMatch#RANKING} order. The next page starts at the
+ * first match ranked after it, so rides added or removed between requests do not shift later pages.
+ * Clients receive the cursor as an opaque URL-safe string.
+ */
+public record SearchCursor(double totalDistanceInMiles, long id) {
+
+    private static final int ENCODED_BYTES = Double.BYTES + Long.BYTES;
+
+    public static SearchCursor after(RideMatch match) {
+        return new SearchCursor(match.totalDistanceInMiles(), match.id());
+    }
+
+    /**
+     * @param cursor The encoded cursor, or null for the first page
+     * @return The decoded cursor, or null if none was given
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+        if (bytes.length != ENCODED_BYTES) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new SearchCursor(buffer.getDouble(), buffer.getLong());
+    }
+
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(ENCODED_BYTES)
+                .putDouble(totalDistanceInMiles)
+                .putLong(id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @param match A search match
+     * @return true if the match is ranked after this cursor and so belongs on a later page
+     */
+    public boolean isBefore(RideMatch match) {
+        int compare = Double.compare(totalDistanceInMiles, match.totalDistanceInMiles());
+        return compare < 0 || (compare == 0 && id < match.id());
+    }
+}
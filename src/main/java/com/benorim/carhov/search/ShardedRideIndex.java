@@ -0,0 +1,95 @@
+package com.benorim.carhov.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Rides split across several independent spatial indexes by the grid cell of their start point.
+ * Cells are hashed to shards, so the rides inside any wide search circle are spread over all shards
+ * and each shard can be searched on its own thread.
+ */
+public class ShardedRideIndex implements RideSpatialIndex {
+
+    private final GeoGrid grid;
+    private final RideSpatialIndex[] shards;
+
+    /**
+     * @param shardCount Number of shards
+     * @param cellSizeDegrees Size of the grid cells that are assigned to shards
+     * @param shardFactory Creates the index of each shard
+     */
+    public ShardedRideIndex(int shardCount, double cellSizeDegrees, Supplier<RideSpatialIndex> shardFactory) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.grid = new GeoGrid(cellSizeDegrees);
+        this.shards = new RideSpatialIndex[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = shardFactory.get();
+        }
+    }
+
+    @Override
+    public void load(Collection<IndexedRide> rides) {
+        List<List<IndexedRide>> partitions = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            partitions.add(new ArrayList<>(rides.size() / shards.length + 1));
+        }
+        rides.forEach(ride -> partitions.get(shardOf(ride)).add(ride));
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].load(partitions.get(i));
+        }
+    }
+
+    @Override
+    public void insert(IndexedRide ride) {
+        shards[shardOf(ride)].insert(ride);
+    }
+
+    @Override
+    public void remove(IndexedRide ride) {
+        shards[shardOf(ride)].remove(ride);
+    }
+
+    @Override
+    public void forEachCandidate(RideQuery query, Consumer<IndexedRide> consumer) {
+        for (RideSpatialIndex shard : shards) {
+            shard.forEachCandidate(query, consumer);
+        }
+    }
+
+    @Override
+    public void collectCandidates(RideQuery query, RideCandidates candidates) {
+        for (RideSpatialIndex shard : shards) {
+            shard.collectCandidates(query, candidates);
+        }
+    }
+
+    @Override
+    public void collectCandidates(List<RideQuery> queries, List<RideCandidates> candidates) {
+        for (RideSpatialIndex shard : shards) {
+            shard.collectCandidates(queries, candidates);
+        }
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @param index Shard number, from 0 to {@link #shardCount()} - 1
+     * @return The index holding the rides of that shard
+     */
+    public RideSpatialIndex shard(int index) {
+        return shards[index];
+    }
+
+    private int shardOf(IndexedRide ride) {
+        long cell = grid.cellOf(ride.startLatitude(), ride.startLongitude());
+        // Neighbouring cells have consecutive keys, which the multiplier scatters over the shards
+        return Math.floorMod(Long.hashCode(cell * 0x9E3779B97F4A7C15L), shards.length);
+    }
+}
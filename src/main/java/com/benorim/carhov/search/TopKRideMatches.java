@@ -0,0 +1,60 @@
+package com.benorim.carhov.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best {@code k} matches seen so far in a bounded max-heap, so ranking n matches costs
+ * O(n log k) time and O(k) memory instead of sorting all of them.
+ */
+public class TopKRideMatches {
+
+    private final int k;
+    private final SearchCursor after;
+    private final PriorityQueue<RideMatch> heap;
+
+    /**
+     * @param k Maximum number of matches to keep
+     * @param after Only matches ranked after this cursor are kept, or null to keep matches from the start
+     */
+    public TopKRideMatches(int k, SearchCursor after) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.after = after;
+        // The worst kept match sits at the head so it can be compared and evicted in O(log k)
+        this.heap = new PriorityQueue<>(Math.min(k, 1024), RideMatch.RANKING.reversed());
+    }
+
+    public void offer(RideMatch match) {
+        if (after != null && !after.isBefore(match)) {
+            return;
+        }
+        if (heap.size() < k) {
+            heap.add(match);
+        } else if (RideMatch.RANKING.compare(match, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(match);
+        }
+    }
+
+    /**
+     * Merge the matches kept by another collector, e.g. one that ranked a different shard of the index.
+     *
+     * @param other The other collector
+     */
+    public void offerAll(TopKRideMatches other) {
+        other.heap.forEach(this::offer);
+    }
+
+    /**
+     * @return The kept matches in ranking order
+     */
+    public List<RideMatch> toSortedList() {
+        List<RideMatch> sorted = new ArrayList<>(heap);
+        sorted.sort(RideMatch.RANKING);
+        return sorted;
+    }
+}
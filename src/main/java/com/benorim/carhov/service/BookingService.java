@@ -1,5 +1,6 @@
 package com.benorim.carhov.service;
 
+import com.benorim.carhov.aspect.RetryOnOptimisticLock;
 import com.benorim.carhov.dto.booking.CreateBookingDTO;
 import com.benorim.carhov.dto.booking.UpdateBookingDTO;
 import com.benorim.carhov.entity.Booking;
@@ -9,21 +10,27 @@ import com.benorim.carhov.enums.BookingStatus;
 import com.benorim.carhov.enums.DayOfWeek;
 import com.benorim.carhov.exception.BookingException;
 import com.benorim.carhov.exception.DataOwnershipException;
-import com.benorim.carhov.mapper.BookingMapper;
 import com.benorim.carhov.repository.BookingRepository;
 import com.benorim.carhov.repository.CarHovUserRepository;
 import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.search.IndexedRide;
+import com.benorim.carhov.search.RideSearchCache;
+import com.benorim.carhov.util.AfterCommit;
+import com.benorim.carhov.util.DayOfWeekMask;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.NotImplementedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
 
 import static com.benorim.carhov.enums.BookingStatus.PENDING;
 
@@ -35,21 +42,34 @@ import static com.benorim.carhov.enums.BookingStatus.PENDING;
 @RequiredArgsConstructor
 public class BookingService {
 
+    public static final int MAX_AVAILABILITY_BATCH = 100;
+
     private final BookingRepository bookingRepository;
     private final RideScheduleRepository rideScheduleRepository;
     private final CarHovUserRepository carHovUserRepository;
     private final AuthService authService;
+    private final RideSearchViewService rideSearchViewService;
+    private final SeatInventoryService seatInventoryService;
+    private final RideSearchCache rideSearchCache;
+    private final SeatLockManager seatLockManager;
+    private final TransactionTemplate transactionTemplate;
 
     /**
-     * Create a new booking
+     * Create a new booking. Bookings of the same ride are made one at a time, each in its own transaction.
      *
      * @param createBookingDTO The booking data to create
      * @return The created booking
      * @throws IllegalArgumentException if the ride schedule or user doesn't exist
      * @throws IllegalStateException if there are not enough seats available
      */
-    @Transactional
+    @RetryOnOptimisticLock
     public Booking createBooking(CreateBookingDTO createBookingDTO) {
+        // The lock is taken outside the transaction, so the next booking of the ride starts after this one committed
+        return seatLockManager.withLock(createBookingDTO.getRideScheduleId(),
+                () -> transactionTemplate.execute(status -> insertBooking(createBookingDTO)));
+    }
+
+    private Booking insertBooking(CreateBookingDTO createBookingDTO) {
         log.info("Creating new booking for user ID: {} and ride schedule ID: {}", 
                 createBookingDTO.getUserId(), createBookingDTO.getRideScheduleId());
 
@@ -69,50 +89,39 @@ public class BookingService {
         }
 
         // Check if the requested days are valid for this ride schedule
-        validateRequestedDays(createBookingDTO.getBookedDays(), rideSchedule.getDayList());
+        validateRequestedDays(createBookingDTO.getBookedDays(), rideSchedule);
         
         // Check if user has already booked this ride for any of the requested days
         List<Booking> existingBookings = bookingRepository.findByCarHovUserIdAndRideScheduleId(user.getId(), rideSchedule.getId());
         if (!existingBookings.isEmpty()) {
             // Check for day conflicts
-            Set<DayOfWeek> requestedDays = new HashSet<>(createBookingDTO.getBookedDays());
+            int requestedDays = DayOfWeekMask.of(createBookingDTO.getBookedDays());
             
             for (Booking existingBooking : existingBookings) {
-                List<DayOfWeek> existingDays = BookingMapper.convertStringToDayList(existingBooking.getBookedDays());
-                
-                for (DayOfWeek day : existingDays) {
-                    if (requestedDays.contains(day)) {
-                        throw new BookingException("User has already booked this ride on " + day);
-                    }
+                int conflictingDays = existingBooking.getBookedDaysMask() & requestedDays;
+                if (conflictingDays != DayOfWeekMask.NONE) {
+                    throw new BookingException("User has already booked this ride on " + DayOfWeekMask.toList(conflictingDays).getFirst());
                 }
             }
         }
         
-        // Check if there are enough seats available for each requested day
-        for (DayOfWeek day : createBookingDTO.getBookedDays()) {
-            Integer seatsBookedForDay = bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(
-                    rideSchedule.getId(), day.name());
-            int totalSeatsBookedForDay = (seatsBookedForDay != null) ? seatsBookedForDay : 0;
-            
-            if (rideSchedule.getAvailableSeats() < totalSeatsBookedForDay + createBookingDTO.getSeatsBooked()) {
-                throw new IllegalStateException("Not enough seats available for " + day.name());
-            }
-        }
-        
-        // Convert days list to string
-        String bookedDaysString = BookingMapper.convertDayListToString(createBookingDTO.getBookedDays());
+        // Take the seats on each requested day, failing if any day has too few left
+        seatInventoryService.reserve(rideSchedule, createBookingDTO.getBookedDays(), createBookingDTO.getSeatsBooked());
         
         // Create the booking with default PENDING status
         Booking booking = Booking.builder()
                 .rideSchedule(rideSchedule)
                 .carHovUser(user)
                 .seatsBooked(createBookingDTO.getSeatsBooked())
-                .bookedDays(bookedDaysString)
+                .bookedDaysMask(DayOfWeekMask.of(createBookingDTO.getBookedDays()))
                 .status(PENDING)
                 .createdAt(LocalDateTime.now())
                 .build();
         
-        return bookingRepository.save(booking);
+        Booking savedBooking = bookingRepository.save(booking);
+        rideSearchViewService.seatsReserved(savedBooking);
+        seatsChanged(rideSchedule);
+        return savedBooking;
     }
 
     /**
@@ -221,6 +230,11 @@ public class BookingService {
                     }
                     // TODO: rather than delete, let's cancel? API that uses this service can be deleted and this can be used for clean up job
                     bookingRepository.delete(booking);
+                    if (booking.getStatus().holdsSeats()) {
+                        seatInventoryService.release(booking);
+                        rideSearchViewService.seatsReleased(booking);
+                        seatsChanged(booking.getRideSchedule());
+                    }
                     return true;
                 })
                 .orElse(false);
@@ -287,10 +301,38 @@ public class BookingService {
      * @return The total number of seats booked for that day
      */
     public int getTotalSeatsBookedForDay(Long rideScheduleId, DayOfWeek day) {
-        Integer seatsBooked = bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(rideScheduleId, day.name());
+        Integer seatsBooked = bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(rideScheduleId, DayOfWeekMask.bit(day));
         return (seatsBooked != null) ? seatsBooked : 0;
     }
     
+    /**
+     * Get the seats left on each day of a ride schedule. The seats are read from the search read model,
+     * which keeps them per day, so this is a single lookup rather than one aggregate per day.
+     *
+     * @param rideScheduleId The ID of the ride schedule
+     * @return Seats left by day, empty for a ride that is not available, or empty if the ride schedule doesn't exist
+     */
+    public Optional<Map<DayOfWeek, Integer>> getAvailability(Long rideScheduleId) {
+        return Optional.ofNullable(getAvailability(List.of(rideScheduleId)).get(rideScheduleId));
+    }
+
+    /**
+     * Get the seats left on each day of several ride schedules with one query, e.g. for a page of search results.
+     *
+     * @param rideScheduleIds IDs of at most {@value #MAX_AVAILABILITY_BATCH} ride schedules
+     * @return Seats left by day for each ride schedule that exists, by ID
+     * @throws IllegalArgumentException if too many IDs are given
+     */
+    public Map<Long, Map<DayOfWeek, Integer>> getAvailability(Collection<Long> rideScheduleIds) {
+        if (rideScheduleIds.size() > MAX_AVAILABILITY_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_AVAILABILITY_BATCH + " ride schedules can be checked at once");
+        }
+        Map<Long, Map<DayOfWeek, Integer>> availability = new LinkedHashMap<>();
+        rideSearchViewService.findByIds(new LinkedHashSet<>(rideScheduleIds)).forEach((id, view) ->
+                availability.put(id, view.isAvailable() ? view.getRemainingSeatsByDay() : Map.of()));
+        return availability;
+    }
+
     /**
      * Accept a booking by the ride schedule owner
      *
@@ -299,6 +341,7 @@ public class BookingService {
      * @throws IllegalArgumentException if the booking doesn't exist
      * @throws DataOwnershipException if the user is not the owner of the ride schedule
      */
+    @RetryOnOptimisticLock
     @Transactional
     public Booking acceptBooking(Long bookingId) {
         Long userId = authService.getSignedInUserId();
@@ -335,6 +378,7 @@ public class BookingService {
      * @throws IllegalArgumentException if the booking doesn't exist
      * @throws DataOwnershipException if the user is not the owner of the ride schedule
      */
+    @RetryOnOptimisticLock
     @Transactional
     public Booking rejectBooking(Long bookingId) {
         Long userId = authService.getSignedInUserId();
@@ -360,7 +404,12 @@ public class BookingService {
         booking.setStatus(BookingStatus.REJECTED);
         booking.setStatusUpdateDate(LocalDateTime.now());
         
-        return bookingRepository.save(booking);
+        Booking savedBooking = bookingRepository.save(booking);
+        // The rejected seats are free again
+        seatInventoryService.release(booking);
+        rideSearchViewService.seatsReleased(booking);
+        seatsChanged(rideSchedule);
+        return savedBooking;
     }
     
     /**
@@ -387,6 +436,7 @@ public class BookingService {
      * @throws IllegalArgumentException if the booking doesn't exist
      * @throws DataOwnershipException if the user is not the owner of the booking
      */
+    @RetryOnOptimisticLock
     @Transactional
     public Booking cancelBooking(Long bookingId) {
         Long userId = authService.getSignedInUserId();
@@ -405,14 +455,32 @@ public class BookingService {
             throw new IllegalStateException("Booking is already cancelled");
         }
         
+        boolean heldSeats = booking.getStatus().holdsSeats();
+
         // Update the booking status
         booking.setStatus(BookingStatus.CANCELLED);
         booking.setCancellationDate(LocalDateTime.now());
         booking.setStatusUpdateDate(LocalDateTime.now());
         
-        return bookingRepository.save(booking);
+        Booking savedBooking = bookingRepository.save(booking);
+        // The cancelled seats are free again
+        if (heldSeats) {
+            seatInventoryService.release(booking);
+            rideSearchViewService.seatsReleased(booking);
+            seatsChanged(booking.getRideSchedule());
+        }
+        return savedBooking;
     }
     
+    /**
+     * Drop cached search pages that show the ride once the change of its seats left has committed, so a page
+     * read from the old seats meanwhile is not cached.
+     */
+    private void seatsChanged(RideSchedule rideSchedule) {
+        IndexedRide position = IndexedRide.from(rideSchedule);
+        AfterCommit.run(() -> rideSearchCache.invalidate(List.of(position)));
+    }
+
     /**
      * Validate that the requested days are a subset of the available days
      *
@@ -420,11 +488,9 @@ public class BookingService {
      * @param availableDays The days available for the ride schedule
      * @throws IllegalArgumentException if any requested day is not available
      */
-    private void validateRequestedDays(List<DayOfWeek> requestedDays, List<DayOfWeek> availableDays) {
-        Set<DayOfWeek> availableDaysSet = new HashSet<>(availableDays);
-        
+    private void validateRequestedDays(List<DayOfWeek> requestedDays, RideSchedule rideSchedule) {
         for (DayOfWeek day : requestedDays) {
-            if (!availableDaysSet.contains(day)) {
+            if (!rideSchedule.runsOn(day)) {
                 throw new IllegalArgumentException("Day " + day + " is not available for this ride schedule");
             }
         }
@@ -20,6 +20,7 @@ public class CarHovUserService {
     private final CarHovUserRepository carHovUserRepository;
     private final RefreshTokenRepository refreshTokenRepository;
     private final PasswordEncoder encoder;
+    private final RideSearchViewService rideSearchViewService;
 
     public CarHovUser createUser(CarHovUser user) {
         log.info("Creating new user: {}", user);
@@ -55,7 +56,11 @@ public class CarHovUserService {
                     existingUser.setAccountNonLocked(updatedUser.isAccountNonLocked());
                     existingUser.setAccountNonExpired(updatedUser.isAccountNonExpired());
                     
-                    return carHovUserRepository.save(existingUser);
+                    CarHovUser savedUser = carHovUserRepository.save(existingUser);
+                    if (updatedUser.getDisplayName() != null) {
+                        rideSearchViewService.renameDriver(savedUser.getId(), savedUser.getDisplayName());
+                    }
+                    return savedUser;
                 });
     }
     
@@ -1,35 +1,70 @@
 package com.benorim.carhov.service;
 
+import com.benorim.carhov.aspect.RetryOnOptimisticLock;
 import com.benorim.carhov.dto.rideSchedule.CreateRideScheduleDTO;
+import com.benorim.carhov.dto.rideSchedule.RideSchedulePage;
 import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchResultDTO;
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchRow;
 import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
 import com.benorim.carhov.entity.CarHovUser;
 import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.RideSearchView;
 import com.benorim.carhov.entity.Vehicle;
 import com.benorim.carhov.exception.DataOwnershipException;
 import com.benorim.carhov.mapper.RideScheduleMapper;
 import com.benorim.carhov.repository.CarHovUserRepository;
 import com.benorim.carhov.repository.RideScheduleRepository;
 import com.benorim.carhov.repository.VehicleRepository;
+import com.benorim.carhov.search.IndexedRide;
+import com.benorim.carhov.search.RideMatch;
+import com.benorim.carhov.search.RideQuery;
+import com.benorim.carhov.search.RideSearchCache;
+import com.benorim.carhov.search.RideSearchIndex;
+import com.benorim.carhov.search.RideSearchPage;
+import com.benorim.carhov.search.SearchCursor;
+import com.benorim.carhov.search.TopKRideMatches;
+import com.benorim.carhov.util.AfterCommit;
 import com.benorim.carhov.util.GeoUtils;
+import com.benorim.carhov.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class RideScheduleService {
 
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    public static final int MAX_PAGE_LIMIT = 500;
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean searchIndexEnabled = true;
+
     private final RideScheduleRepository rideScheduleRepository;
     private final CarHovUserRepository carHovUserRepository;
     private final VehicleRepository vehicleRepository;
     private final AuthService authService;
+    private final RideSearchIndex rideSearchIndex;
+    private final RideSearchCache rideSearchCache;
+    private final SavedRideSearchService savedRideSearchService;
+    private final RideSearchViewService rideSearchViewService;
+    private final SeatInventoryService seatInventoryService;
 
+    @Transactional
     public RideSchedule createRideSchedule(CreateRideScheduleDTO createRideScheduleDTO) {
         log.info("Creating new ride schedule for user ID: {}", createRideScheduleDTO.getUserId());
         
@@ -47,7 +82,16 @@ public class RideScheduleService {
 
         RideSchedule rideSchedule = RideScheduleMapper.toEntity(createRideScheduleDTO, user, vehicle);
         
-        return rideScheduleRepository.save(rideSchedule);
+        RideSchedule savedRideSchedule = rideScheduleRepository.save(rideSchedule);
+        rideSearchViewService.refresh(savedRideSchedule);
+        savedRideSearchService.matchRideSchedule(savedRideSchedule);
+        // Searches see the ride only once it is committed, so a rollback leaves no ride in the index
+        IndexedRide position = IndexedRide.from(savedRideSchedule);
+        AfterCommit.run(() -> {
+            rideSearchIndex.upsert(savedRideSchedule);
+            rideSearchCache.invalidate(List.of(position));
+        });
+        return savedRideSchedule;
     }
     
     public Optional<RideSchedule> findRideScheduleById(Long rideScheduleId) {
@@ -60,12 +104,55 @@ public class RideScheduleService {
         return rideScheduleRepository.findAll();
     }
     
+    /**
+     * Find one page of ride schedules in ID order. Pages are read by keyset, so every page costs the same.
+     * Only the result columns are read, not the user and vehicle entities.
+     *
+     * @param limit Maximum number of ride schedules on the page, from 1 to {@value #MAX_PAGE_LIMIT}
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @return The page with the cursor of the next page
+     */
+    public RideSchedulePage findRideSchedulePage(int limit, String cursor) {
+        log.info("Finding a page of {} ride schedules", limit);
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_LIMIT);
+        }
+        // One extra row tells whether there is a next page
+        List<RideScheduleSearchRow> rows = rideScheduleRepository.findSearchRowsByIdGreaterThan(KeysetCursor.decode(cursor), Limit.of(limit + 1));
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            nextCursor = KeysetCursor.encode(rows.getLast().id());
+        }
+        return new RideSchedulePage(rows.stream().map(RideScheduleMapper::toDTO).toList(), nextCursor);
+    }
+
+    /**
+     * Visit every ride schedule in ID order through a database cursor, for full exports. Rows are fetched in
+     * batches and not kept, so memory use does not grow with the number of ride schedules.
+     *
+     * @param consumer Receives each ride schedule
+     */
+    @Transactional(readOnly = true)
+    public void exportRideSchedules(Consumer<RideScheduleSearchRow> consumer) {
+        log.info("Exporting all ride schedules");
+        try (Stream<RideScheduleSearchRow> rows = rideScheduleRepository.streamAllSearchRows()) {
+            rows.forEach(consumer);
+        }
+    }
+
+    @RetryOnOptimisticLock
+    @Transactional
     public Optional<RideSchedule> updateRideSchedule(Long rideScheduleId, RideSchedule updatedRideSchedule) {
         log.info("Updating ride schedule with ID: {}", rideScheduleId);
+        // Read without a row lock: a concurrent update is caught by the version check when this one is flushed,
+        // and the attempt is retried
         return rideScheduleRepository.findById(rideScheduleId)
                 .map(existingRideSchedule -> {
                     CarHovUser user = existingRideSchedule.getUser();
                     authService.isRequestMadeByLoggedInUser(user);
+                    IndexedRide previousPosition = IndexedRide.from(existingRideSchedule);
+                    int previousSeats = existingRideSchedule.getAvailableSeats();
                     // Only update fields that are provided
                     if (updatedRideSchedule.getStartLatitude() != 0) {
                         existingRideSchedule.setStartLatitude(updatedRideSchedule.getStartLatitude());
@@ -93,17 +180,41 @@ public class RideScheduleService {
                         existingRideSchedule.setAvailable(updatedRideSchedule.isAvailable());
                     }
                     
-                    return rideScheduleRepository.save(existingRideSchedule);
+                    savedRideSearchService.matchRideSchedule(existingRideSchedule);
+                    // The versioned update is flushed right before the seat inventory is shifted. The row it writes
+                    // stays locked only from here to the commit, and makes a first booking of a day wait for it,
+                    // so the booking creates the inventory of the day from the new seats rather than the old ones
+                    RideSchedule savedRideSchedule = rideScheduleRepository.saveAndFlush(existingRideSchedule);
+                    seatInventoryService.seatsChanged(rideScheduleId, previousSeats, savedRideSchedule.getAvailableSeats());
+                    rideSearchViewService.refresh(savedRideSchedule);
+                    // Applied only once the update commits: an attempt rolled back for a retry leaves the index
+                    // and the cache alone. Searches around both the old and the new route may have changed.
+                    IndexedRide position = IndexedRide.from(savedRideSchedule);
+                    AfterCommit.run(() -> {
+                        rideSearchIndex.upsert(savedRideSchedule);
+                        rideSearchCache.invalidate(List.of(previousPosition, position));
+                    });
+                    return savedRideSchedule;
                 });
     }
     
+    @Transactional
     public boolean deleteRideSchedule(Long rideScheduleId) {
         log.info("Deleting ride schedule with ID: {}", rideScheduleId);
-        return rideScheduleRepository.findById(rideScheduleId)
+        // Locked before the seat inventory and the search view rows, in the same order as updates and bookings
+        return rideScheduleRepository.findByIdForUpdate(rideScheduleId)
                 .map(rideSchedule -> {
                     CarHovUser user = rideSchedule.getUser();
                     authService.isRequestMadeByLoggedInUser(user);
+                    savedRideSearchService.removeMatches(rideSchedule.getId());
+                    seatInventoryService.remove(rideSchedule.getId());
                     rideScheduleRepository.delete(rideSchedule);
+                    rideSearchViewService.remove(rideSchedule.getId());
+                    IndexedRide position = IndexedRide.from(rideSchedule);
+                    AfterCommit.run(() -> {
+                        rideSearchIndex.remove(rideSchedule.getId());
+                        rideSearchCache.invalidate(List.of(position));
+                    });
                     return true;
                 })
                 .orElse(false);
@@ -126,46 +237,212 @@ public class RideScheduleService {
                 searchCriteria.getEndLatitude(), searchCriteria.getEndLongitude(),
                 searchCriteria.getRadiusInMiles());
         
-        // Get all available ride schedules
-        // TODO: Optimization, we probably don't want to get all available rides all over the country
-        List<RideSchedule> allRideSchedules = rideScheduleRepository.findByAvailableTrue();
-        
-        // Filter ride schedules based on proximity to start and end points
-        return allRideSchedules.stream()
-                .filter(rideSchedule -> 
-                    // Check if ride schedule start point is within radius of search start point
-                    GeoUtils.isWithinRadius(
-                        searchCriteria.getStartLatitude(), searchCriteria.getStartLongitude(),
-                        rideSchedule.getStartLatitude(), rideSchedule.getStartLongitude(),
-                        searchCriteria.getRadiusInMiles()
-                    ) &&
-                    // Check if ride schedule end point is within radius of search end point
-                    GeoUtils.isWithinRadius(
-                        searchCriteria.getEndLatitude(), searchCriteria.getEndLongitude(),
-                        rideSchedule.getEndLatitude(), rideSchedule.getEndLongitude(),
-                        searchCriteria.getRadiusInMiles()
-                    )
-                )
+        return findMatchingRideSchedules(searchCriteria).stream()
+                .map(MatchedRideSchedule::rideSchedule)
                 .collect(Collectors.toList());
     }
     
     /**
-     * Search for ride schedules and return detailed results with distance information.
+     * Search for ride schedules and return one page of detailed results with distance information, closest first.
+     * Matches are ranked in a heap bounded by the page size and only the returned page is loaded and mapped.
+     * Pages are cached by {@link RideSearchCache}, which snaps the search coordinates to a fine grid.
      *
-     * @param searchCriteria The search criteria containing start/end coordinates and search radius
-     * @return List of ride schedule search results with distance information
+     * @param searchCriteria The search criteria containing start/end coordinates, search radius, limit and cursor
+     * @return Page of ride schedule search results with the cursor of the next page
      */
-    public List<RideScheduleSearchResultDTO> searchRideSchedulesWithDetails(SearchRideScheduleDTO searchCriteria) {
+    public RideSearchPage searchRideSchedulesWithDetails(SearchRideScheduleDTO searchCriteria) {
         log.info("Searching for ride schedules with details near start: ({}, {}) and end: ({}, {}), radius: {} miles",
                 searchCriteria.getStartLatitude(), searchCriteria.getStartLongitude(),
                 searchCriteria.getEndLatitude(), searchCriteria.getEndLongitude(),
                 searchCriteria.getRadiusInMiles());
-        
-        List<RideSchedule> matchingRideSchedules = searchRideSchedules(searchCriteria);
-        
-        return matchingRideSchedules.stream()
-                .map(rideSchedule -> RideScheduleMapper.toSearchResultDTO(rideSchedule, searchCriteria))
-                .sorted((r1, r2) -> Double.compare(r1.getTotalDistanceInMiles(), r2.getTotalDistanceInMiles())) // Sort by total distance
-                .collect(Collectors.toList());
+
+        return rideSearchCache.get(searchCriteria, this::findSearchPage);
+    }
+
+    /**
+     * Run several searches in one request, e.g. the outbound and return legs of a commute. The candidates of all
+     * searches are collected in one pass over the index and the rides on all pages are loaded with a single query.
+     *
+     * @param searches The search criteria
+     * @return One page of results per search, in the order of {@code searches}
+     */
+    public List<RideSearchPage> searchRideSchedulesWithDetails(List<SearchRideScheduleDTO> searches) {
+        log.info("Searching for ride schedules with details for a batch of {} searches", searches.size());
+        return rideSearchCache.getAll(searches, this::findSearchPages);
+    }
+
+    private RideSearchPage findSearchPage(SearchRideScheduleDTO searchCriteria) {
+        int limit = limitOf(searchCriteria);
+        SearchCursor after = SearchCursor.decode(searchCriteria.getCursor());
+        Map<Long, RideSearchView> loadedViews = new HashMap<>();
+        // One extra match tells whether there is a next page
+        if (searchIndexEnabled) {
+            List<RideMatch> ranked = rideSearchIndex.findTopMatches(searchCriteria, limit + 1, after);
+            // Results are read from the search read model, and only for the rides on this page
+            return toSearchPage(searchCriteria, ranked, loadSearchViews(ranked));
+        }
+        TopKRideMatches topMatches = new TopKRideMatches(limit + 1, after);
+        searchRideSchedulesInDatabase(searchCriteria, loadedViews).forEach(topMatches::offer);
+        return RankedPage.of(topMatches.toSortedList(), limit).toSearchPage(loadedViews);
+    }
+
+    private List<RideSearchPage> findSearchPages(List<SearchRideScheduleDTO> searches) {
+        List<TopKRideMatches> topMatches = searches.stream()
+                .map(searchCriteria -> new TopKRideMatches(limitOf(searchCriteria) + 1, SearchCursor.decode(searchCriteria.getCursor())))
+                .toList();
+        Map<Long, RideSearchView> loadedViews = new HashMap<>();
+        if (searchIndexEnabled) {
+            rideSearchIndex.findTopMatches(searches, topMatches);
+        } else {
+            for (int i = 0; i < searches.size(); i++) {
+                searchRideSchedulesInDatabase(searches.get(i), loadedViews).forEach(topMatches.get(i)::offer);
+            }
+        }
+
+        List<List<RideMatch>> ranked = topMatches.stream().map(TopKRideMatches::toSortedList).toList();
+        List<RideSearchPage> pages = new ArrayList<>(searches.size());
+        if (searchIndexEnabled) {
+            // Rides shared by several pages, e.g. a driver doing both legs of a commute, are read once
+            Map<Long, RideSearchView> viewsById = loadSearchViews(ranked.stream().flatMap(List::stream).toList());
+            for (int i = 0; i < searches.size(); i++) {
+                pages.add(toSearchPage(searches.get(i), ranked.get(i), viewsById));
+            }
+        } else {
+            for (int i = 0; i < searches.size(); i++) {
+                pages.add(RankedPage.of(ranked.get(i), limitOf(searches.get(i))).toSearchPage(loadedViews));
+            }
+        }
+        return pages;
+    }
+
+    /**
+     * Build a page from the best ranked matches of the index. A ride deleted since the index was read has no
+     * search view and is skipped; the index is then asked for the matches ranked after it, so that a page
+     * shorter than the limit is always the last one.
+     *
+     * @param searchCriteria The search criteria
+     * @param ranked Up to {@code limit + 1} matches of the search in ranking order
+     * @param viewsById The search views read for the matches
+     * @return The page of results with the cursor of the next page
+     */
+    private RideSearchPage toSearchPage(SearchRideScheduleDTO searchCriteria, List<RideMatch> ranked,
+                                        Map<Long, RideSearchView> viewsById) {
+        int limit = limitOf(searchCriteria);
+        int requested = limit + 1;
+        List<RideMatch> available = new ArrayList<>(requested);
+        List<RideMatch> batch = ranked;
+        while (true) {
+            for (RideMatch match : batch) {
+                if (viewsById.containsKey(match.id())) {
+                    available.add(match);
+                }
+            }
+            if (available.size() > limit || batch.size() < requested) {
+                break;
+            }
+            requested = limit + 1 - available.size();
+            batch = rideSearchIndex.findTopMatches(searchCriteria, requested, SearchCursor.after(batch.getLast()));
+            viewsById = new HashMap<>(viewsById);
+            viewsById.putAll(loadSearchViews(batch));
+        }
+        return RankedPage.of(available, limit).toSearchPage(viewsById);
+    }
+
+    private static int limitOf(SearchRideScheduleDTO searchCriteria) {
+        return searchCriteria.getLimit() != null ? searchCriteria.getLimit() : DEFAULT_SEARCH_LIMIT;
+    }
+
+    private List<MatchedRideSchedule> findMatchingRideSchedules(SearchRideScheduleDTO searchCriteria) {
+        // Only rides near both search points are considered; just the matching rows are loaded
+        List<RideMatch> matches = findMatches(searchCriteria, new HashMap<>());
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, RideSchedule> rideSchedulesById = rideScheduleRepository.findAllById(matches.stream().map(RideMatch::id).toList())
+                .stream()
+                .collect(Collectors.toMap(RideSchedule::getId, Function.identity()));
+
+        // A ride deleted since it was matched is skipped
+        return matches.stream()
+                .filter(match -> rideSchedulesById.containsKey(match.id()))
+                .map(match -> new MatchedRideSchedule(rideSchedulesById.get(match.id()), match))
+                .toList();
+    }
+
+    /**
+     * Find the rides matching a search, with the index or, when it is disabled, with the database.
+     *
+     * @param searchCriteria The search criteria
+     * @param loadedViews Receives the search views read from the database, if any
+     * @return Matching rides with their distances
+     */
+    private List<RideMatch> findMatches(SearchRideScheduleDTO searchCriteria, Map<Long, RideSearchView> loadedViews) {
+        if (searchIndexEnabled) {
+            return rideSearchIndex.findMatches(searchCriteria);
+        }
+        return searchRideSchedulesInDatabase(searchCriteria, loadedViews);
+    }
+
+    private Map<Long, RideSearchView> loadSearchViews(List<RideMatch> matches) {
+        return rideSearchViewService.findByIds(matches.stream().map(RideMatch::id).distinct().toList());
+    }
+
+    /**
+     * Search the database directly, for deployments where the in-memory index is disabled.
+     * Only rides inside the bounding boxes of both search circles are read from the search read model
+     * before the exact distance check.
+     */
+    private List<RideMatch> searchRideSchedulesInDatabase(SearchRideScheduleDTO searchCriteria, Map<Long, RideSearchView> loadedViews) {
+        double radius = searchCriteria.getRadiusInMiles();
+        List<RideSearchView> candidates = rideSearchViewService.findCandidates(RideQuery.from(searchCriteria));
+
+        List<RideMatch> matches = new ArrayList<>();
+        for (RideSearchView view : candidates) {
+            double startDistance = GeoUtils.calculateDistanceInMiles(
+                    searchCriteria.getStartLatitude(), searchCriteria.getStartLongitude(),
+                    view.getStartLatitude(), view.getStartLongitude());
+            if (startDistance > radius) {
+                continue;
+            }
+            double endDistance = GeoUtils.calculateDistanceInMiles(
+                    searchCriteria.getEndLatitude(), searchCriteria.getEndLongitude(),
+                    view.getEndLatitude(), view.getEndLongitude());
+            if (endDistance <= radius) {
+                matches.add(new RideMatch(view.getId(), startDistance, endDistance));
+                loadedViews.put(view.getId(), view);
+            }
+        }
+        return matches;
+    }
+
+    private record MatchedRideSchedule(RideSchedule rideSchedule, RideMatch match) {
+    }
+
+    /**
+     * The ranked matches of one page, with the cursor of the next page.
+     */
+    private record RankedPage(List<RideMatch> matches, String nextCursor) {
+
+        /**
+         * @param ranked Up to {@code limit + 1} matches in ranking order, each with a search view; an extra match
+         *               means there is a next page
+         * @param limit The page size
+         */
+        static RankedPage of(List<RideMatch> ranked, int limit) {
+            if (ranked.size() <= limit) {
+                return new RankedPage(ranked, null);
+            }
+            List<RideMatch> page = ranked.subList(0, limit);
+            return new RankedPage(page, SearchCursor.after(page.get(limit - 1)).encode());
+        }
+
+        RideSearchPage toSearchPage(Map<Long, RideSearchView> viewsById) {
+            // Distances computed while matching are reused rather than recalculated for each result
+            List<RideScheduleSearchResultDTO> results = matches.stream()
+                    .map(match -> RideScheduleMapper.toSearchResultDTO(viewsById.get(match.id()),
+                            match.startDistanceInMiles(), match.endDistanceInMiles()))
+                    .collect(Collectors.toList());
+            return new RideSearchPage(results, nextCursor);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,234 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.entity.Booking;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.RideSearchView;
+import com.benorim.carhov.enums.BookingStatus;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.repository.BookingRepository;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.repository.RideSearchViewRepository;
+import com.benorim.carhov.search.GeoGrid;
+import com.benorim.carhov.search.RideQuery;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the {@link RideSearchView} read model from ride schedule, booking and user write events,
+ * and answers the database reads of ride search from it.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RideSearchViewService {
+
+    // Bookings in these statuses hold their seats
+    private static final Set<BookingStatus> SEAT_HOLDING_STATUSES = Set.of(BookingStatus.PENDING, BookingStatus.ACCEPTED);
+
+    private static final GeoGrid START_CELL_GRID = new GeoGrid(0.1);
+
+    // Wider searches filter on the coordinates alone rather than list every start cell
+    private static final int MAX_START_CELLS = 64;
+
+    private static final int REBUILD_PAGE_SIZE = 500;
+
+    private final RideSearchViewRepository rideSearchViewRepository;
+    private final RideScheduleRepository rideScheduleRepository;
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Write the current state of a ride schedule and the seats left after its bookings to the read model.
+     * Call in the transaction that saved the ride schedule.
+     *
+     * @param rideSchedule The saved ride schedule
+     */
+    @Transactional
+    public void refresh(RideSchedule rideSchedule) {
+        // The row lock orders this write with the seat changes of bookings: a booking that changed the row first
+        // has committed before the bookings are read below, and one that changes it later applies its seats on top
+        rideSearchViewRepository.findByIdForUpdate(rideSchedule.getId());
+        List<Booking> bookings = bookingRepository.findByRideScheduleIdAndStatusIn(rideSchedule.getId(), SEAT_HOLDING_STATUSES);
+        rideSearchViewRepository.save(toView(rideSchedule, bookings));
+    }
+
+    /**
+     * Take the seats of a new booking from the read model. Call in the transaction that saved the booking.
+     *
+     * @param booking The saved booking
+     */
+    public void seatsReserved(Booking booking) {
+        rideSearchViewRepository.addRemainingSeats(booking.getRideSchedule().getId(), booking.getBookedDaysMask(), -booking.getSeatsBooked());
+    }
+
+    /**
+     * Give the seats of a rejected, cancelled or deleted booking back to the read model. Call in the transaction
+     * that changed the booking, and only if the booking held its seats.
+     *
+     * @param booking The booking that no longer holds seats
+     */
+    public void seatsReleased(Booking booking) {
+        rideSearchViewRepository.addRemainingSeats(booking.getRideSchedule().getId(), booking.getBookedDaysMask(), booking.getSeatsBooked());
+    }
+
+    /**
+     * @param rideScheduleId The ID of the deleted ride schedule
+     */
+    public void remove(Long rideScheduleId) {
+        rideSearchViewRepository.deleteById(rideScheduleId);
+    }
+
+    /**
+     * Copy a new display name of a driver to the read model of their rides.
+     *
+     * @param userId The ID of the driver
+     * @param displayName The new display name
+     */
+    public void renameDriver(Long userId, String displayName) {
+        rideSearchViewRepository.updateUserDisplayName(userId, displayName);
+    }
+
+    /**
+     * Rebuild the read model from the ride schedules and bookings, e.g. after it was added to an existing database.
+     * Ride schedules are read by keyset in pages of {@value #REBUILD_PAGE_SIZE}, each written in its own
+     * transaction, so memory use does not grow with the number of ride schedules.
+     *
+     * @return Number of ride schedules written
+     */
+    public int rebuild() {
+        int written = 0;
+        long afterId = 0;
+        List<Long> ids;
+        do {
+            long pageAfterId = afterId;
+            ids = transactionTemplate.execute(status -> rebuildPage(pageAfterId));
+            if (!ids.isEmpty()) {
+                written += ids.size();
+                afterId = ids.getLast();
+            }
+        } while (ids.size() == REBUILD_PAGE_SIZE);
+        int removed = rideSearchViewRepository.deleteWithoutRideSchedule();
+        log.info("Rebuilt the ride search view with {} ride schedules, removed {} deleted ones", written, removed);
+        return written;
+    }
+
+    /**
+     * @return IDs of the ride schedules written, in order
+     */
+    private List<Long> rebuildPage(long afterId) {
+        List<RideSchedule> rideSchedules = rideScheduleRepository.findWithUserByIdGreaterThan(afterId, Limit.of(REBUILD_PAGE_SIZE));
+        if (rideSchedules.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = rideSchedules.stream().map(RideSchedule::getId).toList();
+        // Locked like in refresh, so seat changes of bookings made meanwhile are not overwritten
+        rideSearchViewRepository.findByIdInForUpdate(ids);
+        Map<Long, List<Booking>> bookingsByRideSchedule = bookingRepository.findByRideScheduleIdInAndStatusIn(ids, SEAT_HOLDING_STATUSES).stream()
+                .collect(Collectors.groupingBy(booking -> booking.getRideSchedule().getId()));
+        rideSearchViewRepository.saveAll(rideSchedules.stream()
+                .map(rideSchedule -> toView(rideSchedule, bookingsByRideSchedule.getOrDefault(rideSchedule.getId(), List.of())))
+                .toList());
+        return ids;
+    }
+
+    /**
+     * @return true if a ride schedule has no read model or one written before the ride schedule last changed, or if
+     * the read model holds deleted ride schedules
+     */
+    public boolean needsRebuild() {
+        return rideSearchViewRepository.countRideSchedulesWithoutCurrentView() > 0
+                || rideSearchViewRepository.count() != rideScheduleRepository.count();
+    }
+
+    /**
+     * @param ids IDs of ride schedules
+     * @return The read model of the ride schedules that still exist, by ID
+     */
+    public Map<Long, RideSearchView> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return rideSearchViewRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(RideSearchView::getId, Function.identity()));
+    }
+
+    /**
+     * Find the available rides inside both bounding boxes of a query that run on the query days and depart in
+     * the query window. Narrow searches are looked up by the grid cells of their start circle.
+     *
+     * @param query The ride query
+     * @return Candidate rides; callers still need an exact distance check
+     */
+    public List<RideSearchView> findCandidates(RideQuery query) {
+        // Window bounds cover whole minutes, like the in-memory index
+        LocalTime departureFrom = LocalTime.MIN.plusMinutes(query.departureFrom());
+        LocalTime departureTo = LocalTime.MIN.plusMinutes(query.departureTo()).withSecond(59).withNano(999_999_000);
+        boolean anyDepartureTime = !query.hasDepartureWindow();
+        boolean wrapsMidnight = query.departureFrom() > query.departureTo();
+
+        if (START_CELL_GRID.countCellsInRadius(query.startLatitude(), query.startLongitude(), query.radiusInMiles()) <= MAX_START_CELLS) {
+            List<Long> startCells = new ArrayList<>();
+            START_CELL_GRID.forEachCellInRadius(query.startLatitude(), query.startLongitude(), query.radiusInMiles(), startCells::add);
+            return rideSearchViewRepository.findAvailableInStartCellsWithinBoundingBoxes(startCells,
+                    query.startBox().minLatitude(), query.startBox().maxLatitude(),
+                    query.startBox().minLongitude(), query.startBox().maxLongitude(),
+                    query.endBox().minLatitude(), query.endBox().maxLatitude(),
+                    query.endBox().minLongitude(), query.endBox().maxLongitude(),
+                    query.daysMask(), anyDepartureTime, wrapsMidnight, departureFrom, departureTo);
+        }
+        return rideSearchViewRepository.findAvailableWithinBoundingBoxes(
+                query.startBox().minLatitude(), query.startBox().maxLatitude(),
+                query.startBox().minLongitude(), query.startBox().maxLongitude(),
+                query.endBox().minLatitude(), query.endBox().maxLatitude(),
+                query.endBox().minLongitude(), query.endBox().maxLongitude(),
+                query.daysMask(), anyDepartureTime, wrapsMidnight, departureFrom, departureTo);
+    }
+
+    private static RideSearchView toView(RideSchedule rideSchedule, List<Booking> bookings) {
+        RideSearchView view = RideSearchView.builder()
+                .id(rideSchedule.getId())
+                .userId(rideSchedule.getUser().getId())
+                .userDisplayName(rideSchedule.getUser().getDisplayName())
+                .vehicleId(rideSchedule.getVehicle() != null ? rideSchedule.getVehicle().getId() : null)
+                .startLatitude(rideSchedule.getStartLatitude())
+                .startLongitude(rideSchedule.getStartLongitude())
+                .endLatitude(rideSchedule.getEndLatitude())
+                .endLongitude(rideSchedule.getEndLongitude())
+                .startCell(START_CELL_GRID.cellOf(rideSchedule.getStartLatitude(), rideSchedule.getStartLongitude()))
+                .daysMask(rideSchedule.getDaysMask())
+                .departureTime(rideSchedule.getDepartureTime())
+                .availableSeats(rideSchedule.getAvailableSeats())
+                .available(rideSchedule.isAvailable())
+                .createdAt(rideSchedule.getCreatedAt())
+                .updatedAt(rideSchedule.getUpdatedAt())
+                .build();
+
+        Map<DayOfWeek, Integer> seatsBooked = new HashMap<>();
+        for (Booking booking : bookings) {
+            for (DayOfWeek day : booking.getBookedDayList()) {
+                seatsBooked.merge(day, booking.getSeatsBooked(), Integer::sum);
+            }
+        }
+        for (DayOfWeek day : DayOfWeek.values()) {
+            int remainingSeats = rideSchedule.runsOn(day)
+                    ? rideSchedule.getAvailableSeats() - seatsBooked.getOrDefault(day, 0)
+                    : 0;
+            view.setRemainingSeats(day, remainingSeats);
+        }
+        return view;
+    }
+}
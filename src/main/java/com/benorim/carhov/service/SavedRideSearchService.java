@@ -0,0 +1,164 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.dto.savedSearch.CreateSavedRideSearchDTO;
+import com.benorim.carhov.entity.CarHovUser;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.SavedRideSearch;
+import com.benorim.carhov.entity.SavedRideSearchMatch;
+import com.benorim.carhov.mapper.SavedRideSearchMapper;
+import com.benorim.carhov.repository.CarHovUserRepository;
+import com.benorim.carhov.repository.SavedRideSearchMatchRepository;
+import com.benorim.carhov.repository.SavedRideSearchRepository;
+import com.benorim.carhov.search.IndexedRide;
+import com.benorim.carhov.search.SavedRideSearchIndex;
+import com.benorim.carhov.util.AfterCommit;
+import com.benorim.carhov.util.GeoUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SavedRideSearchService {
+
+    private final SavedRideSearchRepository savedRideSearchRepository;
+    private final SavedRideSearchMatchRepository savedRideSearchMatchRepository;
+    private final CarHovUserRepository carHovUserRepository;
+    private final AuthService authService;
+    private final SavedRideSearchIndex savedRideSearchIndex;
+
+    public SavedRideSearch createSavedRideSearch(CreateSavedRideSearchDTO createSavedRideSearchDTO) {
+        log.info("Creating saved ride search for user ID: {}", createSavedRideSearchDTO.getUserId());
+
+        CarHovUser user = carHovUserRepository.findById(createSavedRideSearchDTO.getUserId())
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + createSavedRideSearchDTO.getUserId()));
+
+        authService.isRequestMadeByLoggedInUser(user);
+
+        SavedRideSearch savedRideSearch = savedRideSearchRepository.save(SavedRideSearchMapper.toEntity(createSavedRideSearchDTO, user));
+        savedRideSearchIndex.add(savedRideSearch);
+        return savedRideSearch;
+    }
+
+    public Optional<SavedRideSearch> findSavedRideSearchById(Long savedRideSearchId) {
+        log.info("Finding saved ride search with ID: {}", savedRideSearchId);
+        return savedRideSearchRepository.findById(savedRideSearchId)
+                .map(savedRideSearch -> {
+                    authService.isRequestMadeByLoggedInUser(savedRideSearch.getUser());
+                    return savedRideSearch;
+                });
+    }
+
+    public List<SavedRideSearch> findSavedRideSearchesByUserId(Long userId) {
+        log.info("Finding saved ride searches for user ID: {}", userId);
+        CarHovUser user = carHovUserRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found with ID: " + userId));
+        authService.isRequestMadeByLoggedInUser(user);
+        return savedRideSearchRepository.findByUserId(userId);
+    }
+
+    /**
+     * Get the ride schedules that matched a saved search, newest first.
+     *
+     * @param savedRideSearchId The ID of the saved search
+     * @return The matches, or empty if the saved search does not exist
+     */
+    public Optional<List<SavedRideSearchMatch>> findMatches(Long savedRideSearchId) {
+        return findSavedRideSearchById(savedRideSearchId)
+                .map(savedRideSearch -> savedRideSearchMatchRepository.findBySavedRideSearchIdOrderByMatchedAtDesc(savedRideSearchId));
+    }
+
+    @Transactional
+    public boolean deleteSavedRideSearch(Long savedRideSearchId) {
+        log.info("Deleting saved ride search with ID: {}", savedRideSearchId);
+        return savedRideSearchRepository.findById(savedRideSearchId)
+                .map(savedRideSearch -> {
+                    authService.isRequestMadeByLoggedInUser(savedRideSearch.getUser());
+                    savedRideSearchMatchRepository.deleteBySavedRideSearchId(savedRideSearchId);
+                    savedRideSearchRepository.delete(savedRideSearch);
+                    // A failed delete keeps the saved search in the index, so it still matches new rides
+                    AfterCommit.run(() -> savedRideSearchIndex.remove(savedRideSearchId));
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    /**
+     * Match a created or updated ride schedule against all saved searches and record the new matches.
+     * One probe of the saved search index replaces the repeated searches passengers would otherwise run.
+     * Matches the ride no longer satisfies after an update are deleted.
+     *
+     * @param rideSchedule The saved ride schedule
+     * @return The newly recorded matches
+     */
+    public List<SavedRideSearchMatch> matchRideSchedule(RideSchedule rideSchedule) {
+        if (!rideSchedule.isAvailable()) {
+            // An unavailable ride satisfies no saved search
+            savedRideSearchMatchRepository.deleteByRideScheduleId(rideSchedule.getId());
+            return List.of();
+        }
+        IndexedRide ride = IndexedRide.from(rideSchedule);
+
+        // An updated ride keeps the matches it still satisfies. They are checked against the saved searches
+        // stored with them, not the index, so matches of saved searches the index does not hold are checked too
+        Set<Long> alreadyMatched = new HashSet<>();
+        List<SavedRideSearchMatch> noLongerMatched = new ArrayList<>();
+        for (SavedRideSearchMatch match : savedRideSearchMatchRepository.findByRideScheduleId(rideSchedule.getId())) {
+            if (SavedRideSearchIndex.toQuery(match.getSavedRideSearch()).matches(ride)) {
+                alreadyMatched.add(match.getSavedRideSearch().getId());
+            } else {
+                noLongerMatched.add(match);
+            }
+        }
+        if (!noLongerMatched.isEmpty()) {
+            log.info("Ride schedule {} no longer matches {} saved ride searches", rideSchedule.getId(), noLongerMatched.size());
+            savedRideSearchMatchRepository.deleteAll(noLongerMatched);
+        }
+
+        List<Long> savedRideSearchIds = savedRideSearchIndex.findMatchingSearchIds(ride);
+        if (savedRideSearchIds.isEmpty()) {
+            return List.of();
+        }
+        List<SavedRideSearchMatch> matches = savedRideSearchRepository.findAllById(savedRideSearchIds).stream()
+                .filter(savedRideSearch -> !alreadyMatched.contains(savedRideSearch.getId()))
+                .filter(savedRideSearch -> !savedRideSearch.getUser().getId().equals(rideSchedule.getUser().getId()))
+                .map(savedRideSearch -> toMatch(savedRideSearch, rideSchedule))
+                .toList();
+        if (matches.isEmpty()) {
+            return List.of();
+        }
+
+        log.info("Ride schedule {} matched {} saved ride searches", rideSchedule.getId(), matches.size());
+        return savedRideSearchMatchRepository.saveAll(matches);
+    }
+
+    /**
+     * Remove the recorded matches of a ride schedule before it is deleted.
+     *
+     * @param rideScheduleId The ID of the ride schedule
+     */
+    public void removeMatches(Long rideScheduleId) {
+        savedRideSearchMatchRepository.deleteByRideScheduleId(rideScheduleId);
+    }
+
+    private static SavedRideSearchMatch toMatch(SavedRideSearch savedRideSearch, RideSchedule rideSchedule) {
+        SavedRideSearchMatch match = new SavedRideSearchMatch();
+        match.setSavedRideSearch(savedRideSearch);
+        match.setRideSchedule(rideSchedule);
+        match.setStartDistanceInMiles(GeoUtils.calculateDistanceInMiles(
+                savedRideSearch.getStartLatitude(), savedRideSearch.getStartLongitude(),
+                rideSchedule.getStartLatitude(), rideSchedule.getStartLongitude()));
+        match.setEndDistanceInMiles(GeoUtils.calculateDistanceInMiles(
+                savedRideSearch.getEndLatitude(), savedRideSearch.getEndLongitude(),
+                rideSchedule.getEndLatitude(), rideSchedule.getEndLongitude()));
+        return match;
+    }
+}
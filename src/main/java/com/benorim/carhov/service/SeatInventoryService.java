@@ -0,0 +1,123 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.entity.Booking;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.SeatInventory;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.repository.BookingRepository;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.repository.SeatInventoryRepository;
+import com.benorim.carhov.util.DayOfWeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the {@link SeatInventory} of ride schedules: takes seats for new bookings and gives them back when
+ * a booking stops holding them.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SeatInventoryService {
+
+    private final SeatInventoryRepository seatInventoryRepository;
+    private final RideScheduleRepository rideScheduleRepository;
+    private final BookingRepository bookingRepository;
+
+    /**
+     * Take seats on each of the days. Either all days are taken or, as the exception rolls back the transaction,
+     * none are.
+     *
+     * @param rideSchedule The ride schedule to book
+     * @param days The days to book
+     * @param seats Number of seats to take on each day
+     * @throws IllegalStateException if a day has fewer seats left
+     */
+    @Transactional
+    public void reserve(RideSchedule rideSchedule, List<DayOfWeek> days, int seats) {
+        List<DayOfWeek> sortedDays = days.stream().distinct().sorted().toList();
+        // Missing days are created before any seats are taken, so the ride row is always locked before the
+        // inventory rows, in the same order as ride updates lock them
+        createMissing(rideSchedule, sortedDays);
+        // Days are taken in a fixed order, so concurrent bookings of the same days cannot deadlock
+        for (DayOfWeek day : sortedDays) {
+            if (seatInventoryRepository.reserveSeats(rideSchedule.getId(), day, seats) == 0) {
+                throw new IllegalStateException("Not enough seats available for " + day.name());
+            }
+        }
+    }
+
+    /**
+     * Give back the seats of a booking on each of its days. Call when a booking that held seats is cancelled,
+     * rejected or deleted.
+     *
+     * @param booking The booking
+     */
+    @Transactional
+    public void release(Booking booking) {
+        for (DayOfWeek day : booking.getBookedDayList()) {
+            // A day without inventory has none to correct; it is created later from the current bookings
+            seatInventoryRepository.releaseSeats(booking.getRideSchedule().getId(), day, booking.getSeatsBooked());
+        }
+    }
+
+    /**
+     * Shift the seats left on every day after the number of seats of a ride schedule changed. Must run in the
+     * transaction that saves the ride schedule and holds the lock of its row, so a day whose inventory is created
+     * concurrently is created either before the shift or from the new seats, never both.
+     *
+     * @param rideScheduleId The ID of the ride schedule
+     * @param previousSeats The number of seats before the change
+     * @param seats The number of seats after the change
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void seatsChanged(Long rideScheduleId, int previousSeats, int seats) {
+        if (seats != previousSeats) {
+            seatInventoryRepository.adjustRemainingSeats(rideScheduleId, seats - previousSeats);
+        }
+    }
+
+    /**
+     * @param rideScheduleId The ID of the deleted ride schedule
+     */
+    public void remove(Long rideScheduleId) {
+        seatInventoryRepository.deleteByRideScheduleId(rideScheduleId);
+    }
+
+    /**
+     * Create the inventory of the days that have none yet, from the bookings made so far.
+     */
+    private void createMissing(RideSchedule rideSchedule, List<DayOfWeek> days) {
+        Long rideScheduleId = rideSchedule.getId();
+        if (missingDays(rideScheduleId, days).isEmpty()) {
+            return;
+        }
+        // The lock on the ride lets only one of several first bookers of a day create the row, and the seats are
+        // read under it, so a ride update that committed meanwhile is seen
+        int availableSeats = rideScheduleRepository.lockAvailableSeats(rideScheduleId)
+                .orElseThrow(() -> new IllegalArgumentException("Ride schedule not found"));
+        for (DayOfWeek day : missingDays(rideScheduleId, days)) {
+            Integer seatsBooked = bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(rideScheduleId, DayOfWeekMask.bit(day));
+            int remainingSeats = availableSeats - (seatsBooked != null ? seatsBooked : 0);
+            seatInventoryRepository.save(SeatInventory.builder()
+                    .rideSchedule(rideSchedule)
+                    .dayOfWeek(day)
+                    .remainingSeats(remainingSeats)
+                    .build());
+            log.info("Created seat inventory of ride schedule ID: {} on {} with {} seats left", rideScheduleId, day, remainingSeats);
+        }
+    }
+
+    private List<DayOfWeek> missingDays(Long rideScheduleId, List<DayOfWeek> days) {
+        Set<DayOfWeek> existingDays = EnumSet.noneOf(DayOfWeek.class);
+        existingDays.addAll(seatInventoryRepository.findDaysOfWeekByRideScheduleId(rideScheduleId));
+        return days.stream().filter(day -> !existingDays.contains(day)).toList();
+    }
+}
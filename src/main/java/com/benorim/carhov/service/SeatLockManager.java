@@ -0,0 +1,76 @@
+package com.benorim.carhov.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped locks keyed by ride schedule ID, so bookings of the same ride run one at a time on this instance
+ * while bookings of other rides keep running in parallel. Riders rushing a popular ride then queue here
+ * instead of contending for the seat inventory rows in the database.
+ * <p>
+ * Two rides can share a stripe, which only serializes them needlessly. The locks do not span instances;
+ * the conditional update of the seat inventory still prevents overbooking across them.
+ */
+@Component
+@Slf4j
+public class SeatLockManager {
+
+    @Value("${app.booking.lock.stripes:64}")
+    private int stripeCount = 64;
+
+    @Value("${app.booking.lock.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    private ReentrantLock[] stripes;
+
+    @PostConstruct
+    void init() {
+        if (stripeCount <= 0) {
+            throw new IllegalStateException("Seat lock stripe count must be positive");
+        }
+        // Rounded up to a power of two, so a stripe is picked with a mask
+        stripes = new ReentrantLock[Integer.highestOneBit(stripeCount * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Run an action while holding the lock of a ride schedule. Callers that open a transaction inside the action
+     * release the lock only after it commits, so the next booking sees the seats taken.
+     *
+     * @param rideScheduleId The ID of the ride schedule
+     * @param action The action to run
+     * @return The result of the action
+     * @throws IllegalStateException if the lock is not free within the timeout
+     */
+    public <T> T withLock(Long rideScheduleId, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripe(rideScheduleId)];
+        try {
+            if (!lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out waiting for the seat lock of ride schedule ID: {}", rideScheduleId);
+                throw new IllegalStateException("Too many bookings for this ride at the moment, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the seat lock", e);
+        }
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int stripe(Long rideScheduleId) {
+        int hash = rideScheduleId.hashCode();
+        // Spread the high bits, so IDs that differ only there do not all land on one stripe
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
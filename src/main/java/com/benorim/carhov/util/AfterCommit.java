@@ -0,0 +1,30 @@
+package com.benorim.carhov.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers changes to in-memory state, such as the search index and cache, until the database transaction that
+ * caused them has committed, so a rollback leaves memory and database in agreement.
+ */
+public class AfterCommit {
+
+    /**
+     * Run an action after the current transaction commits, or now if there is no transaction.
+     * The action is dropped if the transaction rolls back.
+     *
+     * @param action The action to run
+     */
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.benorim.carhov.util;
+
+import com.benorim.carhov.enums.DayOfWeek;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Days of the week packed into the low seven bits of an int, Monday in bit 0. Sets of days can then be
+ * stored in one column and intersected with a bitwise AND.
+ */
+public class DayOfWeekMask {
+
+    public static final int NONE = 0;
+    public static final int ALL_DAYS = (1 << DayOfWeek.values().length) - 1;
+
+    public static int bit(DayOfWeek day) {
+        return 1 << day.ordinal();
+    }
+
+    public static int of(Collection<DayOfWeek> days) {
+        int mask = NONE;
+        if (days != null) {
+            for (DayOfWeek day : days) {
+                mask |= bit(day);
+            }
+        }
+        return mask;
+    }
+
+    public static List<DayOfWeek> toList(int mask) {
+        List<DayOfWeek> days = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((mask & bit(day)) != 0) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    public static boolean contains(int mask, DayOfWeek day) {
+        return (mask & bit(day)) != 0;
+    }
+
+    /**
+     * @param mask Mask of the days to check
+     * @param required Mask of the days that must all be present; {@link #NONE} is always contained
+     * @return true if every required day is in the mask
+     */
+    public static boolean containsAll(int mask, int required) {
+        return (mask & required) == required;
+    }
+}
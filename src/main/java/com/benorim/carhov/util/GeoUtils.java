@@ -37,6 +37,36 @@ public class GeoUtils {
         return EARTH_RADIUS_MILES * c;
     }
     
+    /**
+     * Calculate the Haversine distance from one point to many candidate points held in primitive arrays.
+     * Terms that only depend on the query point are computed once, and the loop reads the candidate
+     * coordinates sequentially, so refining thousands of candidates avoids per-object overhead.
+     * Results are identical to calling {@link #calculateDistanceInMiles} for each candidate.
+     *
+     * @param latitude Latitude of the query point in degrees
+     * @param longitude Longitude of the query point in degrees
+     * @param latitudes Candidate latitudes in degrees
+     * @param longitudes Candidate longitudes in degrees
+     * @param count Number of candidates to process, starting at index 0
+     * @param distances Receives the distance in miles for each candidate
+     */
+    public static void calculateDistancesInMiles(double latitude, double longitude,
+                                                 double[] latitudes, double[] longitudes, int count, double[] distances) {
+        double latRad = Math.toRadians(latitude);
+        double lonRad = Math.toRadians(longitude);
+        double cosLat = Math.cos(latRad);
+
+        for (int i = 0; i < count; i++) {
+            double candidateLatRad = Math.toRadians(latitudes[i]);
+            double halfDLat = Math.sin((candidateLatRad - latRad) / 2);
+            double halfDLon = Math.sin((Math.toRadians(longitudes[i]) - lonRad) / 2);
+
+            double a = halfDLat * halfDLat + cosLat * Math.cos(candidateLatRad) * halfDLon * halfDLon;
+
+            distances[i] = EARTH_RADIUS_MILES * (2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+        }
+    }
+
     /**
      * Check if a location is within a specified radius of another location.
      *
@@ -51,4 +81,169 @@ public class GeoUtils {
         double distance = calculateDistanceInMiles(lat1, lon1, lat2, lon2);
         return distance <= radiusInMiles;
     }
-}
\ No newline at end of file
+
+    /**
+     * Half-height in degrees of the latitude band covered by a search radius.
+     *
+     * @param radiusInMiles The radius in miles
+     * @return Number of degrees of latitude the radius spans in each direction
+     */
+    public static double latitudeDeltaDegrees(double radiusInMiles) {
+        return Math.toDegrees(Math.max(radiusInMiles, 0) / EARTH_RADIUS_MILES);
+    }
+
+    /**
+     * Half-width in degrees of the longitude band covered by a search radius around a point.
+     * The band widens towards the poles and covers every longitude once the circle reaches a pole.
+     *
+     * @param latitude Latitude of the center point in degrees
+     * @param radiusInMiles The radius in miles
+     * @return Number of degrees of longitude the radius spans in each direction, at most 180
+     */
+    public static double longitudeDeltaDegrees(double latitude, double radiusInMiles) {
+        if (Math.abs(latitude) + latitudeDeltaDegrees(radiusInMiles) >= 90) {
+            return 180;
+        }
+        double sinRatio = Math.sin(Math.max(radiusInMiles, 0) / EARTH_RADIUS_MILES) / Math.cos(Math.toRadians(latitude));
+        if (sinRatio >= 1) {
+            return 180;
+        }
+        return Math.toDegrees(Math.asin(sinRatio));
+    }
+
+    /**
+     * Compute a latitude/longitude box that fully contains a search circle. When the circle crosses the
+     * antimeridian or reaches a pole the box falls back to the full longitude range, so it never excludes
+     * a point that is within the radius.
+     *
+     * @param latitude Latitude of the center point in degrees
+     * @param longitude Longitude of the center point in degrees
+     * @param radiusInMiles The radius in miles
+     * @return Bounding box of the circle
+     */
+    public static BoundingBox boundingBox(double latitude, double longitude, double radiusInMiles) {
+        double latitudeDelta = latitudeDeltaDegrees(radiusInMiles);
+        double longitudeDelta = longitudeDeltaDegrees(latitude, radiusInMiles);
+
+        double minLongitude = longitude - longitudeDelta;
+        double maxLongitude = longitude + longitudeDelta;
+        if (minLongitude < -180 || maxLongitude > 180) {
+            minLongitude = -180;
+            maxLongitude = 180;
+        }
+        return new BoundingBox(
+                Math.max(-90, latitude - latitudeDelta), Math.min(90, latitude + latitudeDelta),
+                minLongitude, maxLongitude);
+    }
+
+    /**
+     * Latitude/longitude box in degrees, inclusive on all sides.
+     */
+    public record BoundingBox(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+
+        public boolean contains(double latitude, double longitude) {
+            return latitude >= minLatitude && latitude <= maxLatitude
+                    && longitude >= minLongitude && longitude <= maxLongitude;
+        }
+    }
+
+    /**
+     * Create a reusable radius check around a point. See {@link RadiusFilter}.
+     *
+     * @param latitude Latitude of the center point in degrees
+     * @param longitude Longitude of the center point in degrees
+     * @param radiusInMiles The radius in miles
+     * @return Filter accepting points within the radius
+     */
+    public static RadiusFilter radiusFilter(double latitude, double longitude, double radiusInMiles) {
+        return new RadiusFilter(latitude, longitude, radiusInMiles);
+    }
+
+    /**
+     * Tiered "is this point within the radius" check for hot loops. Clear cases are settled by cheap tests and
+     * only candidates near the boundary pay for trigonometry:
+     * <ol>
+     *     <li>Reject when the latitude difference alone exceeds the radius (no trig).</li>
+     *     <li>For small radii, compare a small-angle (equirectangular) distance against the radius with a 1% margin
+     *     either side (no trig).</li>
+     *     <li>Otherwise compare the Haversine term {@code a} against its threshold, which skips atan2 and sqrt.</li>
+     * </ol>
+     * Callers pass {@code cos(latitude)} of the candidate, which can be precomputed once per stored point.
+     */
+    public static final class RadiusFilter {
+
+        // Beyond these bounds the small-angle approximation is no longer within the margin, so tier 2 is skipped
+        private static final double MAX_APPROXIMATE_ANGULAR_RADIUS = 0.05;
+        private static final double MAX_APPROXIMATE_LONGITUDE_DELTA = 0.2;
+        private static final double APPROXIMATION_MARGIN = 0.01;
+
+        private final double latRad;
+        private final double lonRad;
+        private final double cosLat;
+        private final double angularRadius;
+        private final boolean approximate;
+        private final double acceptBelow;
+        private final double rejectAbove;
+        private final double maxHaversineTerm;
+
+        private RadiusFilter(double latitude, double longitude, double radiusInMiles) {
+            this.latRad = Math.toRadians(latitude);
+            this.lonRad = Math.toRadians(longitude);
+            this.cosLat = Math.cos(latRad);
+            this.angularRadius = radiusInMiles / EARTH_RADIUS_MILES;
+            this.approximate = angularRadius > 0 && angularRadius <= MAX_APPROXIMATE_ANGULAR_RADIUS;
+            double lower = angularRadius * (1 - APPROXIMATION_MARGIN);
+            double upper = angularRadius * (1 + APPROXIMATION_MARGIN);
+            this.acceptBelow = lower * lower;
+            this.rejectAbove = upper * upper;
+            double sinHalfRadius = Math.sin(Math.min(angularRadius, Math.PI) / 2);
+            this.maxHaversineTerm = sinHalfRadius * sinHalfRadius;
+        }
+
+        /**
+         * @param latitude Latitude of the candidate in degrees
+         * @param longitude Longitude of the candidate in degrees
+         * @param cosLatitude {@code Math.cos(Math.toRadians(latitude))} of the candidate
+         * @return true if the candidate is within the radius
+         */
+        public boolean contains(double latitude, double longitude, double cosLatitude) {
+            if (angularRadius < 0) {
+                return false;
+            }
+            double dLat = Math.toRadians(latitude) - latRad;
+            if (Math.abs(dLat) > angularRadius) {
+                return false;
+            }
+
+            double dLon = Math.toRadians(longitude) - lonRad;
+            if (dLon > Math.PI) {
+                dLon -= 2 * Math.PI;
+            } else if (dLon < -Math.PI) {
+                dLon += 2 * Math.PI;
+            }
+            double cosProduct = cosLat * cosLatitude;
+
+            if (approximate && Math.abs(dLon) <= MAX_APPROXIMATE_LONGITUDE_DELTA) {
+                double approximateSquared = dLat * dLat + cosProduct * dLon * dLon;
+                if (approximateSquared <= acceptBelow) {
+                    return true;
+                }
+                if (approximateSquared >= rejectAbove) {
+                    return false;
+                }
+            }
+
+            double sinHalfDLat = Math.sin(dLat / 2);
+            double sinHalfDLon = Math.sin(dLon / 2);
+            double a = sinHalfDLat * sinHalfDLat + cosProduct * sinHalfDLon * sinHalfDLon;
+            return a <= maxHaversineTerm;
+        }
+
+        /**
+         * Same as {@link #contains(double, double, double)} for callers without a precomputed cosine.
+         */
+        public boolean contains(double latitude, double longitude) {
+            return contains(latitude, longitude, Math.cos(Math.toRadians(latitude)));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.benorim.carhov.util;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination by ID: a page holds the rows with an ID greater than the cursor, so
+ * reading page n costs the same as reading the first page and rows inserted meanwhile do not shift later pages.
+ */
+public class KeysetCursor {
+
+    /**
+     * @param lastId ID of the last row of the current page
+     * @return The encoded cursor of the next page
+     */
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(lastId).array());
+    }
+
+    /**
+     * @param cursor The encoded cursor, or null for the first page
+     * @return The ID after which the page starts, or 0 for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (bytes.length != Long.BYTES) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return ByteBuffer.wrap(bytes).getLong();
+    }
+}
@@ -0,0 +1,51 @@
+package com.benorim.carhov.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes values as newline-delimited JSON, one document per line, so a client can process each value as soon
+ * as its line arrives.
+ */
+public class NdjsonWriter {
+
+    public static final String MEDIA_TYPE = MediaType.APPLICATION_NDJSON_VALUE;
+
+    private static final byte NEWLINE = '\n';
+
+    private final ObjectMapper objectMapper;
+    private final OutputStream outputStream;
+    private final int flushEvery;
+    private long lines;
+
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream) {
+        this(objectMapper, outputStream, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param flushEvery Number of lines after which the written lines are sent to the client
+     */
+    public NdjsonWriter(ObjectMapper objectMapper, OutputStream outputStream, int flushEvery) {
+        this.objectMapper = objectMapper;
+        this.outputStream = outputStream;
+        this.flushEvery = flushEvery;
+    }
+
+    public void write(Object value) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(value));
+        outputStream.write(NEWLINE);
+        if (++lines % flushEvery == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the lines written so far to the client.
+     */
+    public void flush() throws IOException {
+        outputStream.flush();
+    }
+}
@@ -0,0 +1,30 @@
+-- Converts the booked days of existing bookings from the comma-separated booked_days string
+-- (e.g. 'MONDAY,WEDNESDAY') to the booked_days_mask bitmask, one bit per day with Monday in bit 0
+-- (see DayOfWeekMask), and drops the string column.
+--
+-- Run once against a PostgreSQL database created before the mask, before starting the new version:
+--     psql -d carhov -f src/main/resources/db/upgrade/booking_booked_days_mask.sql
+-- Hibernate's schema update cannot do this itself: it never drops the NOT NULL of booked_days, which the
+-- new version no longer writes. Running the script again, or on a database without booked_days, changes nothing.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'booking' AND column_name = 'booked_days') THEN
+        ALTER TABLE booking ADD COLUMN IF NOT EXISTS booked_days_mask integer NOT NULL DEFAULT 0;
+
+        UPDATE booking SET booked_days_mask =
+                  CASE WHEN 'MONDAY'    = ANY (string_to_array(booked_days, ',')) THEN 1  ELSE 0 END
+                + CASE WHEN 'TUESDAY'   = ANY (string_to_array(booked_days, ',')) THEN 2  ELSE 0 END
+                + CASE WHEN 'WEDNESDAY' = ANY (string_to_array(booked_days, ',')) THEN 4  ELSE 0 END
+                + CASE WHEN 'THURSDAY'  = ANY (string_to_array(booked_days, ',')) THEN 8  ELSE 0 END
+                + CASE WHEN 'FRIDAY'    = ANY (string_to_array(booked_days, ',')) THEN 16 ELSE 0 END
+                + CASE WHEN 'SATURDAY'  = ANY (string_to_array(booked_days, ',')) THEN 32 ELSE 0 END
+                + CASE WHEN 'SUNDAY'    = ANY (string_to_array(booked_days, ',')) THEN 64 ELSE 0 END
+            WHERE booked_days IS NOT NULL;
+
+        ALTER TABLE booking ALTER COLUMN booked_days_mask DROP DEFAULT;
+        ALTER TABLE booking DROP COLUMN booked_days;
+    END IF;
+END
+$$;
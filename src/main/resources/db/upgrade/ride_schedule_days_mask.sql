@@ -0,0 +1,31 @@
+-- Converts the days of existing ride schedules from the comma-separated days_of_week string
+-- (e.g. 'MONDAY,WEDNESDAY') to the days_mask bitmask, one bit per day with Monday in bit 0
+-- (see DayOfWeekMask), and drops the string column.
+--
+-- Run once against a PostgreSQL database created before the mask, before starting the new version:
+--     psql -d carhov -f src/main/resources/db/upgrade/ride_schedule_days_mask.sql
+-- Hibernate's schema update cannot do this itself: it cannot add the NOT NULL days_mask to a table that holds
+-- rides, and it never drops the NOT NULL of days_of_week, which the new version no longer writes.
+-- Running the script again, or on a database without days_of_week, changes nothing.
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'ride_schedule' AND column_name = 'days_of_week') THEN
+        ALTER TABLE ride_schedule ADD COLUMN IF NOT EXISTS days_mask integer NOT NULL DEFAULT 0;
+
+        UPDATE ride_schedule SET days_mask =
+                  CASE WHEN 'MONDAY'    = ANY (string_to_array(days_of_week, ',')) THEN 1  ELSE 0 END
+                + CASE WHEN 'TUESDAY'   = ANY (string_to_array(days_of_week, ',')) THEN 2  ELSE 0 END
+                + CASE WHEN 'WEDNESDAY' = ANY (string_to_array(days_of_week, ',')) THEN 4  ELSE 0 END
+                + CASE WHEN 'THURSDAY'  = ANY (string_to_array(days_of_week, ',')) THEN 8  ELSE 0 END
+                + CASE WHEN 'FRIDAY'    = ANY (string_to_array(days_of_week, ',')) THEN 16 ELSE 0 END
+                + CASE WHEN 'SATURDAY'  = ANY (string_to_array(days_of_week, ',')) THEN 32 ELSE 0 END
+                + CASE WHEN 'SUNDAY'    = ANY (string_to_array(days_of_week, ',')) THEN 64 ELSE 0 END
+            WHERE days_of_week IS NOT NULL;
+
+        ALTER TABLE ride_schedule ALTER COLUMN days_mask DROP DEFAULT;
+        ALTER TABLE ride_schedule DROP COLUMN days_of_week;
+    END IF;
+END
+$$;
@@ -0,0 +1,9 @@
+-- Drops the start and end point indexes of ride_schedule. Bounding box searches read ride_search_view, which has
+-- its own point indexes, so no query uses these any more while every ride insert and update still pays for them.
+--
+-- Run once against a PostgreSQL database created before the search view, before starting the new version:
+--     psql -d carhov -f src/main/resources/db/upgrade/ride_schedule_drop_point_indexes.sql
+-- Hibernate's schema update never drops indexes itself. Running the script again changes nothing.
+
+DROP INDEX IF EXISTS idx_ride_schedule_start_point;
+DROP INDEX IF EXISTS idx_ride_schedule_end_point;
@@ -17,6 +17,8 @@ import com.benorim.carhov.enums.DayOfWeek;
 import com.benorim.carhov.repository.CarHovUserRepository;
 import com.benorim.carhov.repository.RideScheduleRepository;
 import com.benorim.carhov.repository.VehicleRepository;
+import com.benorim.carhov.service.RideSearchViewService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,9 +36,11 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -52,12 +56,18 @@ public class RideScheduleControllerIntegrationTest {
     @Autowired
     private RideScheduleRepository rideScheduleRepository;
 
+    @Autowired
+    private RideSearchViewService rideSearchViewService;
+
     @Autowired
     private CarHovUserRepository userRepository;
 
     @Autowired
     private VehicleRepository vehicleRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     private CarHovUser testUser;
     private Vehicle testVehicle;
     private RideSchedule testRideSchedule;
@@ -104,6 +114,7 @@ public class RideScheduleControllerIntegrationTest {
         testRideSchedule.setAvailableSeats(4);
         testRideSchedule.setAvailable(true);
         testRideSchedule = rideScheduleRepository.save(testRideSchedule);
+        rideSearchViewService.refresh(testRideSchedule);
 
         // Login to get auth token
         LoginRequestDTO loginRequest = new LoginRequestDTO();
@@ -262,6 +273,66 @@ public class RideScheduleControllerIntegrationTest {
         assertEquals(testVehicle.getId(), rideSchedules[0].getVehicleId());
     }
 
+    @Test
+    void getAllRideSchedules_PagesWithCursor() {
+        // Arrange
+        RideSchedule second = new RideSchedule();
+        second.setUser(testUser);
+        second.setVehicle(testVehicle);
+        second.setStartLatitude(40.7128);
+        second.setStartLongitude(-74.0060);
+        second.setEndLatitude(40.7580);
+        second.setEndLongitude(-73.9855);
+        second.setDayList(List.of(DayOfWeek.MONDAY));
+        second.setDepartureTime(LocalTime.of(9, 0));
+        second.setAvailableSeats(2);
+        second.setAvailable(true);
+        second = rideScheduleRepository.save(second);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(authToken);
+        HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
+
+        // Act
+        ResponseEntity<RideScheduleDTO[]> firstPage = restTemplate.exchange(
+                "/api/ride-schedules?limit=1", HttpMethod.GET, requestEntity, RideScheduleDTO[].class);
+        String cursor = firstPage.getHeaders().getFirst(RideScheduleController.NEXT_CURSOR_HEADER);
+        ResponseEntity<RideScheduleDTO[]> secondPage = restTemplate.exchange(
+                "/api/ride-schedules?limit=1&cursor=" + cursor, HttpMethod.GET, requestEntity, RideScheduleDTO[].class);
+
+        // Assert
+        assertEquals(HttpStatus.OK, firstPage.getStatusCode());
+        assertNotNull(cursor);
+        assertEquals(testRideSchedule.getId(), firstPage.getBody()[0].getId());
+        assertEquals(second.getId(), secondPage.getBody()[0].getId());
+        assertNull(secondPage.getHeaders().getFirst(RideScheduleController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void getAllRideSchedules_Ndjson_StreamsOneLinePerRideSchedule() throws Exception {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        headers.setBearerAuth(authToken);
+        HttpEntity<Void> requestEntity = new HttpEntity<>(headers);
+
+        // Act
+        ResponseEntity<String> response = restTemplate.exchange(
+                "/api/ride-schedules",
+                HttpMethod.GET,
+                requestEntity,
+                String.class
+        );
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<String> lines = response.getBody().lines().toList();
+        assertEquals(1, lines.size());
+        RideScheduleDTO rideSchedule = objectMapper.readValue(lines.getFirst(), RideScheduleDTO.class);
+        assertEquals(testRideSchedule.getId(), rideSchedule.getId());
+        assertEquals(testVehicle.getId(), rideSchedule.getVehicleId());
+    }
+
     @Test
     void getRideSchedulesByUserId_Success() {
         // Arrange
@@ -460,6 +531,39 @@ public class RideScheduleControllerIntegrationTest {
         assertEquals(-122.4194, searchResults[0].getStartLongitude());
         assertEquals(37.3382, searchResults[0].getEndLatitude());
         assertEquals(-121.8863, searchResults[0].getEndLongitude());
+        assertEquals(Map.of(DayOfWeek.MONDAY, 4, DayOfWeek.WEDNESDAY, 4), searchResults[0].getRemainingSeats());
+    }
+
+    @Test
+    void searchRideSchedules_Ndjson_StreamsOneLinePerResult() throws Exception {
+        // Arrange
+        SearchRideScheduleDTO searchDTO = new SearchRideScheduleDTO();
+        searchDTO.setStartLatitude(37.7749);
+        searchDTO.setStartLongitude(-122.4194);
+        searchDTO.setEndLatitude(37.3382);
+        searchDTO.setEndLongitude(-121.8863);
+        searchDTO.setRadiusInMiles(10.0);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        headers.setBearerAuth(authToken);
+        HttpEntity<SearchRideScheduleDTO> requestEntity = new HttpEntity<>(searchDTO, headers);
+
+        // Act
+        ResponseEntity<String> response = restTemplate.exchange(
+                "/api/ride-schedules/search",
+                HttpMethod.POST,
+                requestEntity,
+                String.class
+        );
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertTrue(MediaType.APPLICATION_NDJSON.isCompatibleWith(response.getHeaders().getContentType()));
+        List<String> lines = response.getBody().lines().toList();
+        assertEquals(1, lines.size());
+        assertEquals(testRideSchedule.getId(), objectMapper.readValue(lines.getFirst(), RideScheduleSearchResultDTO.class).getId());
     }
 
     @Test
@@ -0,0 +1,71 @@
+package com.benorim.carhov.aspect;
+
+import jakarta.persistence.OptimisticLockException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.Signature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OptimisticLockRetryAspectTest {
+
+    private OptimisticLockRetryAspect aspect;
+
+    private RetryOnOptimisticLock retryOnOptimisticLock;
+
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+
+    @Mock
+    private Signature signature;
+
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        aspect = new OptimisticLockRetryAspect();
+        retryOnOptimisticLock = getClass().getDeclaredMethod("retriedMethod").getAnnotation(RetryOnOptimisticLock.class);
+    }
+
+    @Test
+    void retry_ConcurrentChangeThenSuccess_ReturnsResult() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.proceed())
+                .thenThrow(new ObjectOptimisticLockingFailureException("RideSchedule", 1L))
+                .thenThrow(new OptimisticLockException())
+                .thenReturn("booked");
+
+        assertEquals("booked", aspect.retry(joinPoint, retryOnOptimisticLock));
+        verify(joinPoint, times(3)).proceed();
+    }
+
+    @Test
+    void retry_ConcurrentChangeOnEveryAttempt_RethrowsAfterMaxAttempts() throws Throwable {
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.proceed()).thenThrow(new ObjectOptimisticLockingFailureException("Booking", 1L));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> aspect.retry(joinPoint, retryOnOptimisticLock));
+        verify(joinPoint, times(3)).proceed();
+    }
+
+    @Test
+    void retry_OtherFailure_IsNotRetried() throws Throwable {
+        when(joinPoint.proceed()).thenThrow(new IllegalStateException("Not enough seats available for MONDAY"));
+
+        assertThrows(IllegalStateException.class, () -> aspect.retry(joinPoint, retryOnOptimisticLock));
+        verify(joinPoint, times(1)).proceed();
+    }
+
+    // Test method carrying the annotation read in setUp
+    @RetryOnOptimisticLock(maxAttempts = 3, backoffMs = 1, maxBackoffMs = 2)
+    void retriedMethod() {
+    }
+}
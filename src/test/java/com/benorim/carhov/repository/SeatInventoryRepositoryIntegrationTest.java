@@ -0,0 +1,179 @@
+package com.benorim.carhov.repository;
+
+import com.benorim.carhov.config.TestContainerConfig;
+import com.benorim.carhov.entity.CarHovUser;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.SeatInventory;
+import com.benorim.carhov.entity.Vehicle;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.service.SeatInventoryService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.IllegalTransactionStateException;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Many riders taking the last seats of a ride at once, against a real database. Unlike
+ * {@code BookingServiceConcurrencyTest}, no seat lock serializes the callers, so only the conditional update of
+ * the seat inventory keeps the ride from being overbooked.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestContainerConfig.class)
+public class SeatInventoryRepositoryIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int SEATS = 20;
+    private static final int ATTEMPTS = 400;
+
+    @Autowired
+    private SeatInventoryRepository seatInventoryRepository;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private RideScheduleRepository rideScheduleRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private CarHovUserRepository userRepository;
+
+    private RideSchedule rideSchedule;
+
+    @BeforeEach
+    void setUp() {
+        CarHovUser driver = userRepository.save(CarHovUser.builder()
+                .email("seat-inventory-test@example.com")
+                .displayName("Seat Inventory Test Driver")
+                .password("password123")
+                .enabled(true)
+                .accountNonLocked(true)
+                .accountNonExpired(true)
+                .credentialsNonExpired(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUser(driver);
+        vehicle.setMake("Toyota");
+        vehicle.setModel("Sienna");
+        vehicle.setYear(2022);
+        vehicle.setColor("Silver");
+        vehicle.setLicensePlate("SEAT20");
+        vehicle.setPassengerCapacity(SEATS);
+        vehicle = vehicleRepository.save(vehicle);
+
+        rideSchedule = new RideSchedule();
+        rideSchedule.setUser(driver);
+        rideSchedule.setVehicle(vehicle);
+        rideSchedule.setStartLatitude(37.7749);
+        rideSchedule.setStartLongitude(-122.4194);
+        rideSchedule.setEndLatitude(37.3382);
+        rideSchedule.setEndLongitude(-121.8863);
+        rideSchedule.setDayList(List.of(DayOfWeek.MONDAY));
+        rideSchedule.setDepartureTime(LocalTime.of(8, 0));
+        rideSchedule.setAvailableSeats(SEATS);
+        rideSchedule.setAvailable(true);
+        rideSchedule = rideScheduleRepository.save(rideSchedule);
+    }
+
+    @AfterEach
+    void tearDown() {
+        seatInventoryRepository.deleteByRideScheduleId(rideSchedule.getId());
+        rideScheduleRepository.deleteAll();
+        vehicleRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void reserveSeats_ManyRidersAtOnce_NeverOverbooks() throws Exception {
+        seatInventoryRepository.save(SeatInventory.builder()
+                .rideSchedule(rideSchedule)
+                .dayOfWeek(DayOfWeek.MONDAY)
+                .remainingSeats(SEATS)
+                .build());
+
+        int booked = concurrently(() -> seatInventoryRepository.reserveSeats(rideSchedule.getId(), DayOfWeek.MONDAY, 1) == 1);
+
+        assertEquals(SEATS, booked);
+        assertEquals(0, remainingSeats());
+    }
+
+    @Test
+    void reserve_ManyFirstBookersAtOnce_CreatesOneInventoryAndNeverOverbooks() throws Exception {
+        int booked = concurrently(() -> {
+            try {
+                seatInventoryService.reserve(rideSchedule, List.of(DayOfWeek.MONDAY), 1);
+                return true;
+            } catch (IllegalStateException e) {
+                return false;
+            }
+        });
+
+        assertEquals(SEATS, booked);
+        assertEquals(0, remainingSeats());
+    }
+
+    @Test
+    void seatsChanged_OutsideRideUpdateTransaction_IsRejected() {
+        assertThrows(IllegalTransactionStateException.class,
+                () -> seatInventoryService.seatsChanged(rideSchedule.getId(), SEATS, SEATS + 2));
+    }
+
+    private int remainingSeats() {
+        List<SeatInventory> inventories = seatInventoryRepository.findAll().stream()
+                .filter(inventory -> inventory.getRideSchedule().getId().equals(rideSchedule.getId()))
+                .toList();
+        assertEquals(1, inventories.size());
+        return inventories.getFirst().getRemainingSeats();
+    }
+
+    /**
+     * Make {@value #ATTEMPTS} attempts to take a seat from {@value #THREADS} threads.
+     *
+     * @return Number of successful attempts
+     */
+    private int concurrently(Callable<Boolean> attempt) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return attempt.call();
+                }));
+            }
+            start.countDown();
+            int booked = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    booked++;
+                }
+            }
+            return booked;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
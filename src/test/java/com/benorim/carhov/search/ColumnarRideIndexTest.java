@@ -0,0 +1,100 @@
+package com.benorim.carhov.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarRideIndexTest {
+
+    private final Random random = new Random(13);
+
+    @Test
+    void collectCandidates_AfterInsertsAndRemoves_MatchesBruteForce() {
+        // Small chunks so that changes span, empty and repack many of them
+        ColumnarRideIndex index = new ColumnarRideIndex(16);
+        Map<Long, IndexedRide> expected = new HashMap<>();
+
+        List<IndexedRide> initial = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            IndexedRide ride = randomRide(id);
+            initial.add(ride);
+            expected.put(id, ride);
+        }
+        index.load(initial);
+
+        for (long id = 201; id <= 1500; id++) {
+            IndexedRide ride = randomRide(id);
+            index.insert(ride);
+            expected.put(id, ride);
+            if (id % 2 == 0) {
+                IndexedRide removed = expected.remove(id / 2);
+                if (removed != null) {
+                    index.remove(removed);
+                }
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            RideQuery query = RideQuery.of(
+                    38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), 1 + random.nextDouble() * 15);
+
+            List<Long> bruteForce = expected.values().stream()
+                    .filter(query::boxesContain)
+                    .map(IndexedRide::id)
+                    .sorted()
+                    .toList();
+            List<Long> candidates = new ArrayList<>();
+            index.forEachCandidate(query, ride -> candidates.add(ride.id()));
+
+            assertEquals(bruteForce, candidates.stream().sorted().toList());
+        }
+        assertTrue(index.chunkCount() <= 2 * (expected.size() / 16 + 1));
+    }
+
+    @Test
+    void forEachCandidate_KeepsAllColumns() {
+        ColumnarRideIndex index = new ColumnarRideIndex();
+        IndexedRide ride = new IndexedRide(1L, 38.5, -77.5, 38.6, -77.4, 0b101, 8 * 60 + 30, 3);
+        index.insert(ride);
+
+        List<IndexedRide> candidates = new ArrayList<>();
+        index.forEachCandidate(RideQuery.of(38.5, -77.5, 38.6, -77.4, 1), candidates::add);
+
+        assertEquals(List.of(ride), candidates);
+    }
+
+    @Test
+    void forEachCandidate_ScanInProgressSeesItsSnapshot() {
+        ColumnarRideIndex index = new ColumnarRideIndex(4);
+        for (long id = 1; id <= 10; id++) {
+            index.insert(new IndexedRide(id, 38.5, -77.5, 38.6, -77.4));
+        }
+        RideQuery query = RideQuery.of(38.5, -77.5, 38.6, -77.4, 1);
+
+        List<Long> seen = new ArrayList<>();
+        index.forEachCandidate(query, ride -> {
+            // Writes made during the scan are published as a new snapshot
+            index.remove(new IndexedRide(ride.id() % 10 + 1, 38.5, -77.5, 38.6, -77.4));
+            seen.add(ride.id());
+        });
+
+        assertEquals(10, seen.size());
+        List<Long> remaining = new ArrayList<>();
+        index.forEachCandidate(query, ride -> remaining.add(ride.id()));
+        assertTrue(remaining.isEmpty());
+    }
+
+    private IndexedRide randomRide(long id) {
+        return new IndexedRide(id,
+                38 + random.nextDouble(), -78 + random.nextDouble(),
+                38 + random.nextDouble(), -78 + random.nextDouble());
+    }
+}
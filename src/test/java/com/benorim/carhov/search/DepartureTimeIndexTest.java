@@ -0,0 +1,72 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.util.DayOfWeekMask;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DepartureTimeIndexTest {
+
+    private static final int WEEKDAYS = DayOfWeekMask.of(List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY,
+            DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY));
+
+    @Test
+    void forEachCandidate_VisitsRidesInsideTheWindowOnce() {
+        DepartureTimeIndex index = new DepartureTimeIndex();
+        index.load(List.of(
+                ride(1, WEEKDAYS, 7 * 60 + 30),
+                ride(2, WEEKDAYS, 7 * 60 + 29),
+                ride(3, DayOfWeekMask.bit(DayOfWeek.SATURDAY), 8 * 60),
+                ride(4, WEEKDAYS, IndexedRide.NO_DEPARTURE_TIME),
+                ride(5, DayOfWeekMask.bit(DayOfWeek.MONDAY), 8 * 60 + 15)));
+
+        assertEquals(List.of(1L, 3L, 5L), candidateIds(index, window(DayOfWeekMask.NONE, 7 * 60 + 30, 8 * 60 + 15)));
+        assertEquals(List.of(1L), candidateIds(index, window(WEEKDAYS, 7 * 60 + 30, 8 * 60 + 15)));
+        // Ride 1 is listed under five days, but the driving day is walked alone
+        assertEquals(1, index.countCandidates(window(WEEKDAYS, 7 * 60 + 30, 7 * 60 + 44)));
+    }
+
+    @Test
+    void forEachCandidate_WrapsPastMidnight() {
+        DepartureTimeIndex index = new DepartureTimeIndex();
+        index.load(List.of(
+                ride(1, WEEKDAYS, 23 * 60 + 50),
+                ride(2, WEEKDAYS, 10),
+                ride(3, WEEKDAYS, 12 * 60),
+                ride(4, WEEKDAYS, 11 * 60 + 55)));
+
+        assertEquals(List.of(1L, 2L), candidateIds(index, window(DayOfWeekMask.NONE, 23 * 60 + 45, 15)));
+        // A window ending just before it starts covers all but a few minutes of the day
+        assertEquals(List.of(1L, 2L, 3L), candidateIds(index, window(DayOfWeekMask.NONE, 12 * 60, 11 * 60 + 50)));
+    }
+
+    @Test
+    void remove_DropsRideFromEveryDay() {
+        DepartureTimeIndex index = new DepartureTimeIndex();
+        IndexedRide ride = ride(1, WEEKDAYS, 7 * 60 + 45);
+        index.insert(ride);
+        index.remove(ride);
+
+        assertTrue(candidateIds(index, window(DayOfWeekMask.NONE, 0, RideQuery.LAST_MINUTE_OF_DAY)).isEmpty());
+        assertEquals(0, index.countCandidates(window(DayOfWeekMask.NONE, 0, RideQuery.LAST_MINUTE_OF_DAY)));
+    }
+
+    private static List<Long> candidateIds(DepartureTimeIndex index, RideQuery query) {
+        List<Long> ids = new ArrayList<>();
+        index.forEachCandidate(query, ride -> ids.add(ride.id()));
+        return ids.stream().sorted().toList();
+    }
+
+    private static RideQuery window(int daysMask, int departureFrom, int departureTo) {
+        return RideQuery.of(38.9, -77.0, 38.9, -77.0, 5, daysMask, departureFrom, departureTo);
+    }
+
+    private static IndexedRide ride(long id, int daysMask, int departureMinute) {
+        return new IndexedRide(id, 38.9, -77.0, 38.9, -77.0, daysMask, departureMinute, 3);
+    }
+}
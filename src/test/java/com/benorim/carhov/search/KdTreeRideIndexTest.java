@@ -0,0 +1,79 @@
+package com.benorim.carhov.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class KdTreeRideIndexTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    void forEachCandidate_AfterInsertsAndRemoves_MatchesBruteForce() {
+        KdTreeRideIndex index = new KdTreeRideIndex();
+        Map<Long, IndexedRide> expected = new HashMap<>();
+
+        // Start from a bulk load, then apply incremental changes that force leaf splits
+        List<IndexedRide> initial = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            IndexedRide ride = randomRide(id);
+            initial.add(ride);
+            expected.put(id, ride);
+        }
+        index.load(initial);
+
+        for (long id = 501; id <= 3000; id++) {
+            IndexedRide ride = randomRide(id);
+            index.insert(ride);
+            expected.put(id, ride);
+            if (id % 3 == 0) {
+                IndexedRide removed = expected.remove(id / 2);
+                if (removed != null) {
+                    index.remove(removed);
+                }
+            }
+        }
+
+        for (int i = 0; i < 50; i++) {
+            RideQuery query = RideQuery.of(
+                    38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), 1 + random.nextDouble() * 15);
+
+            List<Long> bruteForce = expected.values().stream()
+                    .filter(query::boxesContain)
+                    .map(IndexedRide::id)
+                    .sorted()
+                    .toList();
+            List<Long> candidates = new ArrayList<>();
+            index.forEachCandidate(query, ride -> candidates.add(ride.id()));
+
+            assertEquals(bruteForce, candidates.stream().sorted().toList());
+        }
+    }
+
+    @Test
+    void insert_ManyIdenticalRoutes_StaysQueryable() {
+        KdTreeRideIndex index = new KdTreeRideIndex();
+        for (long id = 1; id <= KdTreeRideIndex.LEAF_CAPACITY * 4; id++) {
+            index.insert(new IndexedRide(id, 38.9, -77.03, 38.8, -77.1));
+        }
+        index.remove(new IndexedRide(1, 38.9, -77.03, 38.8, -77.1));
+
+        List<Long> candidates = new ArrayList<>();
+        index.forEachCandidate(RideQuery.of(38.9, -77.03, 38.8, -77.1, 1), ride -> candidates.add(ride.id()));
+
+        assertEquals(KdTreeRideIndex.LEAF_CAPACITY * 4 - 1, candidates.size());
+    }
+
+    private IndexedRide randomRide(long id) {
+        return new IndexedRide(id,
+                38 + random.nextDouble(), -78 + random.nextDouble(),
+                38 + random.nextDouble(), -78 + random.nextDouble());
+    }
+}
@@ -0,0 +1,211 @@
+package com.benorim.carhov.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Slf4j
+class QuadTreeRideIndexTest {
+
+    private final Random random = new Random(11);
+
+    @Test
+    void forEachCandidate_AfterInsertsAndRemoves_MatchesBruteForce() {
+        QuadTreeRideIndex index = new QuadTreeRideIndex(16);
+        Map<Long, IndexedRide> expected = new HashMap<>();
+
+        List<IndexedRide> initial = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            IndexedRide ride = skewedRide(id);
+            initial.add(ride);
+            expected.put(id, ride);
+        }
+        index.load(initial);
+
+        // Incremental changes split dense nodes and merge emptied ones
+        for (long id = 501; id <= 3000; id++) {
+            IndexedRide ride = skewedRide(id);
+            index.insert(ride);
+            expected.put(id, ride);
+            if (id % 3 == 0) {
+                IndexedRide removed = expected.remove(id / 2);
+                if (removed != null) {
+                    index.remove(removed);
+                }
+            }
+        }
+
+        assertEquals(expected.size(), index.size());
+        for (int i = 0; i < 50; i++) {
+            RideQuery query = randomQuery();
+            assertEquals(bruteForce(expected.values(), query), candidateIds(index, query));
+        }
+    }
+
+    @Test
+    void insert_ManyIdenticalStartPoints_StopsSplittingAtMaxDepth() {
+        QuadTreeRideIndex index = new QuadTreeRideIndex(4);
+        for (long id = 1; id <= 100; id++) {
+            index.insert(new IndexedRide(id, 38.9, -77.03, 38.8, -77.1));
+        }
+        index.remove(new IndexedRide(1, 38.9, -77.03, 38.8, -77.1));
+
+        assertEquals(99, candidateIds(index, RideQuery.of(38.9, -77.03, 38.8, -77.1, 1)).size());
+        // Rides heading elsewhere are pruned by the end point bounds of the nodes
+        assertTrue(candidateIds(index, RideQuery.of(38.9, -77.03, 39.5, -76.5, 1)).isEmpty());
+    }
+
+    @Test
+    void forEachCandidate_WhileWriterAppliesChanges_SeesConsistentTree() throws Exception {
+        QuadTreeRideIndex index = new QuadTreeRideIndex(8);
+        List<IndexedRide> stable = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            stable.add(new IndexedRide(id, 38.9 + id * 1e-4, -77.03, 38.8, -77.1));
+        }
+        index.load(stable);
+        RideQuery query = RideQuery.of(38.91, -77.03, 38.8, -77.1, 2);
+        List<Long> expected = bruteForce(stable, query);
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(readers.submit(() -> {
+                    boolean consistent = true;
+                    while (writing.get()) {
+                        // Rides elsewhere come and go; the stable rides must always be visible
+                        consistent &= candidateIds(index, query).equals(expected);
+                    }
+                    return consistent;
+                }));
+            }
+            for (long id = 1000; id < 6000; id++) {
+                IndexedRide ride = new IndexedRide(id, 40 + random.nextDouble(), -75 + random.nextDouble(), 38.8, -77.1);
+                index.insert(ride);
+                index.remove(ride);
+            }
+            writing.set(false);
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    /**
+     * Compares the quadtree with the fixed grid on rides packed into a few downtown blocks, where a grid cell holds
+     * most of the rides. Both must return the same rides; the timings are logged for comparison.
+     * Run with {@code mvn test -Pbenchmark}.
+     */
+    @Test
+    @Tag("benchmark")
+    void benchmark_SkewedRides_ComparedWithFixedGrid() {
+        List<IndexedRide> rides = new ArrayList<>();
+        for (long id = 1; id <= 50_000; id++) {
+            rides.add(skewedRide(id));
+        }
+        List<RideQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            queries.add(downtownQuery());
+        }
+
+        QuadTreeRideIndex quadTree = new QuadTreeRideIndex(64);
+        GridRideIndex grid = new GridRideIndex(0.1);
+        long quadTreeLoadNanos = time(() -> quadTree.load(rides));
+        long gridLoadNanos = time(() -> grid.load(rides));
+
+        for (RideQuery query : queries) {
+            assertEquals(boxedCandidateIds(grid, query), candidateIds(quadTree, query));
+        }
+
+        // Warm up both before timing
+        runQueries(quadTree, queries);
+        runQueries(grid, queries);
+        long quadTreeQueryNanos = time(() -> runQueries(quadTree, queries));
+        long gridQueryNanos = time(() -> runQueries(grid, queries));
+
+        log.info("Skewed rides ({} rides, {} queries): quadtree load {} ms, query {} ms; grid load {} ms, query {} ms",
+                rides.size(), queries.size(), quadTreeLoadNanos / 1_000_000, quadTreeQueryNanos / 1_000_000,
+                gridLoadNanos / 1_000_000, gridQueryNanos / 1_000_000);
+    }
+
+    private static void runQueries(RideSpatialIndex index, List<RideQuery> queries) {
+        for (RideQuery query : queries) {
+            RideCandidates candidates = new RideCandidates(64);
+            index.collectCandidates(query, candidates);
+            candidates.refine(query).forEach(match -> {
+            });
+        }
+    }
+
+    private static long time(Runnable runnable) {
+        long start = System.nanoTime();
+        runnable.run();
+        return System.nanoTime() - start;
+    }
+
+    private static List<Long> candidateIds(RideSpatialIndex index, RideQuery query) {
+        List<Long> ids = new ArrayList<>();
+        index.forEachCandidate(query, ride -> ids.add(ride.id()));
+        return ids.stream().sorted().toList();
+    }
+
+    private static List<Long> boxedCandidateIds(RideSpatialIndex index, RideQuery query) {
+        List<Long> ids = new ArrayList<>();
+        index.forEachCandidate(query, ride -> {
+            if (query.boxesContain(ride)) {
+                ids.add(ride.id());
+            }
+        });
+        return ids.stream().sorted().toList();
+    }
+
+    private static List<Long> bruteForce(Iterable<IndexedRide> rides, RideQuery query) {
+        List<Long> ids = new ArrayList<>();
+        rides.forEach(ride -> {
+            if (query.boxesContain(ride)) {
+                ids.add(ride.id());
+            }
+        });
+        return ids.stream().sorted().toList();
+    }
+
+    /**
+     * Nine in ten rides start within a few blocks of downtown; the rest are spread over the surrounding region.
+     * Destinations are spread over the region.
+     */
+    private IndexedRide skewedRide(long id) {
+        boolean downtown = random.nextInt(10) != 0;
+        double startLatitude = downtown ? 38.90 + random.nextDouble() * 0.02 : 38 + random.nextDouble() * 2;
+        double startLongitude = downtown ? -77.04 + random.nextDouble() * 0.02 : -78 + random.nextDouble() * 2;
+        return new IndexedRide(id, startLatitude, startLongitude,
+                38 + random.nextDouble() * 2, -78 + random.nextDouble() * 2);
+    }
+
+    private RideQuery randomQuery() {
+        return random.nextBoolean()
+                ? downtownQuery()
+                : RideQuery.of(38 + random.nextDouble() * 2, -78 + random.nextDouble() * 2,
+                        38 + random.nextDouble() * 2, -78 + random.nextDouble() * 2, 1 + random.nextDouble() * 15);
+    }
+
+    private RideQuery downtownQuery() {
+        return RideQuery.of(38.90 + random.nextDouble() * 0.02, -77.04 + random.nextDouble() * 0.02,
+                38 + random.nextDouble() * 2, -78 + random.nextDouble() * 2, 0.5 + random.nextDouble() * 2);
+    }
+}
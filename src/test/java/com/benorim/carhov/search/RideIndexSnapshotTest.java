@@ -0,0 +1,66 @@
+package com.benorim.carhov.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RideIndexSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndRead_RoundTripsRides() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        Instant takenAt = Instant.parse("2024-05-01T08:30:00Z");
+        List<IndexedRide> rides = List.of(
+                new IndexedRide(1L, 37.7749, -122.4194, 37.3382, -121.8863, 0b11111, 480, 3),
+                new IndexedRide(2L, 40.7128, -74.0060, 40.7306, -73.9352, 0, IndexedRide.NO_DEPARTURE_TIME, 0));
+
+        RideIndexSnapshot.write(path, rides, takenAt);
+        RideIndexSnapshot snapshot = RideIndexSnapshot.read(path);
+
+        assertEquals(takenAt, snapshot.takenAt());
+        assertEquals(rides, snapshot.rides());
+    }
+
+    @Test
+    void write_ReplacesPreviousSnapshot() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        RideIndexSnapshot.write(path, List.of(new IndexedRide(1L, 1, 2, 3, 4)), Instant.EPOCH);
+
+        RideIndexSnapshot.write(path, List.of(), Instant.EPOCH);
+
+        assertEquals(List.of(), RideIndexSnapshot.read(path).rides());
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void read_RejectsTruncatedFile() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        RideIndexSnapshot.write(path, List.of(new IndexedRide(1L, 1, 2, 3, 4)), Instant.EPOCH);
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> RideIndexSnapshot.read(path));
+    }
+
+    @Test
+    void read_RejectsForeignFile() throws IOException {
+        Path path = directory.resolve("index.snapshot");
+        Files.writeString(path, "not a snapshot at all");
+
+        assertThrows(IOException.class, () -> RideIndexSnapshot.read(path));
+    }
+}
@@ -0,0 +1,45 @@
+package com.benorim.carhov.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RideQueryIndexTest {
+
+    @Test
+    void forEachMatch_MatchesBruteForce() {
+        Random random = new Random(5);
+        // A low cell limit puts the widest queries in the list every ride checks
+        RideQueryIndex<Integer> index = new RideQueryIndex<>(0.1, 64);
+        List<RideQuery> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            RideQuery query = RideQuery.of(38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), 1 + random.nextDouble() * 30);
+            queries.add(query);
+            index.add(i, query);
+        }
+        for (int i = 0; i < 500; i += 3) {
+            index.remove(i);
+        }
+
+        for (int r = 0; r < 200; r++) {
+            IndexedRide ride = new IndexedRide(r, 38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble());
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < queries.size(); i++) {
+                if (i % 3 != 0 && queries.get(i).matches(ride)) {
+                    expected.add(i);
+                }
+            }
+            List<Integer> actual = new ArrayList<>();
+            index.forEachMatch(ride, actual::add);
+
+            assertEquals(expected, actual.stream().sorted().toList());
+        }
+        assertEquals(333, index.size());
+    }
+}
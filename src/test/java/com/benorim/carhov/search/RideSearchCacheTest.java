@@ -0,0 +1,123 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RideSearchCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<SearchRideScheduleDTO> computed = new ArrayList<>();
+    private final Function<SearchRideScheduleDTO, RideSearchPage> search = criteria -> {
+        computed.add(criteria);
+        return new RideSearchPage(List.of(), null);
+    };
+
+    private RideSearchCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RideSearchCache(now::get);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "ttlMs", 1000L);
+        cache.init();
+    }
+
+    @Test
+    void get_NearbySearchesShareSnappedEntry() {
+        RideSearchPage first = cache.get(criteria(37.77491, -122.41941, 37.33821, -121.88631), search);
+        RideSearchPage second = cache.get(criteria(37.77489, -122.41939, 37.33819, -121.88629), search);
+
+        assertSame(first, second);
+        assertEquals(1, computed.size());
+        assertEquals(37.775, computed.getFirst().getStartLatitude(), 1e-9);
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void get_ExpiredAndLeastRecentlyUsedEntriesAreDropped() {
+        SearchRideScheduleDTO sanFrancisco = criteria(37.7749, -122.4194, 37.3382, -121.8863);
+        SearchRideScheduleDTO newYork = criteria(40.7128, -74.0060, 40.7580, -73.9855);
+        SearchRideScheduleDTO chicago = criteria(41.8781, -87.6298, 41.9742, -87.9073);
+
+        cache.get(sanFrancisco, search);
+        cache.get(newYork, search);
+        cache.get(sanFrancisco, search);
+        cache.get(chicago, search);
+        // New York was least recently used
+        cache.get(newYork, search);
+        now.addAndGet(1000);
+        cache.get(chicago, search);
+
+        assertEquals(5, computed.size());
+        assertEquals(2, cache.stats().evictions());
+        assertEquals(1, cache.stats().expirations());
+    }
+
+    @Test
+    void getAll_ComputesOnlyMissesInOneCall() {
+        SearchRideScheduleDTO outbound = criteria(37.7749, -122.4194, 37.3382, -121.8863);
+        SearchRideScheduleDTO inbound = criteria(37.3382, -121.8863, 37.7749, -122.4194);
+        RideSearchPage cachedOutbound = cache.get(outbound, search);
+        List<List<SearchRideScheduleDTO>> batches = new ArrayList<>();
+
+        List<RideSearchPage> pages = cache.getAll(List.of(outbound, inbound), misses -> {
+            batches.add(misses);
+            return misses.stream().map(search).toList();
+        });
+
+        assertSame(cachedOutbound, pages.get(0));
+        assertEquals(1, batches.size());
+        assertEquals(37.338, batches.getFirst().getFirst().getStartLatitude(), 1e-9);
+        assertSame(pages.get(1), cache.get(inbound, search));
+        assertEquals(2, computed.size());
+    }
+
+    @Test
+    void invalidate_DropsOnlySearchesMatchingTheRide() {
+        SearchRideScheduleDTO toSanJose = criteria(37.7749, -122.4194, 37.3382, -121.8863);
+        SearchRideScheduleDTO toOakland = criteria(37.7749, -122.4194, 37.8044, -122.2712);
+        cache.get(toSanJose, search);
+        cache.get(toOakland, search);
+
+        cache.invalidate(List.of(new IndexedRide(1L, 37.7750, -122.4190, 37.3380, -121.8860)));
+        cache.get(toSanJose, search);
+        cache.get(toOakland, search);
+
+        assertEquals(3, computed.size());
+        assertEquals(1, cache.stats().invalidations());
+    }
+
+    @Test
+    void invalidate_DuringSearch_DoesNotCacheStalePage() {
+        SearchRideScheduleDTO toSanJose = criteria(37.7749, -122.4194, 37.3382, -121.8863);
+
+        cache.get(toSanJose, criteria -> {
+            cache.invalidate(List.of(new IndexedRide(1L, 0, 0, 0, 0)));
+            return search.apply(criteria);
+        });
+        cache.get(toSanJose, search);
+
+        assertEquals(2, computed.size());
+    }
+
+    private static SearchRideScheduleDTO criteria(double startLat, double startLon, double endLat, double endLon) {
+        SearchRideScheduleDTO criteria = new SearchRideScheduleDTO();
+        criteria.setStartLatitude(startLat);
+        criteria.setStartLongitude(startLon);
+        criteria.setEndLatitude(endLat);
+        criteria.setEndLongitude(endLon);
+        criteria.setRadiusInMiles(5.0);
+        return criteria;
+    }
+}
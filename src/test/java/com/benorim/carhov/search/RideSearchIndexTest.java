@@ -0,0 +1,421 @@
+package com.benorim.carhov.search;
+
+import com.benorim.carhov.dto.rideSchedule.RideScheduleIndexRow;
+import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.util.GeoUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RideSearchIndexTest {
+
+    @Mock
+    private RideScheduleRepository rideScheduleRepository;
+
+    @InjectMocks
+    private RideSearchIndex rideSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(rideSearchIndex, "indexType", "kd-tree");
+        ReflectionTestUtils.setField(rideSearchIndex, "cellSizeDegrees", 0.1);
+        rideSearchIndex.init();
+    }
+
+    @Test
+    void findMatches_LoadsOnceAndMatchesBothEndpoints() {
+        // San Francisco -> San Jose, and San Francisco -> Oakland
+        RideSchedule toSanJose = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        RideSchedule toOakland = ride(2L, 37.7749, -122.4194, 37.8044, -122.2712, true);
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(toSanJose, toOakland));
+
+        SearchRideScheduleDTO criteria = criteria(37.7750, -122.4190, 37.3380, -121.8860, 5.0);
+
+        assertEquals(List.of(1L), matchingIds(criteria));
+        assertEquals(List.of(1L), matchingIds(criteria));
+        verify(rideScheduleRepository, times(1)).findAvailableCoordinates();
+    }
+
+    @Test
+    void loadOnStartup_LoadsBeforeFirstSearch() {
+        RideSchedule rideSchedule = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rideSchedule));
+
+        rideSearchIndex.loadOnStartup();
+
+        assertEquals(1, rideSearchIndex.size());
+        assertEquals(List.of(1L), matchingIds(criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0)));
+        verify(rideScheduleRepository, times(1)).findAvailableCoordinates();
+    }
+
+    @Test
+    void loadOnStartup_FailedLoad_IsRetriedByFirstSearch() {
+        RideSchedule rideSchedule = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        when(rideScheduleRepository.findAvailableCoordinates())
+                .thenThrow(new IllegalStateException("Database unavailable"))
+                .thenReturn(coordinates(rideSchedule));
+
+        rideSearchIndex.loadOnStartup();
+
+        assertEquals(0, rideSearchIndex.size());
+        assertEquals(List.of(1L), matchingIds(criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0)));
+    }
+
+    @Test
+    void loadOnStartup_IndexDisabled_DoesNotLoad() {
+        ReflectionTestUtils.setField(rideSearchIndex, "enabled", false);
+
+        rideSearchIndex.loadOnStartup();
+
+        verify(rideScheduleRepository, never()).findAvailableCoordinates();
+    }
+
+    @Test
+    void findMatches_KeepsRidesRunningOnAllRequestedDays() {
+        RideSchedule tuesdayAndThursday = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        tuesdayAndThursday.setDayList(List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.THURSDAY));
+        RideSchedule tuesdayOnly = ride(2L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        tuesdayOnly.setDayList(List.of(DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY));
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(tuesdayAndThursday, tuesdayOnly));
+
+        SearchRideScheduleDTO criteria = criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0);
+        assertEquals(List.of(1L, 2L), matchingIds(criteria).stream().sorted().toList());
+
+        criteria.setDays(List.of(DayOfWeek.TUESDAY, DayOfWeek.THURSDAY));
+        assertEquals(List.of(1L), matchingIds(criteria));
+    }
+
+    @Test
+    void upsert_MovesAndDropsRides() {
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(List.of());
+        SearchRideScheduleDTO criteria = criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0);
+        assertTrue(matchingIds(criteria).isEmpty());
+
+        RideSchedule rideSchedule = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        rideSearchIndex.upsert(rideSchedule);
+        assertEquals(List.of(1L), matchingIds(criteria));
+
+        // Move the start point to New York
+        rideSchedule.setStartLatitude(40.7128);
+        rideSchedule.setStartLongitude(-74.0060);
+        rideSearchIndex.upsert(rideSchedule);
+        assertTrue(matchingIds(criteria).isEmpty());
+        assertEquals(1, rideSearchIndex.size());
+
+        rideSchedule.setAvailable(false);
+        rideSearchIndex.upsert(rideSchedule);
+        assertEquals(0, rideSearchIndex.size());
+    }
+
+    @Test
+    void remove_DropsRide() {
+        RideSchedule rideSchedule = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rideSchedule));
+        SearchRideScheduleDTO criteria = criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0);
+        assertEquals(List.of(1L), matchingIds(criteria));
+
+        rideSearchIndex.remove(1L);
+
+        assertTrue(matchingIds(criteria).isEmpty());
+    }
+
+    @Test
+    void findMatches_ReplaysChangesSinceSnapshot(@TempDir Path directory) throws IOException {
+        Path snapshotPath = directory.resolve("index.snapshot");
+        ReflectionTestUtils.setField(rideSearchIndex, "snapshotPath", snapshotPath.toString());
+        RideSchedule deleted = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        RideSchedule unchanged = ride(2L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        RideSchedule moved = ride(3L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        RideIndexSnapshot.write(snapshotPath, indexedRides(deleted, unchanged, moved), Instant.now());
+
+        // Ride 1 was deleted, ride 3 moved to New York and ride 4 was created since the snapshot
+        moved.setStartLatitude(40.7128);
+        moved.setStartLongitude(-74.0060);
+        RideSchedule created = ride(4L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        when(rideScheduleRepository.findAvailableIds()).thenReturn(List.of(2L, 3L, 4L));
+        when(rideScheduleRepository.findAvailableCoordinatesUpdatedAfter(any())).thenReturn(coordinates(moved));
+        when(rideScheduleRepository.findAvailableCoordinatesByIdIn(Set.of(4L)))
+                .thenReturn(coordinates(created));
+
+        SearchRideScheduleDTO criteria = criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0);
+
+        assertEquals(List.of(2L, 4L), matchingIds(criteria).stream().sorted().toList());
+        assertEquals(3, rideSearchIndex.size());
+        verify(rideScheduleRepository, never()).findAvailableCoordinates();
+    }
+
+    @Test
+    void saveSnapshot_WritesLoadedRides(@TempDir Path directory) throws IOException {
+        Path snapshotPath = directory.resolve("index.snapshot");
+        ReflectionTestUtils.setField(rideSearchIndex, "snapshotPath", snapshotPath.toString());
+        RideSchedule rideSchedule = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rideSchedule));
+        matchingIds(criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0));
+
+        rideSearchIndex.saveSnapshot();
+
+        assertEquals(indexedRides(rideSchedule), RideIndexSnapshot.read(snapshotPath).rides());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"grid", "kd-tree", "columnar"})
+    void findMatches_MatchesFullScan(String indexType) {
+        ReflectionTestUtils.setField(rideSearchIndex, "indexType", indexType);
+        rideSearchIndex.init();
+        Random random = new Random(42);
+        List<RideSchedule> rides = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            rides.add(ride(id,
+                    38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), true));
+        }
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rides.toArray(RideSchedule[]::new)));
+
+        for (int i = 0; i < 20; i++) {
+            SearchRideScheduleDTO criteria = criteria(
+                    38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), 1 + random.nextDouble() * 20);
+
+            List<Long> expected = rides.stream()
+                    .filter(ride -> GeoUtils.isWithinRadius(criteria.getStartLatitude(), criteria.getStartLongitude(),
+                            ride.getStartLatitude(), ride.getStartLongitude(), criteria.getRadiusInMiles()))
+                    .filter(ride -> GeoUtils.isWithinRadius(criteria.getEndLatitude(), criteria.getEndLongitude(),
+                            ride.getEndLatitude(), ride.getEndLongitude(), criteria.getRadiusInMiles()))
+                    .map(RideSchedule::getId)
+                    .sorted()
+                    .toList();
+
+            assertEquals(expected, matchingIds(criteria).stream().sorted().toList());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"grid", "kd-tree", "columnar"})
+    void findTopMatches_ShardedParallelSearchMatchesFullRanking(String indexType) {
+        ReflectionTestUtils.setField(rideSearchIndex, "indexType", indexType);
+        ReflectionTestUtils.setField(rideSearchIndex, "shardCount", 4);
+        ReflectionTestUtils.setField(rideSearchIndex, "parallelThreads", 2);
+        ReflectionTestUtils.setField(rideSearchIndex, "parallelMinRadiusMiles", 10.0);
+        rideSearchIndex.init();
+        Random random = new Random(7);
+        List<RideSchedule> rides = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            rides.add(ride(id,
+                    38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), true));
+        }
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rides.toArray(RideSchedule[]::new)));
+
+        try {
+            // Radii on both sides of the parallel threshold
+            for (double radius : new double[]{5, 40}) {
+                SearchRideScheduleDTO criteria = criteria(38.5, -77.5, 38.5, -77.5, radius);
+                List<RideMatch> ranked = rideSearchIndex.findMatches(criteria).stream().sorted(RideMatch.RANKING).toList();
+
+                List<RideMatch> firstPage = rideSearchIndex.findTopMatches(criteria, 10, null);
+                assertEquals(ranked.subList(0, Math.min(10, ranked.size())), firstPage);
+
+                if (ranked.size() > 10) {
+                    List<RideMatch> secondPage = rideSearchIndex.findTopMatches(criteria, 10, SearchCursor.after(firstPage.get(9)));
+                    assertEquals(ranked.subList(10, Math.min(20, ranked.size())), secondPage);
+                }
+            }
+        } finally {
+            rideSearchIndex.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"grid", "kd-tree", "columnar"})
+    void findTopMatches_BatchMatchesSingleSearches(String indexType) {
+        ReflectionTestUtils.setField(rideSearchIndex, "indexType", indexType);
+        rideSearchIndex.init();
+        Random random = new Random(11);
+        List<RideSchedule> rides = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            rides.add(ride(id,
+                    38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), true));
+        }
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rides.toArray(RideSchedule[]::new)));
+
+        List<SearchRideScheduleDTO> searches = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            searches.add(criteria(38 + random.nextDouble(), -78 + random.nextDouble(),
+                    38 + random.nextDouble(), -78 + random.nextDouble(), 5 + random.nextDouble() * 20));
+        }
+        List<TopKRideMatches> topMatches = searches.stream().map(search -> new TopKRideMatches(10, null)).toList();
+
+        rideSearchIndex.findTopMatches(searches, topMatches);
+
+        for (int i = 0; i < searches.size(); i++) {
+            assertEquals(rideSearchIndex.findTopMatches(searches.get(i), 10, null), topMatches.get(i).toSortedList());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"grid", "kd-tree", "columnar"})
+    void findMatches_DepartureWindowMatchesFullScan(String indexType) {
+        ReflectionTestUtils.setField(rideSearchIndex, "indexType", indexType);
+        rideSearchIndex.init();
+        Random random = new Random(23);
+        DayOfWeek[] days = DayOfWeek.values();
+        List<RideSchedule> rides = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            RideSchedule rideSchedule = ride(id,
+                    38 + random.nextDouble() * 0.3, -78 + random.nextDouble() * 0.3,
+                    38 + random.nextDouble() * 0.3, -78 + random.nextDouble() * 0.3, true);
+            rideSchedule.setDayList(List.of(days[random.nextInt(days.length)], days[random.nextInt(days.length)]));
+            if (id % 10 != 0) {
+                rideSchedule.setDepartureTime(LocalTime.of(random.nextInt(24), random.nextInt(60)));
+            }
+            rides.add(rideSchedule);
+        }
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rides.toArray(RideSchedule[]::new)));
+
+        // Narrow windows are answered from the departure index, the whole day and wide windows from the spatial index
+        LocalTime[][] windows = {
+                {LocalTime.of(7, 30), LocalTime.of(8, 15)},
+                {LocalTime.of(23, 50), LocalTime.of(0, 20)},
+                {null, LocalTime.of(0, 40)},
+                {LocalTime.of(6, 0), LocalTime.of(20, 0)},
+                {null, null}
+        };
+        for (LocalTime[] window : windows) {
+            for (List<DayOfWeek> requiredDays : List.of(List.<DayOfWeek>of(), List.of(DayOfWeek.MONDAY))) {
+                SearchRideScheduleDTO criteria = criteria(38.15, -77.85, 38.15, -77.85, 15);
+                criteria.setDepartureAfter(window[0]);
+                criteria.setDepartureBefore(window[1]);
+                criteria.setDays(requiredDays);
+
+                List<Long> expected = rides.stream()
+                        .filter(ride -> ride.getDayList().containsAll(requiredDays))
+                        .filter(ride -> departsBetween(ride.getDepartureTime(), window[0], window[1]))
+                        .filter(ride -> GeoUtils.isWithinRadius(criteria.getStartLatitude(), criteria.getStartLongitude(),
+                                ride.getStartLatitude(), ride.getStartLongitude(), criteria.getRadiusInMiles()))
+                        .filter(ride -> GeoUtils.isWithinRadius(criteria.getEndLatitude(), criteria.getEndLongitude(),
+                                ride.getEndLatitude(), ride.getEndLongitude(), criteria.getRadiusInMiles()))
+                        .map(RideSchedule::getId)
+                        .sorted()
+                        .toList();
+
+                assertEquals(expected, matchingIds(criteria).stream().sorted().toList());
+                List<TopKRideMatches> batch = List.of(new TopKRideMatches(expected.size() + 1, null));
+                rideSearchIndex.findTopMatches(List.of(criteria), batch);
+                assertEquals(expected, batch.getFirst().toSortedList().stream().map(RideMatch::id).sorted().toList());
+            }
+        }
+    }
+
+    @Test
+    void upsert_MovesRideBetweenDepartureBuckets() {
+        RideSchedule rideSchedule = ride(1L, 37.7749, -122.4194, 37.3382, -121.8863, true);
+        rideSchedule.setDayList(List.of(DayOfWeek.MONDAY));
+        rideSchedule.setDepartureTime(LocalTime.of(7, 45));
+        when(rideScheduleRepository.findAvailableCoordinates()).thenReturn(coordinates(rideSchedule));
+        SearchRideScheduleDTO criteria = criteria(37.7749, -122.4194, 37.3382, -121.8863, 5.0);
+        criteria.setDepartureAfter(LocalTime.of(7, 30));
+        criteria.setDepartureBefore(LocalTime.of(8, 0));
+        assertEquals(List.of(1L), matchingIds(criteria));
+
+        rideSchedule.setDepartureTime(LocalTime.of(9, 0));
+        rideSearchIndex.upsert(rideSchedule);
+        assertTrue(matchingIds(criteria).isEmpty());
+
+        criteria.setDepartureAfter(LocalTime.of(8, 45));
+        criteria.setDepartureBefore(LocalTime.of(9, 15));
+        assertEquals(List.of(1L), matchingIds(criteria));
+    }
+
+    @Test
+    void geoGrid_CoversCellsAcrossTheAntimeridian() {
+        GeoGrid grid = new GeoGrid(1.0);
+        List<Long> cells = new ArrayList<>();
+
+        grid.forEachCellInRadius(0, 179.9, 20, cells::add);
+
+        assertTrue(cells.contains(grid.cellOf(0, 179.9)));
+        assertTrue(cells.contains(grid.cellOf(0, -179.9)));
+    }
+
+    private List<Long> matchingIds(SearchRideScheduleDTO criteria) {
+        return rideSearchIndex.findMatches(criteria).stream().map(RideMatch::id).toList();
+    }
+
+    private static boolean departsBetween(LocalTime departureTime, LocalTime after, LocalTime before) {
+        if (after == null && before == null) {
+            return true;
+        }
+        if (departureTime == null) {
+            return false;
+        }
+        LocalTime from = after == null ? LocalTime.MIN : after;
+        LocalTime to = before == null ? LocalTime.MAX : before.plusSeconds(59);
+        return from.isAfter(to)
+                ? !departureTime.isBefore(from) || !departureTime.isAfter(to)
+                : !departureTime.isBefore(from) && !departureTime.isAfter(to);
+    }
+
+    private static List<RideScheduleIndexRow> coordinates(RideSchedule... rideSchedules) {
+        return Arrays.stream(rideSchedules)
+                .map(rideSchedule -> new RideScheduleIndexRow(rideSchedule.getId(),
+                        rideSchedule.getStartLatitude(), rideSchedule.getStartLongitude(),
+                        rideSchedule.getEndLatitude(), rideSchedule.getEndLongitude(),
+                        rideSchedule.getDaysMask(), rideSchedule.getDepartureTime(), rideSchedule.getAvailableSeats()))
+                .toList();
+    }
+
+    private static List<IndexedRide> indexedRides(RideSchedule... rideSchedules) {
+        return Arrays.stream(rideSchedules).map(IndexedRide::from).toList();
+    }
+
+    private static RideSchedule ride(Long id, double startLat, double startLon, double endLat, double endLon, boolean available) {
+        RideSchedule rideSchedule = new RideSchedule();
+        rideSchedule.setId(id);
+        rideSchedule.setStartLatitude(startLat);
+        rideSchedule.setStartLongitude(startLon);
+        rideSchedule.setEndLatitude(endLat);
+        rideSchedule.setEndLongitude(endLon);
+        rideSchedule.setAvailable(available);
+        return rideSchedule;
+    }
+
+    private static SearchRideScheduleDTO criteria(double startLat, double startLon, double endLat, double endLon, double radius) {
+        SearchRideScheduleDTO criteria = new SearchRideScheduleDTO();
+        criteria.setStartLatitude(startLat);
+        criteria.setStartLongitude(startLon);
+        criteria.setEndLatitude(endLat);
+        criteria.setEndLongitude(endLon);
+        criteria.setRadiusInMiles(radius);
+        return criteria;
+    }
+}
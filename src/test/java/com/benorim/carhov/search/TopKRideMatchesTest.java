@@ -0,0 +1,42 @@
+package com.benorim.carhov.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopKRideMatchesTest {
+
+    @Test
+    void pagesMatchFullSort() {
+        Random random = new Random(3);
+        List<RideMatch> matches = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            // Coarse distances so that many matches tie on total distance
+            matches.add(new RideMatch(id, random.nextInt(20) * 0.5, random.nextInt(20) * 0.5));
+        }
+        List<RideMatch> expected = matches.stream().sorted(RideMatch.RANKING).toList();
+
+        List<RideMatch> paged = new ArrayList<>();
+        SearchCursor cursor = null;
+        while (paged.size() < matches.size()) {
+            TopKRideMatches topMatches = new TopKRideMatches(37, cursor);
+            matches.forEach(topMatches::offer);
+            List<RideMatch> page = topMatches.toSortedList();
+            paged.addAll(page);
+            cursor = SearchCursor.decode(SearchCursor.after(page.getLast()).encode());
+        }
+
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    void decode_MalformedCursor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("AAAA"));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a cursor"));
+    }
+}
@@ -0,0 +1,257 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.dto.booking.CreateBookingDTO;
+import com.benorim.carhov.entity.Booking;
+import com.benorim.carhov.entity.CarHovUser;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.SeatInventory;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.repository.BookingRepository;
+import com.benorim.carhov.repository.CarHovUserRepository;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.repository.SeatInventoryRepository;
+import com.benorim.carhov.search.RideSearchCache;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many riders booking at once. The real seat inventory service runs over an in-memory ledger whose seat
+ * inventory rows are created and taken with a check-then-act, so it overbooks or creates a day twice whenever
+ * two bookings of the same ride overlap, and only the seat locks keep the bookings correct. The conditional
+ * update of the real seat inventory is checked against a database in {@code SeatInventoryRepositoryIntegrationTest}.
+ */
+@Slf4j
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BookingServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private RideScheduleRepository rideScheduleRepository;
+
+    @Mock
+    private CarHovUserRepository carHovUserRepository;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private RideSearchViewService rideSearchViewService;
+
+    @Mock
+    private RideSearchCache rideSearchCache;
+
+    @Mock
+    private SeatInventoryRepository seatInventoryRepository;
+
+    @Spy
+    private SeatLockManager seatLockManager = new SeatLockManager();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    private BookingService bookingService;
+
+    // The ledger: seats each ride offers, seats left of its MONDAY inventory and the bookings saved
+    private final Map<Long, Integer> availableSeats = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> remainingSeats = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> inventoriesCreated = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Booking> savedBookings = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger fewestRemainingSeats = new AtomicInteger(Integer.MAX_VALUE);
+
+    private final Map<Long, AtomicInteger> activeBookings = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> mostActiveBookings = new ConcurrentHashMap<>();
+    private final AtomicInteger activeBookingsOfAllRides = new AtomicInteger();
+    private final AtomicInteger mostActiveBookingsOfAllRides = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        seatLockManager.init();
+        SeatInventoryService seatInventoryService =
+                new SeatInventoryService(seatInventoryRepository, rideScheduleRepository, bookingRepository);
+        bookingService = new BookingService(bookingRepository, rideScheduleRepository, carHovUserRepository, authService,
+                rideSearchViewService, seatInventoryService, rideSearchCache, seatLockManager, transactionTemplate);
+
+        CarHovUser rider = new CarHovUser();
+        rider.setId(1L);
+        when(carHovUserRepository.findById(1L)).thenReturn(Optional.of(rider));
+        when(authService.getSignedInUserId()).thenReturn(1L);
+        when(rideScheduleRepository.findById(anyLong())).thenAnswer(invocation -> {
+            RideSchedule rideSchedule = new RideSchedule();
+            rideSchedule.setId(invocation.getArgument(0));
+            rideSchedule.setAvailableSeats(availableSeats.get(rideSchedule.getId()));
+            rideSchedule.setUser(new CarHovUser());
+            rideSchedule.setAvailable(true);
+            rideSchedule.setDayList(List.of(DayOfWeek.MONDAY));
+            return Optional.of(rideSchedule);
+        });
+        when(bookingRepository.findByCarHovUserIdAndRideScheduleId(anyLong(), anyLong())).thenReturn(List.of());
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> {
+            Booking booking = invocation.getArgument(0);
+            savedBookings.add(booking);
+            return booking;
+        });
+        when(bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(anyLong(), anyInt()))
+                .thenAnswer(invocation -> seatsBooked(invocation.getArgument(0)));
+
+        // The first booker of a ride reads its seats and creates its inventory
+        when(seatInventoryRepository.findDaysOfWeekByRideScheduleId(anyLong())).thenAnswer(invocation ->
+                remainingSeats.containsKey(invocation.<Long>getArgument(0)) ? List.of(DayOfWeek.MONDAY) : List.of());
+        when(rideScheduleRepository.lockAvailableSeats(anyLong()))
+                .thenAnswer(invocation -> Optional.of(availableSeats.get(invocation.<Long>getArgument(0))));
+        when(seatInventoryRepository.save(any(SeatInventory.class))).thenAnswer(invocation -> {
+            SeatInventory seatInventory = invocation.getArgument(0);
+            Long rideScheduleId = seatInventory.getRideSchedule().getId();
+            inventoriesCreated.computeIfAbsent(rideScheduleId, id -> new AtomicInteger()).incrementAndGet();
+            remainingSeats.put(rideScheduleId, seatInventory.getRemainingSeats());
+            return seatInventory;
+        });
+
+        when(seatInventoryRepository.reserveSeats(anyLong(), eq(DayOfWeek.MONDAY), anyInt())).thenAnswer(invocation -> {
+            Long rideScheduleId = invocation.getArgument(0);
+            int seats = invocation.getArgument(2);
+            int active = activeBookings.computeIfAbsent(rideScheduleId, id -> new AtomicInteger()).incrementAndGet();
+            mostActiveBookings.merge(rideScheduleId, active, Math::max);
+            mostActiveBookingsOfAllRides.accumulateAndGet(activeBookingsOfAllRides.incrementAndGet(), Math::max);
+            try {
+                int remaining = remainingSeats.get(rideScheduleId);
+                // Stands in for the database round trip between reading and writing the seats
+                Thread.sleep(1);
+                if (remaining < seats) {
+                    return 0;
+                }
+                remainingSeats.put(rideScheduleId, remaining - seats);
+                fewestRemainingSeats.accumulateAndGet(remaining - seats, Math::min);
+                return 1;
+            } finally {
+                activeBookings.get(rideScheduleId).decrementAndGet();
+                activeBookingsOfAllRides.decrementAndGet();
+            }
+        });
+    }
+
+    @Test
+    void createBooking_ManyRidersOnePopularRide_NeverOverbooks() throws Exception {
+        availableSeats.put(1L, 20);
+
+        int booked = bookConcurrently(List.of(1L), 400, "one ride");
+
+        assertEquals(savedBookings.size(), booked);
+        assertLedgerBalances(1L);
+        assertEquals(20, seatsBooked(1L));
+        assertTrue(fewestRemainingSeats.get() >= 0);
+        assertEquals(1, mostActiveBookings.get(1L));
+    }
+
+    @Test
+    void createBooking_ManyRides_BooksRidesInParallel() throws Exception {
+        List<Long> rideScheduleIds = new ArrayList<>();
+        for (long id = 1; id <= THREADS; id++) {
+            rideScheduleIds.add(id);
+            availableSeats.put(id, 1000);
+        }
+
+        int booked = bookConcurrently(rideScheduleIds, 800, "separate rides");
+
+        assertEquals(800, booked);
+        rideScheduleIds.forEach(this::assertLedgerBalances);
+        assertEquals(800, rideScheduleIds.stream().mapToInt(this::seatsBooked).sum());
+        // Every ride stays serialized, while bookings of different rides overlap
+        mostActiveBookings.values().forEach(most -> assertEquals(1, most));
+        assertTrue(mostActiveBookingsOfAllRides.get() > 1);
+    }
+
+    /**
+     * Every seat taken from the ride's inventory belongs to a saved booking, and the inventory was created once.
+     */
+    private void assertLedgerBalances(Long rideScheduleId) {
+        assertEquals(1, inventoriesCreated.get(rideScheduleId).get());
+        assertEquals(availableSeats.get(rideScheduleId) - remainingSeats.get(rideScheduleId), seatsBooked(rideScheduleId));
+    }
+
+    private int seatsBooked(Long rideScheduleId) {
+        return savedBookings.stream()
+                .filter(booking -> booking.getRideSchedule().getId().equals(rideScheduleId))
+                .mapToInt(Booking::getSeatsBooked)
+                .sum();
+    }
+
+    /**
+     * Book one seat per attempt from {@value #THREADS} threads, cycling through the rides.
+     *
+     * @return Number of successful bookings
+     */
+    private int bookConcurrently(List<Long> rideScheduleIds, int attempts, String label) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < attempts; i++) {
+                CreateBookingDTO createBookingDTO = CreateBookingDTO.builder()
+                        .rideScheduleId(rideScheduleIds.get(i % rideScheduleIds.size()))
+                        .userId(1L)
+                        .seatsBooked(1)
+                        .bookedDays(List.of(DayOfWeek.MONDAY))
+                        .build();
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        bookingService.createBooking(createBookingDTO);
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                }));
+            }
+
+            long startNanos = System.nanoTime();
+            start.countDown();
+            int booked = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    booked++;
+                }
+            }
+            long elapsedMs = Math.max(1, (System.nanoTime() - startNanos) / 1_000_000);
+            log.info("Booking stress ({}): {} attempts, {} booked in {} ms, {} attempts/s",
+                    label, attempts, booked, elapsedMs, attempts * 1000L / elapsedMs);
+            return booked;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -4,28 +4,42 @@ import com.benorim.carhov.dto.booking.CreateBookingDTO;
 import com.benorim.carhov.entity.Booking;
 import com.benorim.carhov.entity.CarHovUser;
 import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.RideSearchView;
 import com.benorim.carhov.enums.BookingStatus;
 import com.benorim.carhov.enums.DayOfWeek;
 import com.benorim.carhov.exception.DataOwnershipException;
 import com.benorim.carhov.repository.BookingRepository;
 import com.benorim.carhov.repository.CarHovUserRepository;
 import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.search.IndexedRide;
+import com.benorim.carhov.search.RideSearchCache;
+import com.benorim.carhov.util.DayOfWeekMask;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,6 +58,21 @@ class BookingServiceTest {
     @Mock
     private AuthService authService;
 
+    @Mock
+    private RideSearchViewService rideSearchViewService;
+
+    @Mock
+    private RideSearchCache rideSearchCache;
+
+    @Mock
+    private SeatInventoryService seatInventoryService;
+
+    @Spy
+    private SeatLockManager seatLockManager = new SeatLockManager();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @InjectMocks
     private BookingService bookingService;
 
@@ -54,6 +83,8 @@ class BookingServiceTest {
 
     @BeforeEach
     void setUp() {
+        seatLockManager.init();
+
         user = new CarHovUser();
         user.setId(1L);
         user.setDisplayName("Test User");
@@ -70,7 +101,7 @@ class BookingServiceTest {
                 .carHovUser(user)
                 .rideSchedule(rideSchedule)
                 .seatsBooked(2)
-                .bookedDays("MONDAY")
+                .bookedDaysMask(DayOfWeekMask.bit(DayOfWeek.MONDAY))
                 .status(BookingStatus.PENDING)
                 .createdAt(LocalDateTime.now())
                 .build();
@@ -88,7 +119,6 @@ class BookingServiceTest {
         when(rideScheduleRepository.findById(1L)).thenReturn(Optional.of(rideSchedule));
         when(carHovUserRepository.findById(1L)).thenReturn(Optional.of(user));
         when(bookingRepository.findByCarHovUserIdAndRideScheduleId(1L, 1L)).thenReturn(List.of());
-        when(bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(1L, "MONDAY")).thenReturn(0);
         when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
         when(authService.getSignedInUserId()).thenReturn(1L);
 
@@ -100,6 +130,25 @@ class BookingServiceTest {
         assertEquals(BookingStatus.PENDING, result.getStatus());
         assertEquals(2, result.getSeatsBooked());
         verify(bookingRepository).save(any(Booking.class));
+        verify(seatInventoryService).reserve(rideSchedule, List.of(DayOfWeek.MONDAY), 2);
+        verify(rideSearchViewService).seatsReserved(booking);
+    }
+
+    @Test
+    void createBooking_NotEnoughSeats() {
+        // Arrange
+        when(rideScheduleRepository.findById(1L)).thenReturn(Optional.of(rideSchedule));
+        when(carHovUserRepository.findById(1L)).thenReturn(Optional.of(user));
+        when(bookingRepository.findByCarHovUserIdAndRideScheduleId(1L, 1L)).thenReturn(List.of());
+        when(authService.getSignedInUserId()).thenReturn(1L);
+        doThrow(new IllegalStateException("Not enough seats available for MONDAY"))
+                .when(seatInventoryService).reserve(rideSchedule, List.of(DayOfWeek.MONDAY), 2);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () ->
+            bookingService.createBooking(createBookingDTO)
+        );
+        verify(bookingRepository, never()).save(any(Booking.class));
     }
 
     @Test
@@ -154,6 +203,22 @@ class BookingServiceTest {
         assertEquals(BookingStatus.CANCELLED, result.getStatus());
         assertNotNull(result.getCancellationDate());
         verify(bookingRepository).save(booking);
+        verify(seatInventoryService).release(booking);
+        verify(rideSearchViewService).seatsReleased(booking);
+        verify(rideSearchCache).invalidate(List.of(IndexedRide.from(rideSchedule)));
+    }
+
+    @Test
+    void cancelBooking_RejectedBooking_DoesNotReleaseSeatsAgain() {
+        booking.setStatus(BookingStatus.REJECTED);
+        when(bookingRepository.findById(1L)).thenReturn(Optional.of(booking));
+        when(authService.getSignedInUserId()).thenReturn(1L);
+        when(bookingRepository.save(any(Booking.class))).thenReturn(booking);
+
+        bookingService.cancelBooking(1L);
+
+        verify(seatInventoryService, never()).release(any());
+        verify(rideSearchViewService, never()).seatsReleased(any());
     }
 
     @Test
@@ -215,7 +280,7 @@ class BookingServiceTest {
     @Test
     void getTotalSeatsBookedForDay() {
         // Arrange
-        when(bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(1L, "MONDAY")).thenReturn(2);
+        when(bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(1L, DayOfWeekMask.bit(DayOfWeek.MONDAY))).thenReturn(2);
 
         // Act
         int result = bookingService.getTotalSeatsBookedForDay(1L, DayOfWeek.MONDAY);
@@ -223,4 +288,37 @@ class BookingServiceTest {
         // Assert
         assertEquals(2, result);
     }
-} 
\ No newline at end of file
+
+    @Test
+    void getAvailability_ReadsAllRidesInOneLookup() {
+        // Arrange
+        RideSearchView available = RideSearchView.builder()
+                .id(1L)
+                .daysMask(rideSchedule.getDaysMask())
+                .available(true)
+                .remainingSeatsMonday(2)
+                .remainingSeatsWednesday(4)
+                .build();
+        RideSearchView unavailable = RideSearchView.builder()
+                .id(2L)
+                .daysMask(rideSchedule.getDaysMask())
+                .available(false)
+                .build();
+        when(rideSearchViewService.findByIds(Set.of(1L, 2L, 3L))).thenReturn(Map.of(1L, available, 2L, unavailable));
+
+        // Act
+        Map<Long, Map<DayOfWeek, Integer>> result = bookingService.getAvailability(List.of(1L, 2L, 3L));
+
+        // Assert
+        assertEquals(Map.of(DayOfWeek.MONDAY, 2, DayOfWeek.WEDNESDAY, 4), result.get(1L));
+        assertEquals(Map.of(), result.get(2L));
+        assertFalse(result.containsKey(3L));
+    }
+
+    @Test
+    void getAvailability_TooManyRides_ThrowsException() {
+        List<Long> ids = LongStream.rangeClosed(1, BookingService.MAX_AVAILABILITY_BATCH + 1).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> bookingService.getAvailability(ids));
+    }
+}
@@ -34,6 +34,9 @@ class CarHovUserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private RideSearchViewService rideSearchViewService;
+
     @InjectMocks
     private CarHovUserService carHovUserService;
 
@@ -80,6 +83,7 @@ class CarHovUserServiceTest {
 
         verify(carHovUserRepository).findById(1L);
         verify(carHovUserRepository).save(existingUser);
+        verify(rideSearchViewService).renameDriver(updatedUser.getId(), "New Name");
     }
 
     @Test
@@ -0,0 +1,145 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.config.TestContainerConfig;
+import com.benorim.carhov.entity.CarHovUser;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.Vehicle;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.repository.CarHovUserRepository;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.repository.VehicleRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Concurrent updates of one ride schedule against a real database. The ride is read without a row lock, so both
+ * updates read it at once, and the one that writes second is caught by the version check and retried.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestContainerConfig.class)
+public class RideScheduleServiceIntegrationTest {
+
+    @Autowired
+    private RideScheduleService rideScheduleService;
+
+    @Autowired
+    private RideScheduleRepository rideScheduleRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private CarHovUserRepository userRepository;
+
+    @MockitoBean
+    private AuthService authService;
+
+    // Called by every update attempt after the ride was read and before it is written
+    @MockitoSpyBean
+    private SavedRideSearchService savedRideSearchService;
+
+    private RideSchedule rideSchedule;
+
+    @BeforeEach
+    void setUp() {
+        CarHovUser driver = userRepository.save(CarHovUser.builder()
+                .email("ride-update-test@example.com")
+                .displayName("Ride Update Test Driver")
+                .password("password123")
+                .enabled(true)
+                .accountNonLocked(true)
+                .accountNonExpired(true)
+                .credentialsNonExpired(true)
+                .createdAt(LocalDateTime.now())
+                .build());
+
+        Vehicle vehicle = new Vehicle();
+        vehicle.setUser(driver);
+        vehicle.setMake("Honda");
+        vehicle.setModel("Odyssey");
+        vehicle.setYear(2021);
+        vehicle.setColor("Blue");
+        vehicle.setLicensePlate("UPD123");
+        vehicle.setPassengerCapacity(6);
+        vehicle = vehicleRepository.save(vehicle);
+
+        rideSchedule = new RideSchedule();
+        rideSchedule.setUser(driver);
+        rideSchedule.setVehicle(vehicle);
+        rideSchedule.setStartLatitude(37.7749);
+        rideSchedule.setStartLongitude(-122.4194);
+        rideSchedule.setEndLatitude(37.3382);
+        rideSchedule.setEndLongitude(-121.8863);
+        rideSchedule.setDayList(List.of(DayOfWeek.MONDAY));
+        rideSchedule.setDepartureTime(LocalTime.of(8, 0));
+        rideSchedule.setAvailableSeats(4);
+        rideSchedule.setAvailable(true);
+        rideSchedule = rideScheduleRepository.save(rideSchedule);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rideScheduleService.deleteRideSchedule(rideSchedule.getId());
+        vehicleRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void updateRideSchedule_TwoUpdatesAtOnce_OneIsRetriedNotBlocked() throws Exception {
+        // The first two attempts wait for each other after reading the ride. With a row lock on the read, the
+        // second attempt could not get here while the first one waits, and the barrier would time out
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (attempts.incrementAndGet() <= 2) {
+                bothRead.await(10, TimeUnit.SECONDS);
+            }
+            return invocation.callRealMethod();
+        }).when(savedRideSearchService).matchRideSchedule(any());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Boolean> fiveSeats = executor.submit(() -> update(5));
+            Future<Boolean> sixSeats = executor.submit(() -> update(6));
+
+            assertTrue(fiveSeats.get(30, TimeUnit.SECONDS));
+            assertTrue(sixSeats.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(3, attempts.get(), "Exactly one of the two updates should have been retried");
+        RideSchedule updated = rideScheduleRepository.findById(rideSchedule.getId()).orElseThrow();
+        assertEquals(rideSchedule.getVersion() + 2, updated.getVersion());
+    }
+
+    private boolean update(int availableSeats) {
+        RideSchedule update = new RideSchedule();
+        update.setAvailableSeats(availableSeats);
+        update.setAvailable(true);
+        return rideScheduleService.updateRideSchedule(rideSchedule.getId(), update).isPresent();
+    }
+}
@@ -1,36 +1,63 @@
 package com.benorim.carhov.service;
 
 import com.benorim.carhov.dto.rideSchedule.CreateRideScheduleDTO;
+import com.benorim.carhov.dto.rideSchedule.RideScheduleDTO;
+import com.benorim.carhov.dto.rideSchedule.RideSchedulePage;
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchResultDTO;
+import com.benorim.carhov.dto.rideSchedule.RideScheduleSearchRow;
 import com.benorim.carhov.dto.rideSchedule.SearchRideScheduleDTO;
 import com.benorim.carhov.entity.CarHovUser;
 import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.RideSearchView;
 import com.benorim.carhov.entity.Vehicle;
 import com.benorim.carhov.enums.DayOfWeek;
 import com.benorim.carhov.exception.DataOwnershipException;
 import com.benorim.carhov.repository.CarHovUserRepository;
 import com.benorim.carhov.repository.RideScheduleRepository;
 import com.benorim.carhov.repository.VehicleRepository;
-import com.benorim.carhov.util.GeoUtils;
+import com.benorim.carhov.search.RideMatch;
+import com.benorim.carhov.search.RideSearchCache;
+import com.benorim.carhov.search.RideSearchIndex;
+import com.benorim.carhov.search.RideSearchPage;
+import com.benorim.carhov.search.SearchCursor;
+import com.benorim.carhov.search.TopKRideMatches;
+import com.benorim.carhov.util.DayOfWeekMask;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -50,6 +77,21 @@ class RideScheduleServiceTest {
     @Mock
     private AuthService authService;
 
+    @Mock
+    private RideSearchIndex rideSearchIndex;
+
+    @Mock
+    private SavedRideSearchService savedRideSearchService;
+
+    @Mock
+    private RideSearchViewService rideSearchViewService;
+
+    @Mock
+    private SeatInventoryService seatInventoryService;
+
+    @Spy
+    private RideSearchCache rideSearchCache = new RideSearchCache();
+
     @InjectMocks
     private RideScheduleService rideScheduleService;
 
@@ -60,6 +102,7 @@ class RideScheduleServiceTest {
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(rideSearchCache, "enabled", false);
         user = new CarHovUser();
         user.setId(1L);
 
@@ -95,6 +138,10 @@ class RideScheduleServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getId());
         verify(rideScheduleRepository, times(1)).save(any(RideSchedule.class));
+        verify(rideSearchViewService).refresh(rideSchedule);
+        verify(rideSearchIndex).upsert(rideSchedule);
+        verify(rideSearchCache).invalidate(any());
+        verify(savedRideSearchService).matchRideSchedule(rideSchedule);
     }
 
     @Test
@@ -136,9 +183,51 @@ class RideScheduleServiceTest {
         assertEquals(1L, result.getFirst().getId());
     }
 
+    @Test
+    void findRideSchedulePage_PagesByKeyset() {
+        rideSchedule.setVehicle(vehicle);
+        RideSchedule next = new RideSchedule();
+        next.setId(2L);
+        next.setUser(user);
+        next.setVehicle(vehicle);
+        when(rideScheduleRepository.findSearchRowsByIdGreaterThan(0L, Limit.of(2)))
+                .thenReturn(List.of(searchRow(rideSchedule), searchRow(next)));
+        when(rideScheduleRepository.findSearchRowsByIdGreaterThan(1L, Limit.of(2)))
+                .thenReturn(List.of(searchRow(next)));
+
+        RideSchedulePage firstPage = rideScheduleService.findRideSchedulePage(1, null);
+        RideSchedulePage secondPage = rideScheduleService.findRideSchedulePage(1, firstPage.nextCursor());
+
+        assertEquals(List.of(1L), firstPage.results().stream().map(RideScheduleDTO::getId).toList());
+        assertNotNull(firstPage.nextCursor());
+        assertEquals(List.of(2L), secondPage.results().stream().map(RideScheduleDTO::getId).toList());
+        assertNull(secondPage.nextCursor());
+    }
+
+    @Test
+    void findRideSchedulePage_InvalidLimitOrCursor_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> rideScheduleService.findRideSchedulePage(0, null));
+        assertThrows(IllegalArgumentException.class, () -> rideScheduleService.findRideSchedulePage(501, null));
+        assertThrows(IllegalArgumentException.class, () -> rideScheduleService.findRideSchedulePage(10, "not a cursor"));
+    }
+
+    @Test
+    void exportRideSchedules_VisitsEveryRowAndClosesStream() {
+        rideSchedule.setVehicle(vehicle);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(rideScheduleRepository.streamAllSearchRows())
+                .thenReturn(Stream.of(searchRow(rideSchedule)).onClose(() -> closed.set(true)));
+        List<Long> exported = new ArrayList<>();
+
+        rideScheduleService.exportRideSchedules(row -> exported.add(row.id()));
+
+        assertEquals(List.of(1L), exported);
+        assertTrue(closed.get());
+    }
+
     @Test
     void deleteRideSchedule_Success() {
-        when(rideScheduleRepository.findById(1L)).thenReturn(Optional.of(rideSchedule));
+        when(rideScheduleRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(rideSchedule));
         doNothing().when(rideScheduleRepository).delete(rideSchedule);
 
         boolean result = rideScheduleService.deleteRideSchedule(1L);
@@ -149,14 +238,14 @@ class RideScheduleServiceTest {
 
     @Test
     void deleteRideSchedule_Failed_NotLoggedIntUser() {
-        when(rideScheduleRepository.findById(1L)).thenReturn(Optional.of(rideSchedule));
+        when(rideScheduleRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(rideSchedule));
         when(authService.isRequestMadeByLoggedInUser(user)).thenThrow(new DataOwnershipException("User not logged in"));
         assertThrows(DataOwnershipException.class, () -> rideScheduleService.deleteRideSchedule(1L));
     }
 
     @Test
     void deleteRideSchedule_NotFound() {
-        when(rideScheduleRepository.findById(1L)).thenReturn(Optional.empty());
+        when(rideScheduleRepository.findByIdForUpdate(1L)).thenReturn(Optional.empty());
 
         boolean result = rideScheduleService.deleteRideSchedule(1L);
 
@@ -182,14 +271,339 @@ class RideScheduleServiceTest {
         searchCriteria.setEndLongitude(-77.0365);
         searchCriteria.setRadiusInMiles(5.0);
 
-        when(rideScheduleRepository.findByAvailableTrue()).thenReturn(Collections.singletonList(rideSchedule));
-        mockStatic(GeoUtils.class).when(() -> GeoUtils.isWithinRadius(anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
-                .thenReturn(true);
+        when(rideSearchIndex.findMatches(searchCriteria)).thenReturn(List.of(new RideMatch(1L, 0.5, 0.7)));
+        when(rideScheduleRepository.findAllById(List.of(1L))).thenReturn(Collections.singletonList(rideSchedule));
+
+        List<RideSchedule> result = rideScheduleService.searchRideSchedules(searchCriteria);
+
+        assertEquals(1, result.size());
+        assertEquals(1L, result.getFirst().getId());
+    }
+
+    @Test
+    void searchRideSchedulesWithDetails_UsesMatchDistancesAndSortsByTotal() {
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+
+        rideSchedule.setVehicle(vehicle);
+        RideSchedule closer = new RideSchedule();
+        closer.setId(2L);
+        closer.setUser(user);
+        closer.setVehicle(vehicle);
+
+        when(rideSearchIndex.findTopMatches(searchCriteria, 51, null))
+                .thenReturn(List.of(new RideMatch(2L, 0.5, 0.25), new RideMatch(1L, 2.0, 3.0)));
+        when(rideSearchViewService.findByIds(List.of(2L, 1L))).thenReturn(searchViews(rideSchedule, closer));
+
+        RideSearchPage page = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
+        List<RideScheduleSearchResultDTO> result = page.results();
+
+        assertNull(page.nextCursor());
+        assertEquals(2, result.size());
+        assertEquals(2L, result.get(0).getId());
+        assertEquals(0.75, result.get(0).getTotalDistanceInMiles());
+        assertEquals(2.0, result.get(1).getStartPointDistanceInMiles());
+        assertEquals(5.0, result.get(1).getTotalDistanceInMiles());
+        assertEquals(Map.of(DayOfWeek.MONDAY, 2), result.get(1).getRemainingSeats());
+    }
+
+    @Test
+    void searchRideSchedulesWithDetails_PagesWithCursor() {
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+        searchCriteria.setLimit(1);
+
+        rideSchedule.setVehicle(vehicle);
+        RideSchedule closer = new RideSchedule();
+        closer.setId(2L);
+        closer.setUser(user);
+        closer.setVehicle(vehicle);
+
+        when(rideSearchIndex.findTopMatches(eq(searchCriteria), eq(2), any()))
+                .thenReturn(List.of(new RideMatch(2L, 0.5, 0.25), new RideMatch(1L, 2.0, 3.0)), List.of(new RideMatch(1L, 2.0, 3.0)));
+        when(rideSearchViewService.findByIds(List.of(2L, 1L))).thenReturn(searchViews(closer, rideSchedule));
+        when(rideSearchViewService.findByIds(List.of(1L))).thenReturn(searchViews(rideSchedule));
+
+        RideSearchPage firstPage = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
+        searchCriteria.setCursor(firstPage.nextCursor());
+        RideSearchPage secondPage = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
+
+        assertEquals(List.of(2L), firstPage.results().stream().map(RideScheduleSearchResultDTO::getId).toList());
+        assertNotNull(firstPage.nextCursor());
+        assertEquals(List.of(1L), secondPage.results().stream().map(RideScheduleSearchResultDTO::getId).toList());
+        assertNull(secondPage.nextCursor());
+        verify(rideSearchIndex).findTopMatches(searchCriteria, 2, SearchCursor.decode(firstPage.nextCursor()));
+    }
+
+    @Test
+    void searchRideSchedulesWithDetails_RideDeletedSinceIndexed_BackFillsPage() {
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+        searchCriteria.setLimit(1);
+
+        rideSchedule.setVehicle(vehicle);
+        RideSchedule farther = new RideSchedule();
+        farther.setId(3L);
+        farther.setUser(user);
+        farther.setVehicle(vehicle);
+        RideMatch deleted = new RideMatch(2L, 0.5, 0.25);
+        RideMatch rideMatch = new RideMatch(1L, 2.0, 3.0);
+
+        when(rideSearchIndex.findTopMatches(searchCriteria, 2, null)).thenReturn(List.of(deleted, rideMatch));
+        when(rideSearchViewService.findByIds(List.of(2L, 1L))).thenReturn(searchViews(rideSchedule));
+        when(rideSearchIndex.findTopMatches(searchCriteria, 1, SearchCursor.after(rideMatch)))
+                .thenReturn(List.of(new RideMatch(3L, 4.0, 4.0)));
+        when(rideSearchViewService.findByIds(List.of(3L))).thenReturn(searchViews(farther));
+
+        RideSearchPage page = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
+
+        assertEquals(List.of(1L), page.results().stream().map(RideScheduleSearchResultDTO::getId).toList());
+        assertEquals(SearchCursor.after(rideMatch).encode(), page.nextCursor());
+    }
+
+    @Test
+    void searchRideSchedulesWithDetails_RideDeletedAndNoMoreMatches_ShortPageIsLast() {
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+        searchCriteria.setLimit(1);
+
+        rideSchedule.setVehicle(vehicle);
+        RideMatch rideMatch = new RideMatch(1L, 2.0, 3.0);
+
+        when(rideSearchIndex.findTopMatches(searchCriteria, 2, null)).thenReturn(List.of(rideMatch, new RideMatch(2L, 2.5, 3.0)));
+        when(rideSearchViewService.findByIds(List.of(1L, 2L))).thenReturn(searchViews(rideSchedule));
+        when(rideSearchIndex.findTopMatches(searchCriteria, 1, SearchCursor.after(new RideMatch(2L, 2.5, 3.0))))
+                .thenReturn(List.of());
+
+        RideSearchPage page = rideScheduleService.searchRideSchedulesWithDetails(searchCriteria);
+
+        assertEquals(List.of(1L), page.results().stream().map(RideScheduleSearchResultDTO::getId).toList());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void searchRideSchedulesWithDetails_Batch_LoadsAllPagesInOneQuery() {
+        SearchRideScheduleDTO outbound = new SearchRideScheduleDTO();
+        outbound.setStartLatitude(38.8951);
+        outbound.setStartLongitude(-77.0364);
+        outbound.setEndLatitude(38.8977);
+        outbound.setEndLongitude(-77.0365);
+        outbound.setLimit(1);
+        SearchRideScheduleDTO inbound = new SearchRideScheduleDTO();
+        inbound.setStartLatitude(38.8977);
+        inbound.setStartLongitude(-77.0365);
+        inbound.setEndLatitude(38.8951);
+        inbound.setEndLongitude(-77.0364);
+
+        rideSchedule.setVehicle(vehicle);
+        RideSchedule closer = new RideSchedule();
+        closer.setId(2L);
+        closer.setUser(user);
+        closer.setVehicle(vehicle);
+
+        doAnswer(invocation -> {
+            List<TopKRideMatches> topMatches = invocation.getArgument(1);
+            topMatches.get(0).offer(new RideMatch(1L, 2.0, 3.0));
+            topMatches.get(0).offer(new RideMatch(2L, 0.5, 0.25));
+            topMatches.get(1).offer(new RideMatch(2L, 0.25, 0.5));
+            return null;
+        }).when(rideSearchIndex).findTopMatches(eq(List.of(outbound, inbound)), any());
+        when(rideSearchViewService.findByIds(List.of(2L, 1L))).thenReturn(searchViews(closer, rideSchedule));
+
+        List<RideSearchPage> pages = rideScheduleService.searchRideSchedulesWithDetails(List.of(outbound, inbound));
+
+        assertEquals(2, pages.size());
+        assertEquals(List.of(2L), pages.get(0).results().stream().map(RideScheduleSearchResultDTO::getId).toList());
+        assertNotNull(pages.get(0).nextCursor());
+        assertEquals(List.of(2L), pages.get(1).results().stream().map(RideScheduleSearchResultDTO::getId).toList());
+        assertEquals(0.25, pages.get(1).results().getFirst().getStartPointDistanceInMiles());
+        assertNull(pages.get(1).nextCursor());
+        verify(rideSearchViewService, times(1)).findByIds(any());
+    }
+
+    @Test
+    void searchRideSchedulesWithDetails_InvalidCursor_ThrowsException() {
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setCursor("not a cursor");
+
+        assertThrows(IllegalArgumentException.class, () -> rideScheduleService.searchRideSchedulesWithDetails(searchCriteria));
+    }
+
+    @Test
+    void searchRideSchedules_NoMatches_SkipsRepository() {
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+
+        when(rideSearchIndex.findMatches(searchCriteria)).thenReturn(List.of());
+
+        List<RideSchedule> result = rideScheduleService.searchRideSchedules(searchCriteria);
+
+        assertTrue(result.isEmpty());
+        verify(rideScheduleRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void searchRideSchedules_IndexDisabled_UsesBoundingBoxQuery() {
+        ReflectionTestUtils.setField(rideScheduleService, "searchIndexEnabled", false);
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+        searchCriteria.setRadiusInMiles(5.0);
+
+        rideSchedule.setStartLatitude(38.9);
+        rideSchedule.setStartLongitude(-77.04);
+        rideSchedule.setEndLatitude(38.9);
+        rideSchedule.setEndLongitude(-77.04);
+        RideSchedule farEnd = new RideSchedule();
+        farEnd.setId(2L);
+        farEnd.setStartLatitude(38.9);
+        farEnd.setStartLongitude(-77.04);
+        // Inside the bounding box corner but outside the radius
+        farEnd.setEndLatitude(38.8977 + 0.07);
+        farEnd.setEndLongitude(-77.0365 + 0.09);
+
+        when(rideSearchViewService.findCandidates(any()))
+                .thenReturn(List.copyOf(searchViews(rideSchedule, farEnd).values()));
+        when(rideScheduleRepository.findAllById(List.of(1L))).thenReturn(List.of(rideSchedule));
 
         List<RideSchedule> result = rideScheduleService.searchRideSchedules(searchCriteria);
 
         assertEquals(1, result.size());
         assertEquals(1L, result.getFirst().getId());
+        verify(rideSearchIndex, never()).findMatches(any());
+    }
+
+    @Test
+    void searchRideSchedules_IndexDisabled_FiltersDaysInQuery() {
+        ReflectionTestUtils.setField(rideScheduleService, "searchIndexEnabled", false);
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+        searchCriteria.setDays(List.of(DayOfWeek.TUESDAY, DayOfWeek.THURSDAY));
+        int tuesdayAndThursday = DayOfWeekMask.bit(DayOfWeek.TUESDAY) | DayOfWeekMask.bit(DayOfWeek.THURSDAY);
+
+        when(rideSearchViewService.findCandidates(argThat(query -> query.daysMask() == tuesdayAndThursday
+                && !query.hasDepartureWindow())))
+                .thenReturn(List.of());
+
+        assertTrue(rideScheduleService.searchRideSchedules(searchCriteria).isEmpty());
     }
 
-}
\ No newline at end of file
+    @Test
+    void searchRideSchedules_IndexDisabled_FiltersDepartureWindowInQuery() {
+        ReflectionTestUtils.setField(rideScheduleService, "searchIndexEnabled", false);
+        SearchRideScheduleDTO searchCriteria = new SearchRideScheduleDTO();
+        searchCriteria.setStartLatitude(38.8951);
+        searchCriteria.setStartLongitude(-77.0364);
+        searchCriteria.setEndLatitude(38.8977);
+        searchCriteria.setEndLongitude(-77.0365);
+        searchCriteria.setDepartureAfter(LocalTime.of(22, 30));
+        searchCriteria.setDepartureBefore(LocalTime.of(1, 15));
+
+        when(rideSearchViewService.findCandidates(argThat(query -> query.departureFrom() == 22 * 60 + 30
+                && query.departureTo() == 60 + 15)))
+                .thenReturn(List.of());
+
+        assertTrue(rideScheduleService.searchRideSchedules(searchCriteria).isEmpty());
+    }
+
+    @Test
+    void updateRideSchedule_MoreSeats_ShiftsSeatInventory() {
+        rideSchedule.setAvailableSeats(3);
+        when(rideScheduleRepository.findById(1L)).thenReturn(Optional.of(rideSchedule));
+        when(rideScheduleRepository.saveAndFlush(rideSchedule)).thenReturn(rideSchedule);
+        RideSchedule update = new RideSchedule();
+        update.setAvailableSeats(5);
+        update.setAvailable(true);
+
+        rideScheduleService.updateRideSchedule(1L, update);
+
+        verify(seatInventoryService).seatsChanged(1L, 3, 5);
+        // The ride row is written, and so locked, only right before the seats are shifted
+        InOrder inOrder = inOrder(savedRideSearchService, rideScheduleRepository, seatInventoryService);
+        inOrder.verify(savedRideSearchService).matchRideSchedule(rideSchedule);
+        inOrder.verify(rideScheduleRepository).saveAndFlush(rideSchedule);
+        inOrder.verify(seatInventoryService).seatsChanged(1L, 3, 5);
+        verify(rideScheduleRepository, never()).findByIdForUpdate(any());
+    }
+
+    @Test
+    void updateRideSchedule_InTransaction_ChangesIndexAndCacheOnlyAfterCommit() {
+        when(rideScheduleRepository.findById(1L)).thenReturn(Optional.of(rideSchedule));
+        when(rideScheduleRepository.saveAndFlush(rideSchedule)).thenReturn(rideSchedule);
+        RideSchedule update = new RideSchedule();
+        update.setAvailable(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            rideScheduleService.updateRideSchedule(1L, update);
+
+            // A rolled back attempt never gets here
+            verify(rideSearchIndex, never()).upsert(any());
+            verify(rideSearchCache, never()).invalidate(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(rideSearchIndex).upsert(rideSchedule);
+            verify(rideSearchCache).invalidate(any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void deleteRideSchedule_RemovesFromSearchIndex() {
+        when(rideScheduleRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(rideSchedule));
+
+        rideScheduleService.deleteRideSchedule(1L);
+
+        verify(rideSearchIndex).remove(1L);
+        verify(rideSearchViewService).remove(1L);
+        verify(seatInventoryService).remove(1L);
+    }
+
+
+    private static Map<Long, RideSearchView> searchViews(RideSchedule... rideSchedules) {
+        Map<Long, RideSearchView> views = new LinkedHashMap<>();
+        for (RideSchedule rideSchedule : rideSchedules) {
+            views.put(rideSchedule.getId(), RideSearchView.builder()
+                    .id(rideSchedule.getId())
+                    .userId(1L)
+                    .userDisplayName("Driver")
+                    .vehicleId(1L)
+                    .startLatitude(rideSchedule.getStartLatitude())
+                    .startLongitude(rideSchedule.getStartLongitude())
+                    .endLatitude(rideSchedule.getEndLatitude())
+                    .endLongitude(rideSchedule.getEndLongitude())
+                    .daysMask(DayOfWeekMask.bit(DayOfWeek.MONDAY))
+                    .availableSeats(3)
+                    .remainingSeatsMonday(2)
+                    .available(true)
+                    .build());
+        }
+        return views;
+    }
+
+    private static RideScheduleSearchRow searchRow(RideSchedule rideSchedule) {
+        return new RideScheduleSearchRow(rideSchedule.getId(), 1L, "Driver", 1L,
+                rideSchedule.getStartLatitude(), rideSchedule.getStartLongitude(),
+                rideSchedule.getEndLatitude(), rideSchedule.getEndLongitude(),
+                DayOfWeekMask.bit(DayOfWeek.MONDAY), null, 3, true, null, null);
+    }
+}
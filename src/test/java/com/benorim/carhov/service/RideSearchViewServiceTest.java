@@ -0,0 +1,235 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.entity.Booking;
+import com.benorim.carhov.entity.CarHovUser;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.RideSearchView;
+import com.benorim.carhov.entity.Vehicle;
+import com.benorim.carhov.enums.BookingStatus;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.repository.BookingRepository;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.repository.RideSearchViewRepository;
+import com.benorim.carhov.search.RideQuery;
+import com.benorim.carhov.util.DayOfWeekMask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RideSearchViewServiceTest {
+
+    @Mock
+    private RideSearchViewRepository rideSearchViewRepository;
+
+    @Mock
+    private RideScheduleRepository rideScheduleRepository;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private RideSearchViewService rideSearchViewService;
+
+    private RideSchedule rideSchedule;
+
+    @BeforeEach
+    void setUp() {
+        CarHovUser driver = new CarHovUser();
+        driver.setId(7L);
+        driver.setDisplayName("Driver");
+        Vehicle vehicle = new Vehicle();
+        vehicle.setId(3L);
+
+        rideSchedule = new RideSchedule();
+        rideSchedule.setId(1L);
+        rideSchedule.setUser(driver);
+        rideSchedule.setVehicle(vehicle);
+        rideSchedule.setStartLatitude(38.8951);
+        rideSchedule.setStartLongitude(-77.0364);
+        rideSchedule.setEndLatitude(38.8977);
+        rideSchedule.setEndLongitude(-77.0365);
+        rideSchedule.setDayList(List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY));
+        rideSchedule.setDepartureTime(LocalTime.of(7, 45));
+        rideSchedule.setAvailableSeats(3);
+        rideSchedule.setAvailable(true);
+    }
+
+    @Test
+    void refresh_SubtractsSeatsHeldByBookingsPerDay() {
+        when(bookingRepository.findByRideScheduleIdAndStatusIn(eq(1L), any())).thenReturn(List.of(
+                booking(List.of(DayOfWeek.MONDAY, DayOfWeek.TUESDAY), 2),
+                booking(List.of(DayOfWeek.MONDAY), 2)));
+
+        rideSearchViewService.refresh(rideSchedule);
+
+        ArgumentCaptor<RideSearchView> saved = ArgumentCaptor.forClass(RideSearchView.class);
+        InOrder inOrder = inOrder(rideSearchViewRepository, bookingRepository);
+        inOrder.verify(rideSearchViewRepository).findByIdForUpdate(1L);
+        inOrder.verify(bookingRepository).findByRideScheduleIdAndStatusIn(eq(1L), any());
+        inOrder.verify(rideSearchViewRepository).save(saved.capture());
+        RideSearchView view = saved.getValue();
+        assertEquals(1L, view.getId());
+        assertEquals(7L, view.getUserId());
+        assertEquals("Driver", view.getUserDisplayName());
+        assertEquals(3L, view.getVehicleId());
+        assertEquals(rideSchedule.getDaysMask(), view.getDaysMask());
+        // Overbooked days are stored below zero and read as zero
+        assertEquals(-1, view.getRemainingSeatsMonday());
+        assertEquals(0, view.getRemainingSeats(DayOfWeek.MONDAY));
+        assertEquals(1, view.getRemainingSeats(DayOfWeek.TUESDAY));
+        assertEquals(3, view.getRemainingSeats(DayOfWeek.WEDNESDAY));
+        assertEquals(0, view.getRemainingSeats(DayOfWeek.THURSDAY));
+    }
+
+    @Test
+    void findCandidates_NarrowSearch_LooksUpStartCells() {
+        RideQuery query = RideQuery.of(38.8951, -77.0364, 38.8977, -77.0365, 5,
+                DayOfWeekMask.bit(DayOfWeek.MONDAY), 7 * 60 + 30, 8 * 60 + 15);
+
+        rideSearchViewService.findCandidates(query);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> startCells = ArgumentCaptor.forClass(Collection.class);
+        verify(rideSearchViewRepository).findAvailableInStartCellsWithinBoundingBoxes(startCells.capture(),
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                eq(DayOfWeekMask.bit(DayOfWeek.MONDAY)), eq(false), eq(false),
+                eq(LocalTime.of(7, 30)), eq(LocalTime.of(8, 15, 59, 999_999_000)));
+        assertFalse(startCells.getValue().isEmpty());
+        verify(rideSearchViewRepository, never()).findAvailableWithinBoundingBoxes(anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyInt(),
+                anyBoolean(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void findCandidates_WideSearch_FiltersOnCoordinatesOnly() {
+        RideQuery query = RideQuery.of(38.8951, -77.0364, 38.8977, -77.0365, 100);
+
+        rideSearchViewService.findCandidates(query);
+
+        verify(rideSearchViewRepository).findAvailableWithinBoundingBoxes(anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), eq(DayOfWeekMask.NONE),
+                eq(true), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void seatsReserved_TakesSeatsOnBookedDaysInPlace() {
+        rideSearchViewService.seatsReserved(booking(List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), 2));
+
+        verify(rideSearchViewRepository).addRemainingSeats(1L, DayOfWeekMask.of(List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY)), -2);
+        verify(rideSearchViewRepository, never()).save(any());
+    }
+
+    @Test
+    void seatsReleased_GivesSeatsBackOnBookedDaysInPlace() {
+        rideSearchViewService.seatsReleased(booking(List.of(DayOfWeek.TUESDAY), 1));
+
+        verify(rideSearchViewRepository).addRemainingSeats(1L, DayOfWeekMask.bit(DayOfWeek.TUESDAY), 1);
+        verify(rideSearchViewRepository, never()).save(any());
+    }
+
+    @Test
+    void rebuild_ReadsRideSchedulesPageByPage() {
+        List<RideSchedule> firstPage = IntStream.rangeClosed(1, 500).mapToObj(this::rideSchedule).toList();
+        when(rideScheduleRepository.findWithUserByIdGreaterThan(0L, Limit.of(500))).thenReturn(firstPage);
+        RideSchedule lastRideSchedule = rideSchedule(501);
+        Booking booking = booking(List.of(DayOfWeek.MONDAY), 2);
+        booking.setRideSchedule(lastRideSchedule);
+        when(rideScheduleRepository.findWithUserByIdGreaterThan(500L, Limit.of(500))).thenReturn(List.of(lastRideSchedule));
+        when(bookingRepository.findByRideScheduleIdInAndStatusIn(eq(firstPage.stream().map(RideSchedule::getId).toList()), any()))
+                .thenReturn(List.of());
+        when(bookingRepository.findByRideScheduleIdInAndStatusIn(eq(List.of(501L)), any())).thenReturn(List.of(booking));
+
+        assertEquals(501, rideSearchViewService.rebuild());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<RideSearchView>> saved = ArgumentCaptor.forClass(List.class);
+        verify(rideSearchViewRepository, times(2)).saveAll(saved.capture());
+        assertEquals(500, saved.getAllValues().getFirst().size());
+        RideSearchView lastView = saved.getAllValues().getLast().getFirst();
+        assertEquals(501L, lastView.getId());
+        assertEquals(3, lastView.getRemainingSeats(DayOfWeek.MONDAY));
+        verify(rideSearchViewRepository).findByIdInForUpdate(List.of(501L));
+        verify(rideSearchViewRepository).deleteWithoutRideSchedule();
+        verify(rideSearchViewRepository, never()).deleteAll();
+    }
+
+    @Test
+    void needsRebuild_ComparesRowCounts() {
+        when(rideSearchViewRepository.count()).thenReturn(2L);
+        when(rideScheduleRepository.count()).thenReturn(3L);
+
+        assertTrue(rideSearchViewService.needsRebuild());
+    }
+
+    @Test
+    void needsRebuild_RideScheduleChangedSinceItsRowWasWritten_ReturnsTrue() {
+        when(rideSearchViewRepository.countRideSchedulesWithoutCurrentView()).thenReturn(1L);
+
+        assertTrue(rideSearchViewService.needsRebuild());
+    }
+
+    @Test
+    void needsRebuild_EveryRowCurrent_ReturnsFalse() {
+        when(rideSearchViewRepository.countRideSchedulesWithoutCurrentView()).thenReturn(0L);
+        when(rideSearchViewRepository.count()).thenReturn(3L);
+        when(rideScheduleRepository.count()).thenReturn(3L);
+
+        assertFalse(rideSearchViewService.needsRebuild());
+    }
+
+    private RideSchedule rideSchedule(long id) {
+        RideSchedule copy = new RideSchedule();
+        copy.setId(id);
+        copy.setUser(rideSchedule.getUser());
+        copy.setStartLatitude(rideSchedule.getStartLatitude());
+        copy.setStartLongitude(rideSchedule.getStartLongitude());
+        copy.setEndLatitude(rideSchedule.getEndLatitude());
+        copy.setEndLongitude(rideSchedule.getEndLongitude());
+        copy.setDayList(rideSchedule.getDayList());
+        copy.setAvailableSeats(5);
+        copy.setAvailable(true);
+        return copy;
+    }
+
+    private Booking booking(List<DayOfWeek> bookedDays, int seatsBooked) {
+        return Booking.builder()
+                .rideSchedule(rideSchedule(1))
+                .bookedDaysMask(DayOfWeekMask.of(bookedDays))
+                .seatsBooked(seatsBooked)
+                .status(BookingStatus.PENDING)
+                .build();
+    }
+}
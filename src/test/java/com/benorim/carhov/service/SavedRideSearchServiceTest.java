@@ -0,0 +1,201 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.dto.savedSearch.CreateSavedRideSearchDTO;
+import com.benorim.carhov.entity.CarHovUser;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.SavedRideSearch;
+import com.benorim.carhov.entity.SavedRideSearchMatch;
+import com.benorim.carhov.exception.DataOwnershipException;
+import com.benorim.carhov.repository.CarHovUserRepository;
+import com.benorim.carhov.repository.SavedRideSearchMatchRepository;
+import com.benorim.carhov.repository.SavedRideSearchRepository;
+import com.benorim.carhov.search.SavedRideSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SavedRideSearchServiceTest {
+
+    @Mock
+    private SavedRideSearchRepository savedRideSearchRepository;
+
+    @Mock
+    private SavedRideSearchMatchRepository savedRideSearchMatchRepository;
+
+    @Mock
+    private CarHovUserRepository carHovUserRepository;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private SavedRideSearchIndex savedRideSearchIndex;
+
+    @InjectMocks
+    private SavedRideSearchService savedRideSearchService;
+
+    private CarHovUser driver;
+    private CarHovUser passenger;
+    private RideSchedule rideSchedule;
+
+    @BeforeEach
+    void setUp() {
+        driver = new CarHovUser();
+        driver.setId(1L);
+        passenger = new CarHovUser();
+        passenger.setId(2L);
+
+        // San Francisco -> San Jose
+        rideSchedule = new RideSchedule();
+        rideSchedule.setId(10L);
+        rideSchedule.setUser(driver);
+        rideSchedule.setStartLatitude(37.7749);
+        rideSchedule.setStartLongitude(-122.4194);
+        rideSchedule.setEndLatitude(37.3382);
+        rideSchedule.setEndLongitude(-121.8863);
+        rideSchedule.setAvailable(true);
+    }
+
+    @Test
+    void createSavedRideSearch_AddsToIndex() {
+        CreateSavedRideSearchDTO createSavedRideSearchDTO = new CreateSavedRideSearchDTO();
+        createSavedRideSearchDTO.setUserId(2L);
+        createSavedRideSearchDTO.setStartLatitude(37.7750);
+        createSavedRideSearchDTO.setStartLongitude(-122.4190);
+        createSavedRideSearchDTO.setEndLatitude(37.3380);
+        createSavedRideSearchDTO.setEndLongitude(-121.8860);
+        SavedRideSearch saved = savedSearch(100L, passenger);
+        when(carHovUserRepository.findById(2L)).thenReturn(Optional.of(passenger));
+        when(authService.isRequestMadeByLoggedInUser(passenger)).thenReturn(true);
+        when(savedRideSearchRepository.save(any(SavedRideSearch.class))).thenReturn(saved);
+
+        SavedRideSearch result = savedRideSearchService.createSavedRideSearch(createSavedRideSearchDTO);
+
+        assertEquals(100L, result.getId());
+        verify(savedRideSearchIndex).add(saved);
+    }
+
+    @Test
+    void createSavedRideSearch_NotLoggedInUser_ThrowsException() {
+        CreateSavedRideSearchDTO createSavedRideSearchDTO = new CreateSavedRideSearchDTO();
+        createSavedRideSearchDTO.setUserId(2L);
+        when(carHovUserRepository.findById(2L)).thenReturn(Optional.of(passenger));
+        when(authService.isRequestMadeByLoggedInUser(passenger)).thenThrow(new DataOwnershipException("User id mismatch"));
+
+        assertThrows(DataOwnershipException.class, () -> savedRideSearchService.createSavedRideSearch(createSavedRideSearchDTO));
+        verify(savedRideSearchRepository, never()).save(any());
+    }
+
+    @Test
+    void matchRideSchedule_RecordsNewMatchesOnly() {
+        SavedRideSearch newMatch = savedSearch(100L, passenger);
+        SavedRideSearch alreadyMatched = savedSearch(101L, passenger);
+        SavedRideSearch ownSearch = savedSearch(102L, driver);
+        when(savedRideSearchIndex.findMatchingSearchIds(any())).thenReturn(List.of(100L, 101L, 102L));
+        when(savedRideSearchMatchRepository.findByRideScheduleId(10L)).thenReturn(List.of(match(alreadyMatched)));
+        when(savedRideSearchRepository.findAllById(List.of(100L, 101L, 102L))).thenReturn(List.of(newMatch, alreadyMatched, ownSearch));
+        when(savedRideSearchMatchRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<SavedRideSearchMatch> matches = savedRideSearchService.matchRideSchedule(rideSchedule);
+
+        assertEquals(1, matches.size());
+        assertEquals(100L, matches.getFirst().getSavedRideSearch().getId());
+        assertTrue(matches.getFirst().getStartDistanceInMiles() < 1.0);
+        assertTrue(matches.getFirst().getEndDistanceInMiles() < 1.0);
+    }
+
+    @Test
+    void matchRideSchedule_RideMovedAway_DeletesMatchesItNoLongerSatisfies() {
+        SavedRideSearch stillMatched = savedSearch(100L, passenger);
+        // Saved searches created through another instance are not in the index but are still checked
+        SavedRideSearch notInIndex = savedSearch(101L, passenger);
+        SavedRideSearch noLongerMatched = savedSearch(102L, passenger);
+        noLongerMatched.setStartLatitude(40.7128);
+        noLongerMatched.setStartLongitude(-74.0060);
+        SavedRideSearchMatch noLongerMatchedMatch = match(noLongerMatched);
+        when(savedRideSearchMatchRepository.findByRideScheduleId(10L))
+                .thenReturn(List.of(match(stillMatched), match(notInIndex), noLongerMatchedMatch));
+        when(savedRideSearchIndex.findMatchingSearchIds(any())).thenReturn(List.of(100L));
+        when(savedRideSearchRepository.findAllById(List.of(100L))).thenReturn(List.of(stillMatched));
+
+        assertTrue(savedRideSearchService.matchRideSchedule(rideSchedule).isEmpty());
+        verify(savedRideSearchMatchRepository).deleteAll(List.of(noLongerMatchedMatch));
+        verify(savedRideSearchMatchRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void matchRideSchedule_UnavailableRide_DeletesItsMatchesAndSkipsIndex() {
+        rideSchedule.setAvailable(false);
+
+        assertTrue(savedRideSearchService.matchRideSchedule(rideSchedule).isEmpty());
+        verify(savedRideSearchMatchRepository).deleteByRideScheduleId(10L);
+        verifyNoInteractions(savedRideSearchIndex);
+    }
+
+    @Test
+    void deleteSavedRideSearch_RemovesMatchesAndIndexEntry() {
+        SavedRideSearch savedRideSearch = savedSearch(100L, passenger);
+        when(savedRideSearchRepository.findById(100L)).thenReturn(Optional.of(savedRideSearch));
+        when(authService.isRequestMadeByLoggedInUser(passenger)).thenReturn(true);
+
+        assertTrue(savedRideSearchService.deleteSavedRideSearch(100L));
+        verify(savedRideSearchIndex).remove(100L);
+        verify(savedRideSearchMatchRepository).deleteBySavedRideSearchId(100L);
+        verify(savedRideSearchRepository).delete(savedRideSearch);
+    }
+
+    @Test
+    void deleteSavedRideSearch_InTransaction_RemovesIndexEntryOnlyAfterCommit() {
+        SavedRideSearch savedRideSearch = savedSearch(100L, passenger);
+        when(savedRideSearchRepository.findById(100L)).thenReturn(Optional.of(savedRideSearch));
+        when(authService.isRequestMadeByLoggedInUser(passenger)).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            savedRideSearchService.deleteSavedRideSearch(100L);
+
+            verify(savedRideSearchIndex, never()).remove(any());
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(savedRideSearchIndex).remove(100L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private SavedRideSearchMatch match(SavedRideSearch savedRideSearch) {
+        SavedRideSearchMatch match = new SavedRideSearchMatch();
+        match.setSavedRideSearch(savedRideSearch);
+        match.setRideSchedule(rideSchedule);
+        return match;
+    }
+
+    private static SavedRideSearch savedSearch(Long id, CarHovUser user) {
+        SavedRideSearch savedRideSearch = new SavedRideSearch();
+        savedRideSearch.setId(id);
+        savedRideSearch.setUser(user);
+        savedRideSearch.setStartLatitude(37.7750);
+        savedRideSearch.setStartLongitude(-122.4190);
+        savedRideSearch.setEndLatitude(37.3380);
+        savedRideSearch.setEndLongitude(-121.8860);
+        savedRideSearch.setRadiusInMiles(5.0);
+        return savedRideSearch;
+    }
+}
@@ -0,0 +1,127 @@
+package com.benorim.carhov.service;
+
+import com.benorim.carhov.entity.Booking;
+import com.benorim.carhov.entity.RideSchedule;
+import com.benorim.carhov.entity.SeatInventory;
+import com.benorim.carhov.enums.DayOfWeek;
+import com.benorim.carhov.repository.BookingRepository;
+import com.benorim.carhov.repository.RideScheduleRepository;
+import com.benorim.carhov.repository.SeatInventoryRepository;
+import com.benorim.carhov.util.DayOfWeekMask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SeatInventoryServiceTest {
+
+    @Mock
+    private SeatInventoryRepository seatInventoryRepository;
+
+    @Mock
+    private RideScheduleRepository rideScheduleRepository;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @InjectMocks
+    private SeatInventoryService seatInventoryService;
+
+    private RideSchedule rideSchedule;
+
+    @BeforeEach
+    void setUp() {
+        rideSchedule = new RideSchedule();
+        rideSchedule.setId(1L);
+        rideSchedule.setAvailableSeats(4);
+        rideSchedule.setDayList(List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY));
+    }
+
+    @Test
+    void reserve_TakesDaysInFixedOrder() {
+        when(seatInventoryRepository.findDaysOfWeekByRideScheduleId(1L)).thenReturn(List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY));
+        when(seatInventoryRepository.reserveSeats(1L, DayOfWeek.MONDAY, 2)).thenReturn(1);
+        when(seatInventoryRepository.reserveSeats(1L, DayOfWeek.WEDNESDAY, 2)).thenReturn(1);
+
+        seatInventoryService.reserve(rideSchedule, List.of(DayOfWeek.WEDNESDAY, DayOfWeek.MONDAY), 2);
+
+        InOrder inOrder = inOrder(seatInventoryRepository);
+        inOrder.verify(seatInventoryRepository).reserveSeats(1L, DayOfWeek.MONDAY, 2);
+        inOrder.verify(seatInventoryRepository).reserveSeats(1L, DayOfWeek.WEDNESDAY, 2);
+        verify(seatInventoryRepository, never()).save(any());
+        verify(rideScheduleRepository, never()).lockAvailableSeats(any());
+    }
+
+    @Test
+    void reserve_NotEnoughSeatsLeft_ThrowsException() {
+        when(seatInventoryRepository.findDaysOfWeekByRideScheduleId(1L)).thenReturn(List.of(DayOfWeek.MONDAY));
+        when(seatInventoryRepository.reserveSeats(1L, DayOfWeek.MONDAY, 2)).thenReturn(0);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> seatInventoryService.reserve(rideSchedule, List.of(DayOfWeek.MONDAY), 2));
+
+        assertEquals("Not enough seats available for MONDAY", exception.getMessage());
+        verify(rideScheduleRepository, never()).lockAvailableSeats(any());
+    }
+
+    @Test
+    void reserve_FirstBookingOfDay_CreatesInventoryFromExistingBookings() {
+        when(seatInventoryRepository.findDaysOfWeekByRideScheduleId(1L)).thenReturn(List.of(DayOfWeek.WEDNESDAY));
+        when(seatInventoryRepository.reserveSeats(eq(1L), any(), eq(2))).thenReturn(1);
+        when(rideScheduleRepository.lockAvailableSeats(1L)).thenReturn(Optional.of(4));
+        when(bookingRepository.sumSeatsBookedByRideScheduleIdAndDay(1L, DayOfWeekMask.bit(DayOfWeek.MONDAY))).thenReturn(1);
+
+        seatInventoryService.reserve(rideSchedule, List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), 2);
+
+        ArgumentCaptor<SeatInventory> saved = ArgumentCaptor.forClass(SeatInventory.class);
+        verify(seatInventoryRepository).save(saved.capture());
+        assertEquals(DayOfWeek.MONDAY, saved.getValue().getDayOfWeek());
+        assertEquals(3, saved.getValue().getRemainingSeats());
+    }
+
+    @Test
+    void reserve_FirstBookingOfDay_LocksRideBeforeTakingAnySeats() {
+        when(seatInventoryRepository.findDaysOfWeekByRideScheduleId(1L)).thenReturn(List.of(DayOfWeek.MONDAY));
+        when(seatInventoryRepository.reserveSeats(eq(1L), any(), eq(2))).thenReturn(1);
+        when(rideScheduleRepository.lockAvailableSeats(1L)).thenReturn(Optional.of(4));
+
+        seatInventoryService.reserve(rideSchedule, List.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY), 2);
+
+        InOrder inOrder = inOrder(rideScheduleRepository, seatInventoryRepository);
+        inOrder.verify(rideScheduleRepository).lockAvailableSeats(1L);
+        inOrder.verify(seatInventoryRepository).save(any());
+        inOrder.verify(seatInventoryRepository).reserveSeats(1L, DayOfWeek.MONDAY, 2);
+        inOrder.verify(seatInventoryRepository).reserveSeats(1L, DayOfWeek.WEDNESDAY, 2);
+    }
+
+    @Test
+    void release_GivesSeatsBackOnEachBookedDay() {
+        Booking booking = Booking.builder()
+                .rideSchedule(rideSchedule)
+                .seatsBooked(2)
+                .bookedDaysMask(rideSchedule.getDaysMask())
+                .build();
+
+        seatInventoryService.release(booking);
+
+        verify(seatInventoryRepository).releaseSeats(1L, DayOfWeek.MONDAY, 2);
+        verify(seatInventoryRepository).releaseSeats(1L, DayOfWeek.WEDNESDAY, 2);
+    }
+}
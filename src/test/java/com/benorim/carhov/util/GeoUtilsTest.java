@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GeoUtilsTest {
@@ -135,4 +137,107 @@ class GeoUtilsTest {
         
         assertFalse(result);
     }
-} 
\ No newline at end of file
+    
+    @Test
+    void boundingBox_ContainsPointsOnTheCircle() {
+        double lat = 40.7128;
+        double lon = -74.0060;
+        double radius = 25.0;
+        
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(lat, lon, radius);
+        
+        // Walk just inside the circle and check every point falls inside the box
+        for (int bearing = 0; bearing < 360; bearing += 5) {
+            double angular = radius * 0.999 / 3958.8;
+            double bearingRad = Math.toRadians(bearing);
+            double latRad = Math.toRadians(lat);
+            double pointLat = Math.asin(Math.sin(latRad) * Math.cos(angular)
+                    + Math.cos(latRad) * Math.sin(angular) * Math.cos(bearingRad));
+            double pointLon = Math.toRadians(lon) + Math.atan2(Math.sin(bearingRad) * Math.sin(angular) * Math.cos(latRad),
+                    Math.cos(angular) - Math.sin(latRad) * Math.sin(pointLat));
+            
+            assertTrue(box.contains(Math.toDegrees(pointLat), Math.toDegrees(pointLon)), "bearing " + bearing);
+        }
+        assertFalse(box.contains(lat + 1, lon));
+    }
+    
+    @Test
+    void boundingBox_AcrossAntimeridian_CoversAllLongitudes() {
+        GeoUtils.BoundingBox box = GeoUtils.boundingBox(0.0, 179.9, 20.0);
+        
+        assertEquals(-180.0, box.minLongitude());
+        assertEquals(180.0, box.maxLongitude());
+    }
+    
+    @Test
+    void calculateDistancesInMiles_MatchesSingleDistanceCalculation() {
+        Random random = new Random(11);
+        int count = 1000;
+        double[] lats = new double[count];
+        double[] lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+        }
+        // Extra capacity beyond count must be left untouched
+        double[] distances = new double[count + 1];
+        
+        GeoUtils.calculateDistancesInMiles(40.7128, -74.0060, lats, lons, count, distances);
+        
+        for (int i = 0; i < count; i++) {
+            assertEquals(GeoUtils.calculateDistanceInMiles(40.7128, -74.0060, lats[i], lons[i]), distances[i]);
+        }
+        assertEquals(0.0, distances[count]);
+    }
+    
+    @ParameterizedTest
+    @CsvSource({
+            "0.0, 0.0",
+            "40.7128, -74.0060",
+            "-33.8688, 151.2093",
+            "64.1466, -21.9426",
+            "0.0, 179.95"
+    })
+    void radiusFilter_AgreesWithIsWithinRadius(double lat, double lon) {
+        Random random = new Random(7);
+        for (double radius : new double[]{0.5, 5.0, 50.0, 300.0, 5000.0}) {
+            GeoUtils.RadiusFilter filter = GeoUtils.radiusFilter(lat, lon, radius);
+            double spread = Math.min(180, 3 * radius / 69.0);
+            for (int i = 0; i < 2000; i++) {
+                double pointLat = Math.max(-90, Math.min(90, lat + (random.nextDouble() * 2 - 1) * spread));
+                double pointLon = lon + (random.nextDouble() * 2 - 1) * spread;
+                pointLon = pointLon > 180 ? pointLon - 360 : pointLon;
+                double distance = GeoUtils.calculateDistanceInMiles(lat, lon, pointLat, pointLon);
+                if (Math.abs(distance - radius) < 1e-6) {
+                    continue;
+                }
+                
+                assertEquals(GeoUtils.isWithinRadius(lat, lon, pointLat, pointLon, radius),
+                        filter.contains(pointLat, pointLon), "radius " + radius + " point " + pointLat + "," + pointLon);
+            }
+        }
+    }
+    
+    @Test
+    void radiusFilter_NegativeRadius_MatchesNothing() {
+        GeoUtils.RadiusFilter filter = GeoUtils.radiusFilter(40.7128, -74.0060, -1.0);
+        
+        assertFalse(filter.contains(40.7128, -74.0060));
+    }
+    
+    @Test
+    void radiusFilter_ZeroRadius_OnlyMatchesSamePoint() {
+        GeoUtils.RadiusFilter filter = GeoUtils.radiusFilter(40.7128, -74.0060, 0.0);
+        
+        assertTrue(filter.contains(40.7128, -74.0060));
+        assertFalse(filter.contains(40.7129, -74.0060));
+    }
+    
+    @Test
+    void radiusFilter_AcrossAntimeridian_MatchesNearbyPoint() {
+        GeoUtils.RadiusFilter filter = GeoUtils.radiusFilter(0.0, 179.99, 5.0);
+        
+        assertTrue(filter.contains(0.0, -179.99));
+        assertFalse(filter.contains(0.0, 179.0));
+    }
+}